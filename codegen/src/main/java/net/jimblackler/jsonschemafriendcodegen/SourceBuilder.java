@@ -0,0 +1,58 @@
+package net.jimblackler.jsonschemafriendcodegen;
+
+/** Builds Java source, one line at a time, with two-space indentation. */
+class SourceBuilder {
+  private final StringBuilder builder = new StringBuilder();
+  private int indent;
+
+  void line() {
+    builder.append('\n');
+  }
+
+  void line(String line) {
+    for (int idx = 0; idx != indent; idx++) {
+      builder.append("  ");
+    }
+    builder.append(line).append('\n');
+  }
+
+  /** Writes a line that opens a block, and indents the lines that follow. */
+  void open(String line) {
+    line(line);
+    indent++;
+  }
+
+  /** Ends a block with a line that closes it. */
+  void close(String line) {
+    indent--;
+    line(line);
+  }
+
+  void indent() {
+    indent++;
+  }
+
+  void outdent() {
+    indent--;
+  }
+
+  /** Appends the source of another builder, at the current indentation. */
+  void append(SourceBuilder other) {
+    for (String line : other.builder.toString().split("\n")) {
+      if (line.isEmpty()) {
+        line();
+      } else {
+        line(line);
+      }
+    }
+  }
+
+  boolean isEmpty() {
+    return builder.length() == 0;
+  }
+
+  @Override
+  public String toString() {
+    return builder.toString();
+  }
+}
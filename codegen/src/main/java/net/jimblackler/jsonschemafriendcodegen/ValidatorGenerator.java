@@ -0,0 +1,706 @@
+package net.jimblackler.jsonschemafriendcodegen;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import net.jimblackler.jsonschemafriend.GenerationException;
+import net.jimblackler.jsonschemafriend.InvalidRegexException;
+import net.jimblackler.jsonschemafriend.JavaRegExPattern;
+import net.jimblackler.jsonschemafriend.Schema;
+import net.jimblackler.jsonschemafriend.SchemaStore;
+
+/**
+ * Generates Java source for validators of schema files, at build time. For each schema file in a
+ * directory a class is generated with static isValid() and validate() methods. The checks of the
+ * schema are generated as plain Java code, with one method per schema, so no schema is loaded when
+ * documents pass. When a document fails, the schema is loaded from a copy embedded in the
+ * generated source and the document is validated by Validator, so errors are the same as from
+ * Validator.
+ *
+ * <p>Schemas with keywords the generator does not handle (such as unevaluatedProperties and
+ * $recursiveRef) are checked by Validator, from the embedded copy, as are string formats.
+ *
+ * <p>Usage: ValidatorGenerator &lt;schema directory&gt; &lt;output directory&gt; &lt;package&gt;
+ */
+public class ValidatorGenerator {
+  static final String SUPPORT_CLASS = "GeneratedSchemas";
+  private static final URI DRAFT_3 = URI.create("http://json-schema.org/draft-03/schema#");
+  private static final URI DRAFT_4 = URI.create("http://json-schema.org/draft-04/schema#");
+  // String constants in class files are limited to 65535 bytes.
+  private static final int CHUNK_LENGTH = 8000;
+
+  private final Path schemaDirectory;
+  private final Path outputDirectory;
+  private final String packageName;
+
+  public ValidatorGenerator(Path schemaDirectory, Path outputDirectory, String packageName) {
+    this.schemaDirectory = schemaDirectory.toAbsolutePath().normalize();
+    this.outputDirectory = outputDirectory;
+    this.packageName = packageName;
+  }
+
+  public static void main(String[] args) throws IOException, GenerationException {
+    if (args.length != 3) {
+      System.err.println(
+          "Usage: ValidatorGenerator <schema directory> <output directory> <package>");
+      System.exit(1);
+    }
+    new ValidatorGenerator(Paths.get(args[0]), Paths.get(args[1]), args[2]).generate();
+  }
+
+  /** Generates a validator class for each .json file in the schema directory. */
+  public void generate() throws IOException, GenerationException {
+    List<Path> files;
+    try (Stream<Path> stream = Files.walk(schemaDirectory)) {
+      files = stream.filter(path -> path.toString().endsWith(".json"))
+                  .sorted()
+                  .collect(Collectors.toList());
+    }
+    Path packageDirectory = outputDirectory.resolve(packageName.replace('.', File.separatorChar));
+    Files.createDirectories(packageDirectory);
+
+    Map<String, String> documents = new LinkedHashMap<>();
+    for (Path file : files) {
+      documents.put(resourceUri(file.toUri()), new String(Files.readAllBytes(file), UTF_8));
+    }
+    write(packageDirectory.resolve(SUPPORT_CLASS + ".java"), supportSource(documents));
+
+    // One store is used for all files, so references between the files resolve as they will at
+    // runtime. Schemas are validated against their metaschemas here, rather than at runtime.
+    SchemaStore schemaStore = new SchemaStore();
+    for (Path file : files) {
+      Schema schema = schemaStore.loadSchema(file.toFile());
+      String className = className(file);
+      write(packageDirectory.resolve(className + ".java"),
+          new ClassWriter(className, schemaDirectory.relativize(file).toString(), schema).source());
+    }
+  }
+
+  private static void write(Path path, String source) throws IOException {
+    Files.write(path, source.getBytes(UTF_8));
+  }
+
+  /**
+   * Converts the URI of a schema at build time to the URI of its embedded copy at runtime, which
+   * is relative to the schema directory. URIs from $id are kept.
+   */
+  private String resourceUri(URI uri) {
+    if (!"file".equals(uri.getScheme())) {
+      return uri.toString();
+    }
+    return schemaDirectory.toUri().relativize(uri).toString();
+  }
+
+  /** Converts a file name such as "order-item.json" to a class name such as OrderItemValidator. */
+  static String className(Path file) {
+    String name = file.getFileName().toString();
+    name = name.substring(0, name.length() - ".json".length());
+    StringBuilder builder = new StringBuilder();
+    boolean upper = true;
+    for (char c : name.toCharArray()) {
+      if (!Character.isJavaIdentifierPart(c)) {
+        upper = true;
+        continue;
+      }
+      builder.append(upper ? Character.toUpperCase(c) : c);
+      upper = false;
+    }
+    if (builder.length() == 0 || !Character.isJavaIdentifierStart(builder.charAt(0))) {
+      builder.insert(0, 'S');
+    }
+    return builder.append("Validator").toString();
+  }
+
+  private String supportSource(Map<String, String> documents) throws IOException {
+    SourceBuilder statements = new SourceBuilder();
+    statements.indent();
+    statements.indent();
+    statements.indent();
+    for (Map.Entry<String, String> entry : documents.entrySet()) {
+      statements.line("SCHEMA_STORE.store(URI.create(" + literal(entry.getKey()) + "),");
+      statements.line("    DocumentUtils.parseJson(String.join(\"\",");
+      String content = entry.getValue();
+      for (int start = 0; start < content.length(); start += CHUNK_LENGTH) {
+        String chunk = content.substring(start, Math.min(content.length(), start + CHUNK_LENGTH));
+        boolean last = start + CHUNK_LENGTH >= content.length();
+        statements.line("        " + literal(chunk) + (last ? ")));" : ","));
+      }
+    }
+    // The files are loaded up front so that schemas identified by $id can be found.
+    statements.open("try {");
+    for (String uri : documents.keySet()) {
+      statements.line("SCHEMA_STORE.loadSchema(URI.create(" + literal(uri) + "), false);");
+    }
+    statements.close("} catch (GenerationException e) {");
+    statements.indent();
+    statements.line("throw new IllegalStateException(e);");
+    statements.outdent();
+    statements.line("}");
+
+    String template;
+    try (InputStream stream =
+             ValidatorGenerator.class.getResourceAsStream(SUPPORT_CLASS + ".java.template")) {
+      template = new String(readAll(stream), UTF_8);
+    }
+    return template.replace("${package}", packageName)
+        .replace("${documents}\n", statements.toString());
+  }
+
+  private static byte[] readAll(InputStream stream) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int count;
+    while ((count = stream.read(buffer)) != -1) {
+      outputStream.write(buffer, 0, count);
+    }
+    return outputStream.toByteArray();
+  }
+
+  static String literal(String string) {
+    StringBuilder builder = new StringBuilder("\"");
+    for (char c : string.toCharArray()) {
+      switch (c) {
+        case '"':
+          builder.append("\\\"");
+          break;
+        case '\\':
+          builder.append("\\\\");
+          break;
+        case '\n':
+          builder.append("\\n");
+          break;
+        case '\r':
+          builder.append("\\r");
+          break;
+        case '\t':
+          builder.append("\\t");
+          break;
+        default:
+          if (c < 0x20 || c > 0x7e) {
+            builder.append(String.format("\\u%04x", (int) c));
+          } else {
+            builder.append(c);
+          }
+      }
+    }
+    return builder.append('"').toString();
+  }
+
+  /**
+   * Returns true if the generator writes the checks of a schema. Other schemas are checked by the
+   * validator: those whose outcome depends on how they were reached, or on other schemas, and
+   * those with keywords that are rare or need the validator's checkers.
+   */
+  private static boolean isSupported(Schema schema) {
+    if (schema.getUnevaluatedProperties() != null || schema.getUnevaluatedItems() != null
+        || schema.getRecursiveRef() != null || schema.isRecursiveAnchor()
+        || !schema.getDisallow().isEmpty() || !schema.getDisallowSchemas().isEmpty()
+        || !schema.getTypesSchema().isEmpty() || schema.getDivisibleBy() != null
+        || schema.getContentEncoding() != null || schema.getContentMediaType() != null) {
+      return false;
+    }
+    if (schema.hasConst() && !isScalar(schema.getConst())) {
+      return false;
+    }
+    if (schema.getEnums() != null) {
+      for (Object value : schema.getEnums()) {
+        if (!isScalar(value)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean isScalar(Object value) {
+    return value == null || value instanceof String || value instanceof Number
+        || value instanceof Boolean;
+  }
+
+  /** Writes the source of the validator class of one schema file. */
+  private class ClassWriter {
+    private final String className;
+    private final String fileName;
+    private final Schema root;
+    private final Map<Schema, String> methodNames = new IdentityHashMap<>();
+    private final Deque<Schema> pending = new ArrayDeque<>();
+    private final List<String> patterns = new ArrayList<>();
+    private final SourceBuilder methods = new SourceBuilder();
+
+    ClassWriter(String className, String fileName, Schema root) {
+      this.className = className;
+      this.fileName = fileName;
+      this.root = root;
+    }
+
+    String source() {
+      String rootMethod = methodName(root);
+      while (!pending.isEmpty()) {
+        writeMethod(pending.remove());
+      }
+
+      SourceBuilder source = new SourceBuilder();
+      source.line("// Generated by ValidatorGenerator from " + fileName + ". Do not edit.");
+      source.line("package " + packageName + ";");
+      source.line();
+      source.line("import java.util.List;");
+      source.line("import java.util.Map;");
+      source.line("import java.util.function.Consumer;");
+      source.line("import net.jimblackler.jsonschemafriend.RegExPattern;");
+      source.line("import net.jimblackler.jsonschemafriend.ValidationError;");
+      source.line();
+      source.line("/** Validates documents against " + fileName + ". */");
+      source.open("public final class " + className + " {");
+      source.line("private static final String URI = " + literal(resourceUri(root.getUri())) + ";");
+      for (int idx = 0; idx != patterns.size(); idx++) {
+        source.line("private static final RegExPattern PATTERN_" + idx + " =");
+        source.line("    " + SUPPORT_CLASS + ".pattern(" + literal(patterns.get(idx)) + ");");
+      }
+      source.line();
+      source.line("private " + className + "() {}");
+      source.line();
+      source.line("/** Returns true if the document passes the schema. */");
+      source.open("public static boolean isValid(Object document) {");
+      source.open("if (!" + SUPPORT_CLASS + ".isNative(document)) {");
+      source.line("return " + SUPPORT_CLASS + ".isValid(URI, document);");
+      source.close("}");
+      source.line("return " + rootMethod + "(document);");
+      source.close("}");
+      source.line();
+      source.line("/** Validates a document, reporting the same errors as Validator. */");
+      source.open("public static void validate(");
+      source.line("  Object document, Consumer<ValidationError> errorConsumer) {");
+      source.open("if (!isValid(document)) {");
+      source.line(SUPPORT_CLASS + ".validate(URI, document, errorConsumer);");
+      source.close("}");
+      source.close("}");
+      source.append(methods);
+      source.close("}");
+      return source.toString();
+    }
+
+    private String methodName(Schema schema) {
+      String name = methodNames.get(schema);
+      if (name == null) {
+        name = "schema" + methodNames.size();
+        methodNames.put(schema, name);
+        pending.add(schema);
+      }
+      return name;
+    }
+
+    private String pattern(String pattern) {
+      try {
+        new JavaRegExPattern(pattern);
+      } catch (InvalidRegexException e) {
+        // As in the validator, invalid patterns are ignored.
+        return null;
+      }
+      patterns.add(pattern);
+      return "PATTERN_" + (patterns.size() - 1);
+    }
+
+    private void writeMethod(Schema schema) {
+      SourceBuilder body = methods;
+      body.line();
+      body.line("// " + resourceUri(schema.getUri()));
+      body.open("private static boolean " + methodNames.get(schema) + "(Object o) {");
+      if (!isSupported(schema)) {
+        body.line("return " + fallback(schema) + ";");
+        body.close("}");
+        return;
+      }
+      if (Boolean.TRUE.equals(schema.isFalse())) {
+        body.line("return false;");
+        body.close("}");
+        return;
+      }
+      writeApplicators(schema, body);
+      writeTypes(schema, body);
+      writeConstAndEnum(schema, body);
+      body.line("return true;");
+      body.close("}");
+    }
+
+    private void writeApplicators(Schema schema, SourceBuilder body) {
+      Schema _if = schema.getIf();
+      if (_if != null) {
+        body.open("if (" + methodName(_if) + "(o)) {");
+        if (schema.getThen() != null) {
+          fail(body, "!" + methodName(schema.getThen()) + "(o)");
+        }
+        body.close("} else {");
+        body.indent();
+        if (schema.getElse() != null) {
+          fail(body, "!" + methodName(schema.getElse()) + "(o)");
+        }
+        body.close("}");
+      }
+      if (schema.getRef() != null) {
+        fail(body, "!" + methodName(schema.getRef()) + "(o)");
+      }
+      for (Schema schema1 : schema.getAllOf()) {
+        fail(body, "!" + methodName(schema1) + "(o)");
+      }
+      Collection<Schema> anyOf = schema.getAnyOf();
+      if (anyOf != null) {
+        List<String> calls = new ArrayList<>();
+        for (Schema schema1 : anyOf) {
+          calls.add(methodName(schema1) + "(o)");
+        }
+        fail(body, calls.isEmpty() ? "true" : "!(" + String.join(" || ", calls) + ")");
+      }
+      Collection<Schema> oneOf = schema.getOneOf();
+      if (oneOf != null) {
+        List<String> calls = new ArrayList<>();
+        for (Schema schema1 : oneOf) {
+          calls.add("(" + methodName(schema1) + "(o) ? 1 : 0)");
+        }
+        fail(body, calls.isEmpty() ? "true" : String.join(" + ", calls) + " != 1");
+      }
+      if (schema.getNot() != null) {
+        fail(body, methodName(schema.getNot()) + "(o)");
+      }
+    }
+
+    private void writeTypes(Schema schema, SourceBuilder body) {
+      Collection<String> types = schema.getExplicitTypes();
+      boolean anyType = types == null || types.isEmpty() || types.contains("any");
+      boolean numberAllowed = anyType || types.contains("number");
+      boolean integerAllowed = numberAllowed || types.contains("integer");
+      boolean stringAllowed = anyType || types.contains("string");
+      boolean arrayAllowed = anyType || types.contains("array");
+      boolean objectAllowed = anyType || types.contains("object");
+
+      String onlyType = null;
+      if (anyType) {
+        // Objects of other types fail every schema in the validator.
+        fail(body, "!" + SUPPORT_CLASS + ".isNative(o)");
+      } else {
+        List<String> allowed = new ArrayList<>();
+        if (integerAllowed) {
+          allowed.add("o instanceof Number");
+        }
+        if (stringAllowed) {
+          allowed.add("o instanceof String");
+        }
+        if (types.contains("boolean")) {
+          allowed.add("o instanceof Boolean");
+        }
+        if (arrayAllowed) {
+          allowed.add("o instanceof List");
+        }
+        if (objectAllowed) {
+          allowed.add("o instanceof Map");
+        }
+        if (types.contains("null")) {
+          allowed.add("o == null");
+        }
+        fail(body, allowed.isEmpty() ? "true" : "!(" + String.join(" || ", allowed) + ")");
+        if (allowed.size() == 1) {
+          // The type of o is known, so the checks of the type need no guard.
+          onlyType = allowed.get(0);
+        }
+      }
+
+      if (integerAllowed) {
+        SourceBuilder number = new SourceBuilder();
+        if (!numberAllowed) {
+          // As in the validator, drafts 3 and 4 don't count integral floating point values as
+          // integers.
+          boolean strictIntegers =
+              DRAFT_3.equals(schema.getMetaSchema()) || DRAFT_4.equals(schema.getMetaSchema());
+          fail(number,
+              strictIntegers ? "o instanceof Double || o instanceof Float"
+                             : "!" + SUPPORT_CLASS + ".isIntegral((Number) o)");
+        }
+        writeNumber(schema, number);
+        writeTyped("Number", null, number, onlyType, body);
+      }
+      if (stringAllowed) {
+        SourceBuilder string = new SourceBuilder();
+        writeString(schema, string);
+        writeTyped("String", null, string, onlyType, body);
+      }
+      if (arrayAllowed) {
+        SourceBuilder array = new SourceBuilder();
+        writeArray(schema, array);
+        writeTyped("List", "List<?> list = (List<?>) o;", array, onlyType, body);
+      }
+      if (objectAllowed) {
+        SourceBuilder object = new SourceBuilder();
+        writeObject(schema, object);
+        writeTyped("Map", "Map<?, ?> map = (Map<?, ?>) o;", object, onlyType, body);
+      }
+    }
+
+    /** Writes checks that apply to values of one type, if there are any. */
+    private void writeTyped(String type, String declaration, SourceBuilder checks,
+        String onlyType, SourceBuilder body) {
+      if (checks.isEmpty()) {
+        return;
+      }
+      String condition = "o instanceof " + type;
+      boolean guarded = !condition.equals(onlyType);
+      if (guarded) {
+        body.open("if (" + condition + ") {");
+      }
+      if (declaration != null) {
+        body.line(declaration);
+      }
+      body.append(checks);
+      if (guarded) {
+        body.close("}");
+      }
+    }
+
+    private void writeNumber(Schema schema, SourceBuilder body) {
+      if (schema.getMultipleOf() != null) {
+        fail(body,
+            "!" + SUPPORT_CLASS + ".isMultiple((Number) o, "
+                + literal(schema.getMultipleOf().toString()) + ")");
+      }
+      String value = "((Number) o).doubleValue()";
+      if (schema.getMaximum() != null) {
+        fail(body,
+            value + (schema.isExclusiveMaximumBoolean() ? " >= " : " > ")
+                + schema.getMaximum().doubleValue());
+      }
+      if (schema.getExclusiveMaximum() != null) {
+        fail(body, value + " >= " + schema.getExclusiveMaximum().doubleValue());
+      }
+      if (schema.getMinimum() != null) {
+        fail(body,
+            value + (schema.isExclusiveMinimumBoolean() ? " <= " : " < ")
+                + schema.getMinimum().doubleValue());
+      }
+      if (schema.getExclusiveMinimum() != null) {
+        fail(body, value + " <= " + schema.getExclusiveMinimum().doubleValue());
+      }
+    }
+
+    private void writeString(Schema schema, SourceBuilder body) {
+      Number minLength = schema.getMinLength();
+      Number maxLength = schema.getMaxLength();
+      if (minLength != null || maxLength != null) {
+        body.line("String string = (String) o;");
+        body.line("int length = string.codePointCount(0, string.length());");
+        if (maxLength != null) {
+          fail(body, "length > " + maxLength.intValue());
+        }
+        if (minLength != null) {
+          fail(body, "length < " + minLength.intValue());
+        }
+      }
+      if (schema.getPattern() != null) {
+        String pattern = pattern(schema.getPattern());
+        if (pattern != null) {
+          fail(body, "!" + pattern + ".matches((String) o)");
+        }
+      }
+      if (schema.getFormat() != null) {
+        // Formats are checked by the validator, with the rest of the schema.
+        fail(body, "!" + fallback(schema));
+      }
+    }
+
+    private void writeArray(Schema schema, SourceBuilder body) {
+      List<Schema> prefixItems = schema.getPrefixItems();
+      int itemStart = 0;
+      if (prefixItems != null) {
+        itemStart = prefixItems.size();
+        writeTuple(prefixItems, body);
+      } else if (schema.getItemsTuple() != null) {
+        List<Schema> itemsTuple = schema.getItemsTuple();
+        writeTuple(itemsTuple, body);
+        if (schema.getAdditionalItems() != null) {
+          writeItems(schema.getAdditionalItems(), itemsTuple.size(), body);
+        }
+      }
+      if (schema.getItems() != null) {
+        writeItems(schema.getItems(), itemStart, body);
+      }
+      Schema contains = schema.getContains();
+      if (contains != null) {
+        Number minContains = schema.getMinContains();
+        Number maxContains = schema.getMaxContains();
+        body.line("int passed = 0;");
+        body.open("for (Object item : list) {");
+        body.open("if (" + methodName(contains) + "(item)) {");
+        body.line("passed++;");
+        body.close("}");
+        body.close("}");
+        fail(body, "passed < " + (minContains == null ? 1 : minContains.intValue()));
+        if (maxContains != null) {
+          fail(body, "passed > " + maxContains.intValue());
+        }
+      }
+      if (schema.getMaxItems() != null) {
+        fail(body, "list.size() > " + schema.getMaxItems().intValue());
+      }
+      if (schema.getMinItems() != null) {
+        fail(body, "list.size() < " + schema.getMinItems().intValue());
+      }
+      if (schema.isUniqueItems()) {
+        fail(body, "!" + SUPPORT_CLASS + ".isUnique(list)");
+      }
+    }
+
+    private void writeTuple(List<Schema> tuple, SourceBuilder body) {
+      for (int idx = 0; idx != tuple.size(); idx++) {
+        fail(body,
+            "list.size() > " + idx + " && !" + methodName(tuple.get(idx)) + "(list.get(" + idx
+                + "))");
+      }
+    }
+
+    private void writeItems(Schema itemSchema, int start, SourceBuilder body) {
+      body.open("for (int idx = " + start + "; idx < list.size(); idx++) {");
+      fail(body, "!" + methodName(itemSchema) + "(list.get(idx))");
+      body.close("}");
+    }
+
+    private void writeObject(Schema schema, SourceBuilder body) {
+      if (schema.getMaxProperties() != null) {
+        fail(body, "map.size() > " + schema.getMaxProperties().intValue());
+      }
+      if (schema.getMinProperties() != null) {
+        fail(body, "map.size() < " + schema.getMinProperties().intValue());
+      }
+      // In draft 3, properties are required by a keyword in their own schemas.
+      Collection<String> required = new LinkedHashSet<>(schema.getRequiredProperties());
+      for (Map.Entry<String, Schema> entry : schema.getProperties().entrySet()) {
+        if (entry.getValue().isRequired()) {
+          required.add(entry.getKey());
+        }
+      }
+      for (String property : required) {
+        fail(body, "!map.containsKey(" + literal(property) + ")");
+      }
+
+      Map<String, Schema> properties = schema.getProperties();
+      Schema additional = schema.getAdditionalProperties();
+      Schema propertyNames = schema.getPropertyNames();
+      Map<String, Schema> patternProperties = new LinkedHashMap<>();
+      Iterator<Schema> patternSchemas = schema.getPatternPropertiesSchema().iterator();
+      for (String pattern : schema.getPatternPropertiesPatterns()) {
+        Schema patternSchema = patternSchemas.next();
+        String field = pattern(pattern);
+        if (field != null) {
+          patternProperties.put(field, patternSchema);
+        }
+      }
+      if (!properties.isEmpty() || !patternProperties.isEmpty() || additional != null
+          || propertyNames != null) {
+        body.open("for (Map.Entry<?, ?> entry : map.entrySet()) {");
+        body.line("String key = (String) entry.getKey();");
+        body.line("Object value = entry.getValue();");
+        if (additional != null) {
+          body.line("boolean matched = false;");
+        }
+        if (!properties.isEmpty()) {
+          body.open("switch (key) {");
+          for (Map.Entry<String, Schema> entry : properties.entrySet()) {
+            body.line("case " + literal(entry.getKey()) + ":");
+            body.indent();
+            fail(body, "!" + methodName(entry.getValue()) + "(value)");
+            if (additional != null) {
+              body.line("matched = true;");
+            }
+            body.line("break;");
+            body.outdent();
+          }
+          body.close("}");
+        }
+        for (Map.Entry<String, Schema> entry : patternProperties.entrySet()) {
+          body.open("if (" + entry.getKey() + ".matches(key)) {");
+          fail(body, "!" + methodName(entry.getValue()) + "(value)");
+          if (additional != null) {
+            body.line("matched = true;");
+          }
+          body.close("}");
+        }
+        if (additional != null) {
+          fail(body, "!matched && !" + methodName(additional) + "(value)");
+        }
+        if (propertyNames != null) {
+          fail(body, "!" + methodName(propertyNames) + "(key)");
+        }
+        body.close("}");
+      }
+
+      for (Map.Entry<String, Schema> entry : schema.getDependentSchemas().entrySet()) {
+        fail(body,
+            "map.containsKey(" + literal(entry.getKey()) + ") && !"
+                + methodName(entry.getValue()) + "(o)");
+      }
+      for (Map.Entry<String, Collection<String>> entry :
+          schema.getDependentRequired().entrySet()) {
+        for (String dependency : entry.getValue()) {
+          fail(body,
+              "map.containsKey(" + literal(entry.getKey()) + ") && !map.containsKey("
+                  + literal(dependency) + ")");
+        }
+      }
+    }
+
+    private void writeConstAndEnum(Schema schema, SourceBuilder body) {
+      if (schema.hasConst()) {
+        fail(body, "!(" + equalsScalar(schema.getConst()) + ")");
+      }
+      List<Object> enums = schema.getEnums();
+      if (enums != null) {
+        List<String> options = new ArrayList<>();
+        for (Object value : enums) {
+          options.add(equalsScalar(value));
+        }
+        fail(body, options.isEmpty() ? "true" : "!(" + String.join(" || ", options) + ")");
+      }
+    }
+
+    /** An expression that is true if o equals a value, compared as in the validator. */
+    private String equalsScalar(Object value) {
+      if (value == null) {
+        return "o == null";
+      }
+      if (value instanceof Number) {
+        return "o instanceof Number && Double.valueOf(((Number) o).doubleValue()).equals("
+            + ((Number) value).doubleValue() + ")";
+      }
+      if (value instanceof Boolean) {
+        return "Boolean." + ((Boolean) value ? "TRUE" : "FALSE") + ".equals(o)";
+      }
+      return literal((String) value) + ".equals(o)";
+    }
+
+    /** An expression that checks o against a schema with the validator. */
+    private String fallback(Schema schema) {
+      return SUPPORT_CLASS + ".isValid(" + literal(resourceUri(schema.getUri())) + ", o)";
+    }
+
+    private void fail(SourceBuilder body, String condition) {
+      body.open("if (" + condition + ") {");
+      body.line("return false;");
+      body.close("}");
+    }
+  }
+}
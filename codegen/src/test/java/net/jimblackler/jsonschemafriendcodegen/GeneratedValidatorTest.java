@@ -0,0 +1,96 @@
+package net.jimblackler.jsonschemafriendcodegen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import net.jimblackler.jsonschemafriend.DocumentUtils;
+import net.jimblackler.jsonschemafriend.GenerationException;
+import net.jimblackler.jsonschemafriend.Schema;
+import net.jimblackler.jsonschemafriend.SchemaStore;
+import net.jimblackler.jsonschemafriend.ValidationError;
+import net.jimblackler.jsonschemafriend.Validator;
+import net.jimblackler.jsonschemafriendcodegen.generated.OrderValidator;
+import net.jimblackler.jsonschemafriendcodegen.generated.TreeValidator;
+import org.junit.jupiter.api.Test;
+
+public class GeneratedValidatorTest {
+  private static final File SCHEMA_DIRECTORY = new File("src/test/resources/schemas");
+
+  private static final String[] ORDERS = {
+      "{\"id\": \"ORD-000001\", \"customer\": {\"name\": \"Ann\", \"email\": \"ann@example.com\"},"
+          + " \"items\": [{\"sku\": \"a\", \"quantity\": 2, \"price\": 1.25}],"
+          + " \"status\": \"paid\", \"discount\": 10, \"coupon\": \"TEN\", \"notes\": null,"
+          + " \"tags\": [\"a\", \"b\"], \"x-source\": 1}",
+      "{\"id\": \"ORD-1\", \"customer\": {\"name\": \"Ann\"}, \"items\": [{\"sku\": \"a\","
+          + " \"quantity\": 1, \"free\": true}]}",
+      "{\"id\": \"ORD-000001\", \"customer\": {\"name\": \"\"}, \"items\": []}",
+      "{\"id\": \"ORD-000001\", \"customer\": {\"name\": \"Ann\", \"email\": \"nope\"},"
+          + " \"items\": [{\"sku\": \"a\", \"quantity\": 1, \"free\": true}]}",
+      "{\"id\": \"ORD-000001\", \"customer\": {\"name\": \"Ann\"},"
+          + " \"items\": [{\"sku\": \"a\", \"quantity\": 1.5, \"price\": 1.001}]}",
+      "{\"id\": \"ORD-000001\", \"customer\": {\"name\": \"Ann\"},"
+          + " \"items\": [{\"sku\": \"a\", \"quantity\": 1, \"price\": 1, \"free\": true}]}",
+      "{\"id\": \"ORD-000001\", \"customer\": {\"name\": \"Ann\"}, \"items\": [{\"sku\": \"a\","
+          + " \"quantity\": 1, \"free\": true}], \"discount\": 0, \"status\": \"lost\"}",
+      "{\"id\": \"ORD-000001\", \"customer\": {\"name\": \"Ann\"}, \"items\": [{\"sku\": \"a\","
+          + " \"quantity\": 1, \"free\": true}], \"tags\": [\"a\", \"a\"], \"other\": 1}",
+      "{\"id\": \"ORD-000001\", \"customer\": {\"name\": \"Ann\"}, \"items\": [{\"sku\": \"a\","
+          + " \"quantity\": 1, \"free\": true}], \"notes\": 1}",
+      "[]"
+  };
+
+  private static final String[] TREES = {
+      "{\"value\": 1, \"children\": [{\"value\": 2, \"children\": [{}]}, {\"value\": 3}]}",
+      "{\"value\": 1.0}",
+      "{\"value\": 1, \"children\": [{\"value\": 2, \"parent\": 1}]}",
+      "{\"children\": [{\"children\": [{\"value\": \"x\"}]}]}",
+      "null"
+  };
+
+  @Test
+  public void order() throws GenerationException {
+    check("order.json", ORDERS, OrderValidator::isValid, OrderValidator::validate, 9);
+  }
+
+  @Test
+  public void tree() throws GenerationException {
+    check("tree.json", TREES, TreeValidator::isValid, TreeValidator::validate, 4);
+  }
+
+  /** Checks that a generated validator has the same outcomes and errors as Validator. */
+  private static void check(String fileName, String[] documents, Predicate<Object> isValid,
+      BiConsumer<Object, Consumer<ValidationError>> validate, int expectedInvalid)
+      throws GenerationException {
+    Schema schema = new SchemaStore().loadSchema(new File(SCHEMA_DIRECTORY, fileName));
+    Validator validator = new Validator();
+    int invalid = 0;
+    for (String json : documents) {
+      Object document = DocumentUtils.parseJson(json);
+      List<String> expected = new ArrayList<>();
+      validator.validate(schema, document, error -> expected.add(describe(error)));
+      assertEquals(expected.isEmpty(), isValid.test(document));
+      List<String> errors = new ArrayList<>();
+      validate.accept(document, error -> errors.add(describe(error)));
+      assertEquals(expected, errors);
+      if (!expected.isEmpty()) {
+        invalid++;
+      }
+    }
+    assertEquals(expectedInvalid, invalid);
+  }
+
+  /**
+   * Describes an error. The schemas of generated validators are identified relative to the
+   * directory they were generated from, so the directory is removed from messages.
+   */
+  private static String describe(ValidationError error) {
+    String directory = SCHEMA_DIRECTORY.getAbsoluteFile().toURI().toString();
+    return error.getClass().getSimpleName() + " at " + error.getUri() + ": "
+        + error.getMessage().replace(directory, "");
+  }
+}
@@ -17,8 +17,18 @@ public class AnyOfError extends ValidationError {
     return allErrors;
   }
 
+  @Override
+  public String getKeyword() {
+    return "anyOf";
+  }
+
   @Override
   public String getMessage() {
     return "All anyOf failed: " + allErrors;
   }
+
+  @Override
+  String getShortMessage() {
+    return "All anyOf failed";
+  }
 }
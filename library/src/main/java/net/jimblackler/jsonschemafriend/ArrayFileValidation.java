@@ -0,0 +1,282 @@
+package net.jimblackler.jsonschemafriend;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Validates the elements of a file holding one top-level JSON array, for
+ * Validator.validateArrayElements(). The file is memory-mapped and scanned for the boundaries of
+ * the elements of the array, without parsing them. Consecutive elements are grouped into chunks of
+ * about the chunk size, and each chunk is copied from the mapping, parsed and validated as a task
+ * on an executor. A limited number of chunks are in flight at once, so memory use depends on the
+ * chunk size rather than the size of the file. The mapping is released once the whole array has
+ * been scanned, as the chunks hold copies of their bytes.
+ */
+class ArrayFileValidation implements Iterator<ValidationResult> {
+  // ObjectMapper is thread-safe once configured, so one instance is shared by all tasks.
+  private static final ObjectMapper OBJECT_MAPPER =
+      new ObjectMapper().enable(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+  // Mappings are limited to int offsets, so large files are mapped in several regions.
+  private static final int REGION_BITS = 30;
+  private static final long REGION_MASK = (1L << REGION_BITS) - 1;
+  private static final int MAX_CHUNKS_IN_FLIGHT = Runtime.getRuntime().availableProcessors() * 2;
+  // The largest number of bytes that can be copied into an array.
+  private static final int MAX_COPY = Integer.MAX_VALUE - 8;
+
+  private final Validator validator;
+  private final List<Schema> schemas;
+  private final Executor executor;
+  private final int chunkSize;
+  // Null once released.
+  private MappedByteBuffer[] regions;
+  private final long size;
+  private final Deque<CompletableFuture<List<ValidationResult>>> pending = new ArrayDeque<>();
+  private Iterator<ValidationResult> current = Collections.emptyIterator();
+  private long position;
+  private long index;
+  private boolean endOfArray;
+  // Whether the last element scanned was followed by a comma.
+  private boolean afterComma;
+
+  ArrayFileValidation(Validator validator, Schema schema, Path path, Executor executor,
+      int chunkSize) throws IOException {
+    this.validator = validator;
+    schemas = StreamingValidation.expand(Collections.singletonList(schema), validator);
+    this.executor = executor;
+    this.chunkSize = chunkSize;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      size = channel.size();
+      regions = new MappedByteBuffer[(int) ((size + REGION_MASK) >>> REGION_BITS)];
+      for (int idx = 0; idx != regions.length; idx++) {
+        long start = (long) idx << REGION_BITS;
+        long length = Math.min(size - start, 1L << REGION_BITS);
+        regions[idx] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+      }
+    }
+    skipWhitespace();
+    if (position == size || byteAt(position) != '[') {
+      throw new IOException("Expected a JSON array in " + path);
+    }
+    position++;
+  }
+
+  @Override
+  public boolean hasNext() {
+    fill();
+    return current.hasNext();
+  }
+
+  @Override
+  public ValidationResult next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return current.next();
+  }
+
+  /** Scans and submits chunks until the in-flight limit is reached, and moves to the next chunk. */
+  private void fill() {
+    while (true) {
+      try {
+        while (!endOfArray && pending.size() < MAX_CHUNKS_IN_FLIGHT) {
+          submitChunk();
+        }
+      } catch (IOException e) {
+        release();
+        throw new UncheckedIOException(e);
+      }
+      if (current.hasNext() || pending.isEmpty()) {
+        return;
+      }
+      current = pending.remove().join().iterator();
+    }
+  }
+
+  /** Finds the boundaries of the next chunk of elements, and submits it for validation. */
+  private void submitChunk() throws IOException {
+    long chunkStart = position;
+    List<long[]> elements = new ArrayList<>();
+    while (position - chunkStart < chunkSize) {
+      long elementStart = position;
+      long[] element = nextElement();
+      if (element == null) {
+        endOfArray = true;
+        break;
+      }
+      long length = element[1] - element[0];
+      if (length > MAX_COPY) {
+        // Too large to be copied and parsed, so it is reported without being validated.
+        submit(elements);
+        pending.add(CompletableFuture.completedFuture(Collections.singletonList(
+            new ValidationResult(index++, element[0], null, Collections.emptyList(), false,
+                "Element at offset " + element[0] + " is too large to parse (" + length
+                    + " bytes)"))));
+        return;
+      }
+      if (!elements.isEmpty() && element[1] - elements.get(0)[0] > MAX_COPY) {
+        // Left for the next chunk, so that the copy of this chunk fits in an array.
+        position = elementStart;
+        break;
+      }
+      elements.add(element);
+    }
+    submit(elements);
+    if (endOfArray) {
+      release();
+    }
+  }
+
+  private void submit(List<long[]> elements) {
+    if (elements.isEmpty()) {
+      return;
+    }
+    long start = elements.get(0)[0];
+    byte[] bytes = copy(start, elements.get(elements.size() - 1)[1]);
+    long firstIndex = index;
+    index += elements.size();
+    pending.add(CompletableFuture.supplyAsync(
+        () -> validateChunk(bytes, start, elements, firstIndex), executor));
+  }
+
+  private List<ValidationResult> validateChunk(
+      byte[] bytes, long start, List<long[]> elements, long firstIndex) {
+    List<ValidationResult> results = new ArrayList<>(elements.size());
+    for (int idx = 0; idx != elements.size(); idx++) {
+      long[] element = elements.get(idx);
+      int offset = (int) (element[0] - start);
+      int length = (int) (element[1] - element[0]);
+      long elementIndex = firstIndex + idx;
+      Object object;
+      try {
+        object = OBJECT_MAPPER.readValue(bytes, offset, length, Object.class);
+      } catch (JsonProcessingException e) {
+        // Reported in the result of the element, and validation continues with the next one.
+        results.add(new ValidationResult(elementIndex, element[0], null, Collections.emptyList(),
+            false,
+            "Element at offset " + element[0] + " is not valid JSON: " + e.getOriginalMessage()));
+        continue;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      List<ValidationError> errors = new ArrayList<>();
+      // Indices beyond the range of a list are represented as the key of an object, which JSON
+      // Pointers resolve in the same way.
+      Object document = elementIndex <= Integer.MAX_VALUE
+          ? new StreamingValidation.SingleItemList((int) elementIndex, object)
+          : Collections.singletonMap(String.valueOf(elementIndex), object);
+      URI uri = PathUtils.append(URI.create(""), String.valueOf(elementIndex));
+      boolean complete = validator.validateElement(
+          StreamingValidation.itemSchemas(schemas, (int) Math.min(elementIndex, Integer.MAX_VALUE)),
+          document, uri, object, errors::add);
+      results.add(new ValidationResult(elementIndex, element[0], object, errors, complete, null));
+    }
+    return results;
+  }
+
+  /**
+   * Scans for the next element of the array, leaving the position after the comma or closing
+   * bracket that ends it.
+   *
+   * @return The start and end offsets of the element, or null at the end of the array.
+   */
+  private long[] nextElement() throws IOException {
+    skipWhitespace();
+    if (position == size) {
+      throw new IOException("Unterminated JSON array");
+    }
+    if (byteAt(position) == ']') {
+      if (afterComma) {
+        // A trailing comma. The missing element is returned, empty, to be reported as a syntax
+        // error, as an empty element between two commas is.
+        afterComma = false;
+        return new long[] {position, position};
+      }
+      position++;
+      return null;
+    }
+    long start = position;
+    int depth = 0;
+    boolean inString = false;
+    for (; position < size; position++) {
+      byte b = byteAt(position);
+      if (inString) {
+        if (b == '\\') {
+          position++;
+        } else if (b == '"') {
+          inString = false;
+        }
+      } else if (b == '"') {
+        inString = true;
+      } else if (b == '[' || b == '{') {
+        depth++;
+      } else if (b == ']' || b == '}') {
+        if (depth == 0) {
+          // The closing bracket of the array is left to end the scan at the next call.
+          afterComma = false;
+          return new long[] {start, position};
+        }
+        depth--;
+      } else if (b == ',' && depth == 0) {
+        afterComma = true;
+        return new long[] {start, position++};
+      }
+    }
+    throw new IOException("Unterminated JSON array");
+  }
+
+  /**
+   * Drops the mapping of the file, for the garbage collector to unmap, as Java has no way to unmap
+   * a file directly.
+   */
+  void release() {
+    regions = null;
+    endOfArray = true;
+  }
+
+  private void skipWhitespace() {
+    while (position != size) {
+      byte b = byteAt(position);
+      if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+        return;
+      }
+      position++;
+    }
+  }
+
+  private byte byteAt(long offset) {
+    return regions[(int) (offset >>> REGION_BITS)].get((int) (offset & REGION_MASK));
+  }
+
+  private byte[] copy(long start, long end) {
+    // Chunks are formed so that this is at most MAX_COPY.
+    byte[] bytes = new byte[(int) (end - start)];
+    int copied = 0;
+    while (copied != bytes.length) {
+      long offset = start + copied;
+      ByteBuffer region = regions[(int) (offset >>> REGION_BITS)].duplicate();
+      region.position((int) (offset & REGION_MASK));
+      int count = Math.min(region.remaining(), bytes.length - copied);
+      region.get(bytes, copied, count);
+      copied += count;
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,61 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Validates many documents for Validator.validateAll(). Documents are taken from their iterator on
+ * the calling thread and validated as tasks on an executor. At most a fixed number of documents
+ * are in flight at once; further documents are only taken as the results are consumed, in the
+ * order of the documents.
+ */
+class BatchPipeline implements Iterator<ValidationResult> {
+  private final Validator validator;
+  private final Schema schema;
+  private final Iterator<?> documents;
+  private final Executor executor;
+  private final int readAhead;
+  // The number of errors found in all documents, for the batch limit on errors.
+  private final AtomicInteger errorCount = new AtomicInteger();
+  private final Deque<CompletableFuture<ValidationResult>> pending = new ArrayDeque<>();
+  private int index;
+
+  BatchPipeline(Validator validator, Schema schema, Iterator<?> documents, Executor executor,
+      int readAhead) {
+    this.validator = validator;
+    this.schema = schema;
+    this.documents = documents;
+    this.executor = executor;
+    this.readAhead = readAhead;
+  }
+
+  @Override
+  public boolean hasNext() {
+    fill();
+    return !pending.isEmpty();
+  }
+
+  @Override
+  public ValidationResult next() {
+    fill();
+    if (pending.isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    return pending.remove().join();
+  }
+
+  /** Takes and submits documents until the read-ahead limit is reached or the documents end. */
+  private void fill() {
+    while (pending.size() < readAhead && documents.hasNext()) {
+      int documentIndex = index++;
+      Object document = documents.next();
+      pending.add(CompletableFuture.supplyAsync(
+          () -> validator.validateInBatch(schema, documentIndex, document, errorCount), executor));
+    }
+  }
+}
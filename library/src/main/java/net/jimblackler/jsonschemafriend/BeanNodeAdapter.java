@@ -0,0 +1,308 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads plain Java objects as JSON: beans and records as objects, Collections and arrays (including
+ * primitive arrays) as arrays, and Maps as objects. The properties of a bean are its public getters
+ * and public fields; the properties of a record are its components. Enums, Characters and other
+ * CharSequences are read as strings. Other classes of java.* packages (such as dates) are not
+ * handled, so the validator reports them as unexpected types. The keys of Maps are read as their
+ * String forms.
+ *
+ * <p>The properties of each class are found once and kept as MethodHandles, so objects are read
+ * directly without being converted to Maps. Items of Collections that are not Lists are found by
+ * iteration.
+ */
+public class BeanNodeAdapter implements NodeAdapter {
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final Method IS_RECORD = findMethod(Class.class, "isRecord");
+  private static final Method GET_RECORD_COMPONENTS =
+      findMethod(Class.class, "getRecordComponents");
+
+  // Returned by mapKey() when a Map has no key with the name.
+  private static final Object NO_KEY = new Object();
+
+  private static final ClassValue<Accessors> ACCESSORS = new ClassValue<Accessors>() {
+    @Override
+    protected Accessors computeValue(Class<?> type) {
+      return new Accessors(type);
+    }
+  };
+
+  @Override
+  public boolean handles(Object node) {
+    if (node == null || node instanceof String || node instanceof Number
+        || node instanceof Boolean) {
+      return false;
+    }
+    if (node instanceof Map || node instanceof Collection || node instanceof CharSequence
+        || node instanceof Character || node.getClass().isArray()) {
+      return true;
+    }
+    Package pkg = node.getClass().getPackage();
+    return pkg == null || !pkg.getName().startsWith("java.");
+  }
+
+  @Override
+  public boolean isObject(Object node) {
+    return node instanceof Map || !isArray(node) && !isString(node);
+  }
+
+  @Override
+  public boolean isArray(Object node) {
+    return node instanceof Collection || node.getClass().isArray();
+  }
+
+  @Override
+  public int size(Object node) {
+    if (node instanceof Map) {
+      return ((Map<?, ?>) node).size();
+    }
+    if (node instanceof Collection) {
+      return ((Collection<?>) node).size();
+    }
+    if (node.getClass().isArray()) {
+      return Array.getLength(node);
+    }
+    return ACCESSORS.get(node.getClass()).names.length;
+  }
+
+  @Override
+  public boolean has(Object node, String name) {
+    if (node instanceof Map) {
+      return mapKey((Map<?, ?>) node, name) != NO_KEY;
+    }
+    return ACCESSORS.get(node.getClass()).indexes.containsKey(name);
+  }
+
+  @Override
+  public Object get(Object node, String name) {
+    if (node instanceof Map) {
+      Object key = mapKey((Map<?, ?>) node, name);
+      return key == NO_KEY ? null : ((Map<?, ?>) node).get(key);
+    }
+    Accessors accessors = ACCESSORS.get(node.getClass());
+    Integer index = accessors.indexes.get(name);
+    if (index == null) {
+      return null;
+    }
+    try {
+      return (Object) accessors.getters[index].invokeExact(node);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public Iterator<String> keys(Object node) {
+    if (node instanceof Map) {
+      Iterator<?> keys = ((Map<?, ?>) node).keySet().iterator();
+      return new Iterator<String>() {
+        @Override
+        public boolean hasNext() {
+          return keys.hasNext();
+        }
+
+        @Override
+        public String next() {
+          return String.valueOf(keys.next());
+        }
+      };
+    }
+    return Arrays.asList(ACCESSORS.get(node.getClass()).names).iterator();
+  }
+
+  @Override
+  public Object get(Object node, int index) {
+    if (node instanceof List) {
+      return ((List<?>) node).get(index);
+    }
+    if (node instanceof Collection) {
+      Iterator<?> it = ((Collection<?>) node).iterator();
+      for (int idx = 0; idx != index; idx++) {
+        it.next();
+      }
+      return it.next();
+    }
+    // Primitive arrays are read directly rather than through reflection.
+    if (node instanceof Object[]) {
+      return ((Object[]) node)[index];
+    }
+    if (node instanceof int[]) {
+      return ((int[]) node)[index];
+    }
+    if (node instanceof long[]) {
+      return ((long[]) node)[index];
+    }
+    if (node instanceof double[]) {
+      return ((double[]) node)[index];
+    }
+    if (node instanceof float[]) {
+      return ((float[]) node)[index];
+    }
+    if (node instanceof boolean[]) {
+      return ((boolean[]) node)[index];
+    }
+    if (node instanceof short[]) {
+      return ((short[]) node)[index];
+    }
+    if (node instanceof byte[]) {
+      return ((byte[]) node)[index];
+    }
+    return ((char[]) node)[index];
+  }
+
+  @Override
+  public Object scalar(Object node) {
+    if (node instanceof Enum) {
+      return ((Enum<?>) node).name();
+    }
+    return node.toString();
+  }
+
+  private static boolean isString(Object node) {
+    return node instanceof CharSequence || node instanceof Character || node instanceof Enum;
+  }
+
+  /**
+   * Finds the key of a Map with a name as its String form, as given by keys(). Maps with String
+   * keys are searched directly; others, such as Maps keyed by enums or numbers, by iteration. The
+   * keys of a Map are taken to be of one type, so only the first key is examined to tell them
+   * apart.
+   */
+  private static Object mapKey(Map<?, ?> map, String name) {
+    Iterator<?> keys = map.keySet().iterator();
+    if (!keys.hasNext()) {
+      return NO_KEY;
+    }
+    Object first = keys.next();
+    if (first instanceof String) {
+      return map.containsKey(name) ? name : NO_KEY;
+    }
+    for (Object key : map.keySet()) {
+      if (String.valueOf(key).equals(name)) {
+        return key;
+      }
+    }
+    return NO_KEY;
+  }
+
+  private static Method findMethod(Class<?> type, String name) {
+    try {
+      return type.getMethod(name);
+    } catch (NoSuchMethodException e) {
+      // Records are not available before Java 16.
+      return null;
+    }
+  }
+
+  /** The names of the properties of a class, and MethodHandles to read them. */
+  private static class Accessors {
+    final String[] names;
+    final MethodHandle[] getters;
+    final Map<String, Integer> indexes = new HashMap<>();
+
+    Accessors(Class<?> type) {
+      Map<String, MethodHandle> properties =
+          isRecord(type) ? recordProperties(type) : beanProperties(type);
+      names = properties.keySet().toArray(new String[0]);
+      getters = properties.values().toArray(new MethodHandle[0]);
+      for (int idx = 0; idx != names.length; idx++) {
+        indexes.put(names[idx], idx);
+      }
+    }
+
+    private static boolean isRecord(Class<?> type) {
+      try {
+        return IS_RECORD != null && (Boolean) IS_RECORD.invoke(type);
+      } catch (ReflectiveOperationException e) {
+        return false;
+      }
+    }
+
+    private static Map<String, MethodHandle> recordProperties(Class<?> type) {
+      Map<String, MethodHandle> properties = new LinkedHashMap<>();
+      try {
+        for (Object component : (Object[]) GET_RECORD_COMPONENTS.invoke(type)) {
+          Class<?> componentClass = component.getClass();
+          String name = (String) componentClass.getMethod("getName").invoke(component);
+          Method accessor = (Method) componentClass.getMethod("getAccessor").invoke(component);
+          addGetter(properties, name, accessor);
+        }
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException(e);
+      }
+      return properties;
+    }
+
+    /** Public getters and fields, in alphabetical order as their declaration order is not known. */
+    private static Map<String, MethodHandle> beanProperties(Class<?> type) {
+      Map<String, MethodHandle> properties = new TreeMap<>();
+      for (Field field : type.getFields()) {
+        if (!Modifier.isStatic(field.getModifiers())) {
+          addGetter(properties, field.getName(), field);
+        }
+      }
+      for (Method method : type.getMethods()) {
+        if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0
+            || method.getDeclaringClass() == Object.class) {
+          continue;
+        }
+        String name = method.getName();
+        Class<?> returnType = method.getReturnType();
+        if (name.startsWith("get") && name.length() > 3 && returnType != void.class) {
+          addGetter(properties, decapitalize(name.substring(3)), method);
+        } else if (name.startsWith("is") && name.length() > 2
+            && (returnType == boolean.class || returnType == Boolean.class)) {
+          addGetter(properties, decapitalize(name.substring(2)), method);
+        }
+      }
+      return properties;
+    }
+
+    private static void addGetter(
+        Map<String, MethodHandle> properties, String name, AccessibleObject member) {
+      MethodHandle handle;
+      try {
+        // Public members of classes that are not public (such as nested classes) need this.
+        member.setAccessible(true);
+      } catch (RuntimeException e) {
+        // Not permitted by the module system; the lookup below may still succeed.
+      }
+      try {
+        handle = member instanceof Method ? MethodHandles.lookup().unreflect((Method) member)
+                                          : MethodHandles.lookup().unreflectGetter((Field) member);
+      } catch (IllegalAccessException e) {
+        return;
+      }
+      properties.put(name, handle.asType(GETTER_TYPE));
+    }
+
+    /** Follows the JavaBeans convention, where "URL" stays "URL" but "Name" becomes "name". */
+    private static String decapitalize(String name) {
+      if (name.length() > 1 && Character.isUpperCase(name.charAt(1))
+          && Character.isUpperCase(name.charAt(0))) {
+        return name;
+      }
+      return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+  }
+}
@@ -0,0 +1,14 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.net.URI;
+
+public class BufferLimitError extends ValidationError {
+  public BufferLimitError(URI uri, Object document, Schema schema) {
+    super(uri, document, schema);
+  }
+
+  @Override
+  public String getMessage() {
+    return "Value too large to buffer for streaming validation";
+  }
+}
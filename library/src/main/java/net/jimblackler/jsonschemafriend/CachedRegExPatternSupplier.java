@@ -1,21 +1,37 @@
 package net.jimblackler.jsonschemafriend;
 
-import java.util.WeakHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class CachedRegExPatternSupplier implements RegExPatternSupplier {
   private final RegExPatternSupplier wrapped;
-  private final WeakHashMap<String, RegExPattern> map = new WeakHashMap<>();
+  // Concurrent, as the supplier can be used by validations running in parallel.
+  private final Map<String, RegExPattern> map = new ConcurrentHashMap<>();
 
   public CachedRegExPatternSupplier(RegExPatternSupplier wrapped) {
     this.wrapped = wrapped;
   }
 
+  /**
+   * Returns the supplier a cached supplier wraps, for patterns that come from documents rather
+   * than schemas. Caching those would let a document stream fill the cache without bound.
+   */
+  static RegExPatternSupplier uncached(RegExPatternSupplier supplier) {
+    return supplier instanceof CachedRegExPatternSupplier
+        ? ((CachedRegExPatternSupplier) supplier).wrapped
+        : supplier;
+  }
+
   @Override
   public RegExPattern newPattern(String pattern) throws InvalidRegexException {
     RegExPattern regExPattern1 = map.get(pattern);
     if (regExPattern1 == null) {
+      // Two threads may compile the same pattern; the first to be stored is kept.
       regExPattern1 = wrapped.newPattern(pattern);
-      map.put(pattern, regExPattern1);
+      RegExPattern existing = map.putIfAbsent(pattern, regExPattern1);
+      if (existing != null) {
+        regExPattern1 = existing;
+      }
     }
     return regExPattern1;
   }
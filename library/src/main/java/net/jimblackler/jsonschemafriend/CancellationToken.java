@@ -0,0 +1,18 @@
+package net.jimblackler.jsonschemafriend;
+
+/**
+ * Allows a validation in progress to be cancelled from another thread, for example when the
+ * request it is part of times out. A cancelled validation ends promptly, reporting a
+ * LimitExceededError. A token can be shared by many validations, and stays cancelled.
+ */
+public class CancellationToken {
+  private volatile boolean cancelled;
+
+  public void cancel() {
+    cancelled = true;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+}
@@ -0,0 +1,80 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.util.function.Consumer;
+
+/**
+ * A schema compiled by Validator.compile() into a plan of checks specialized to its keywords, for
+ * fast checks of validity. Bounds, property names and patterns are resolved once when the schema is
+ * compiled, only the keywords present in each schema are checked, and references call the compiled
+ * plan of their target directly. Schemas with keywords the compiler does not handle (such as
+ * unevaluatedProperties and $recursiveAnchor) are checked by the validator.
+ *
+ * <p>Errors are not produced by the plan. validate() only runs the full validator for documents
+ * that fail, so for mostly valid documents the cost of reporting errors is rarely paid.
+ *
+ * <p>The plan is evaluated on the Java stack. Documents (or schemas) nested too deeply for the
+ * stack of the thread are left to the validator, which validates children from a work stack. A
+ * compiled schema can be used by many threads at once. Compiled plans are not used by validators
+ * with limits (such as setLimits() or setMaxDepth()), whose outcomes the plans cannot give.
+ */
+public class CompiledSchema {
+  private final Validator validator;
+  private final Schema schema;
+  // Null if the schema is nested too deeply to compile.
+  private final SchemaCompiler.Check check;
+
+  CompiledSchema(Validator validator, Schema schema) {
+    this.validator = validator;
+    this.schema = schema;
+    SchemaCompiler.Check check;
+    try {
+      check = new SchemaCompiler(validator).compile(schema);
+    } catch (StackOverflowError e) {
+      check = null;
+    }
+    this.check = check;
+  }
+
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Determines whether a document passes the schema. The result is the same as whether the
+   * validator reports any errors for the document.
+   */
+  public boolean isValid(Object document) {
+    Object adapted = validator.adapt(document);
+    if (!validator.isCompilable()) {
+      // The error filter or limits decide the outcome, so the validator is needed.
+      return validator.isValid(schema, adapted);
+    }
+    Boolean valid = test(adapted);
+    return valid == null ? validator.isValid(schema, adapted) : valid;
+  }
+
+  /**
+   * Validates a document, reporting the same errors as the validator. The errors are found by the
+   * validator, which is only run when the compiled plan finds the document invalid.
+   */
+  public void validate(Object document, Consumer<ValidationError> errorConsumer) {
+    Object adapted = validator.adapt(document);
+    if (validator.isCompilable() && Boolean.TRUE.equals(test(adapted))) {
+      return;
+    }
+    validator.validate(schema, adapted, errorConsumer);
+  }
+
+  /** Runs the plan, returning null if it could not be run to the end. */
+  private Boolean test(Object document) {
+    if (check == null) {
+      return null;
+    }
+    try {
+      return check.test(document);
+    } catch (StackOverflowError e) {
+      // The checks have no side effects, so the validator can start again.
+      return null;
+    }
+  }
+}
@@ -7,6 +7,11 @@ public class ConstError extends ValidationError {
     super(uri, document, schema);
   }
 
+  @Override
+  public String getKeyword() {
+    return "const";
+  }
+
   @Override
   public String getMessage() {
     return "Expected const: " + getSchema().getConst();
@@ -0,0 +1,108 @@
+package net.jimblackler.jsonschemafriend;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+
+public class ContentChecker {
+  // JsonFactory is thread-safe once configured, and is expensive to create, so one instance is
+  // shared for all content checks.
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  /**
+   * Checks a string against "contentEncoding" and "contentMediaType" values. The content is
+   * decoded and parsed as a stream; no decoded copy of the string or tree of the parsed document is
+   * built, so memory use does not depend on the size of the content.
+   *
+   * @param string The string to check.
+   * @param contentEncoding The content encoding, or null if there is none.
+   * @param contentMediaType The content media type, or null if there is none.
+   * @return null if the content is valid, otherwise a short description of the problem.
+   */
+  static String contentCheck(String string, String contentEncoding, String contentMediaType) {
+    boolean base64 = "base64".equals(contentEncoding);
+    boolean json = "application/json".equals(contentMediaType);
+    try {
+      if (base64) {
+        // The URL-safe decoder is used to match the behavior of previous versions.
+        try (InputStream inputStream =
+                 Base64.getUrlDecoder().wrap(new StringInputStream(string))) {
+          if (json) {
+            try (JsonParser parser = JSON_FACTORY.createParser(inputStream)) {
+              return checkJson(parser);
+            }
+          }
+          byte[] buffer = new byte[1024];
+          while (inputStream.read(buffer) != -1) {
+            // Decoding happens as a side effect of the read.
+          }
+        }
+      } else if (json) {
+        try (JsonParser parser = JSON_FACTORY.createParser(string)) {
+          return checkJson(parser);
+        }
+      }
+    } catch (JsonProcessingException e) {
+      return e.getMessage();
+    } catch (IOException e) {
+      // Any other exceptions come from the Base64 decoder.
+      return e.getMessage();
+    }
+    return null;
+  }
+
+  private static String checkJson(JsonParser parser) throws IOException {
+    // As with ObjectMapper.readValue(), the first value in the content is checked in full and any
+    // trailing content is ignored.
+    if (parser.nextToken() == null) {
+      return "No content";
+    }
+    parser.skipChildren();
+    return null;
+  }
+
+  /**
+   * An input stream of the characters of a string, each as a single byte. Intended for Base64
+   * content where all valid characters are ASCII. Characters outside the range of a byte are
+   * replaced with a character that the decoder will reject.
+   */
+  private static class StringInputStream extends InputStream {
+    private final String string;
+    private int position;
+
+    StringInputStream(String string) {
+      this.string = string;
+    }
+
+    @Override
+    public int read() {
+      if (position == string.length()) {
+        return -1;
+      }
+      return toByte(string.charAt(position++));
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      int remaining = string.length() - position;
+      if (remaining == 0) {
+        return -1;
+      }
+      int count = Math.min(length, remaining);
+      for (int idx = 0; idx != count; idx++) {
+        bytes[offset + idx] = (byte) toByte(string.charAt(position++));
+      }
+      return count;
+    }
+
+    private static int toByte(char c) {
+      return c > 0x7f ? '?' : c;
+    }
+  }
+}
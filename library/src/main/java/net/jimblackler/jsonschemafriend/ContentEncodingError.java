@@ -10,6 +10,11 @@ public class ContentEncodingError extends ValidationError {
     this.reason = reason;
   }
 
+  @Override
+  public String getKeyword() {
+    return "contentEncoding";
+  }
+
   @Override
   public String getMessage() {
     return "Content encoding failed on: " + getSchema().getContentEncoding()
@@ -13,6 +13,12 @@ public class DependencyError extends ValidationError {
     this.dependency = dependency;
   }
 
+  @Override
+  public String getKeyword() {
+    return MetaSchemaUris.DRAFT_2019_09.equals(getSchema().getMetaSchema()) ? "dependentRequired"
+                                                                            : "dependencies";
+  }
+
   @Override
   public String getMessage() {
     return "Missing dependency " + property + " -> " + dependency;
@@ -7,6 +7,11 @@ public class DisallowError extends ValidationError {
     super(uri, document, schema);
   }
 
+  @Override
+  public String getKeyword() {
+    return "disallow";
+  }
+
   @Override
   public String getMessage() {
     return "Disallow condition passed";
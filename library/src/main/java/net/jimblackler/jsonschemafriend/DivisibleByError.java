@@ -7,6 +7,11 @@ public class DivisibleByError extends ValidationError {
     super(uri, document, schema);
   }
 
+  @Override
+  public String getKeyword() {
+    return "divisibleBy";
+  }
+
   @Override
   public String getMessage() {
     return "Not divisible hy " + getSchema().getDivisibleBy();
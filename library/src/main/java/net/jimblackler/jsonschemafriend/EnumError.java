@@ -7,6 +7,11 @@ public class EnumError extends ValidationError {
     super(uri, document, schema);
   }
 
+  @Override
+  public String getKeyword() {
+    return "enum";
+  }
+
   @Override
   public String getMessage() {
     return "Object not in enums: " + getSchema().getEnums();
@@ -0,0 +1,58 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.util.List;
+
+/** The number of errors from one keyword of a schema at one location, in ErrorStatistics. */
+public class ErrorCount {
+  private final Schema schema;
+  private final String keyword;
+  private final String instanceLocation;
+  private final long count;
+  private final List<String> exemplars;
+
+  ErrorCount(Schema schema, String keyword, String instanceLocation, long count,
+      List<String> exemplars) {
+    this.schema = schema;
+    this.keyword = keyword;
+    this.instanceLocation = instanceLocation;
+    this.count = count;
+    this.exemplars = exemplars;
+  }
+
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /** The keyword of the errors; or null for errors from the schema as a whole. */
+  public String getKeyword() {
+    return keyword;
+  }
+
+  /** The location of the keyword in its schema, such as "#/properties/items/items/minimum". */
+  public String getKeywordLocation() {
+    String fragment = schema.getUri().getRawFragment();
+    return "#" + (fragment == null ? "" : fragment) + (keyword == null ? "" : "/" + keyword);
+  }
+
+  /**
+   * The location of the values of the errors in the documents, with the indices of arrays
+   * replaced by "*", such as "#/items/*&#47;price".
+   */
+  public String getInstanceLocation() {
+    return instanceLocation;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  /** A sample of the errors counted, as strings. */
+  public List<String> getExemplars() {
+    return exemplars;
+  }
+
+  @Override
+  public String toString() {
+    return instanceLocation + " " + (keyword == null ? schema.getUri() : keyword) + ": " + count;
+  }
+}
@@ -0,0 +1,179 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A consumer of validation errors that counts them, rather than keeping them, for monitoring of
+ * high-volume validation. Errors are counted by the schema and keyword they came from and the
+ * location in the document, with the indices of arrays replaced by "*"; so errors for the price
+ * of any item of an order are counted together, at "#/items/*&#47;price". For each count a few of
+ * the errors are kept as exemplars, as strings, chosen at random from all of the errors counted.
+ * Exemplars leave out the errors of the branches of anyOf and oneOf, to bound their size.
+ *
+ * <p>The memory used is bounded by the number of distinct counts, which is limited, and not by the
+ * number of errors. Statistics can be shared by validators on different threads. The errors of
+ * the branches of anyOf and oneOf are not counted separately.
+ */
+public class ErrorStatistics implements Consumer<ValidationError> {
+  private final int maxCounts;
+  private final int exemplars;
+  private final Map<Key, Counter> counters = new ConcurrentHashMap<>();
+  private final LongAdder overflow = new LongAdder();
+
+  /** Creates statistics with up to 10000 counts, and three exemplars for each count. */
+  public ErrorStatistics() {
+    this(10000, 3);
+  }
+
+  /**
+   * @param maxCounts The maximum number of distinct counts. Errors that would need a new count
+   *     after this are only counted by getOverflowCount().
+   * @param exemplars The number of errors to keep as exemplars for each count.
+   */
+  public ErrorStatistics(int maxCounts, int exemplars) {
+    this.maxCounts = maxCounts;
+    this.exemplars = exemplars;
+  }
+
+  @Override
+  public void accept(ValidationError error) {
+    Key key = new Key(error.getSchema(), error.getKeyword(), instancePattern(error));
+    Counter counter = counters.get(key);
+    if (counter == null) {
+      if (counters.size() >= maxCounts) {
+        overflow.increment();
+        return;
+      }
+      counter = counters.computeIfAbsent(key, k -> new Counter());
+    }
+    counter.add(error, exemplars);
+  }
+
+  /** Returns the counts, with the most frequent first. */
+  public List<ErrorCount> getCounts() {
+    List<ErrorCount> counts = new ArrayList<>();
+    for (Map.Entry<Key, Counter> entry : counters.entrySet()) {
+      Key key = entry.getKey();
+      Counter counter = entry.getValue();
+      List<String> samples;
+      synchronized (counter) {
+        samples = new ArrayList<>(counter.samples);
+      }
+      counts.add(new ErrorCount(key.schema, key.keyword, key.instanceLocation,
+          counter.count.get(), Collections.unmodifiableList(samples)));
+    }
+    counts.sort((a, b) -> Long.compare(b.getCount(), a.getCount()));
+    return counts;
+  }
+
+  /** The number of errors that were not counted because the limit on counts had been reached. */
+  public long getOverflowCount() {
+    return overflow.sum();
+  }
+
+  /** Removes all counts. Errors reported concurrently with a reset may not be counted. */
+  public void reset() {
+    counters.clear();
+    overflow.reset();
+  }
+
+  /**
+   * Returns the location of the value of an error in the document, as a URI fragment, with the
+   * indices of arrays replaced by "*".
+   */
+  private static String instancePattern(ValidationError error) {
+    String fragment = error.getUri().getRawFragment();
+    if (fragment == null || fragment.isEmpty()) {
+      return "#";
+    }
+    StringBuilder builder = new StringBuilder("#");
+    Object object = error.getDocument();
+    String[] segments = fragment.split("/", -1);
+    for (int idx = 1; idx < segments.length; idx++) {
+      String segment = segments[idx];
+      builder.append('/');
+      if (object instanceof List) {
+        builder.append('*');
+        List<?> list = (List<?>) object;
+        object = null;
+        try {
+          int index = Integer.parseInt(segment);
+          if (index >= 0 && index < list.size()) {
+            object = list.get(index);
+          }
+        } catch (NumberFormatException e) {
+          // Left as null; the rest of the path is kept as it is.
+        }
+        continue;
+      }
+      builder.append(segment);
+      if (object instanceof Map) {
+        object = ((Map<?, ?>) object).get(PathUtils.decodeToken(segment));
+      } else {
+        object = null;
+      }
+    }
+    return builder.toString();
+  }
+
+  private static class Key {
+    private final Schema schema;
+    private final String keyword;
+    private final String instanceLocation;
+
+    Key(Schema schema, String keyword, String instanceLocation) {
+      this.schema = schema;
+      this.keyword = keyword;
+      this.instanceLocation = instanceLocation;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return schema.equals(other.schema) && instanceLocation.equals(other.instanceLocation)
+          && (keyword == null ? other.keyword == null : keyword.equals(other.keyword));
+    }
+
+    @Override
+    public int hashCode() {
+      return (schema.hashCode() * 31 + (keyword == null ? 0 : keyword.hashCode())) * 31
+          + instanceLocation.hashCode();
+    }
+  }
+
+  /** A count of errors, with a sample of them chosen by reservoir sampling. */
+  private static class Counter {
+    final AtomicLong count = new AtomicLong();
+    final List<String> samples = new ArrayList<>();
+
+    void add(ValidationError error, int exemplars) {
+      long number = count.getAndIncrement();
+      if (number < exemplars) {
+        synchronized (this) {
+          samples.add(error.toShortString());
+        }
+        return;
+      }
+      long slot = ThreadLocalRandom.current().nextLong(number + 1);
+      if (slot < exemplars) {
+        String sample = error.toShortString();
+        synchronized (this) {
+          if (slot < samples.size()) {
+            samples.set((int) slot, sample);
+          }
+        }
+      }
+    }
+  }
+}
@@ -7,6 +7,11 @@ public class ExclusiveMaximumError extends ValidationError {
     super(uri, document, schema);
   }
 
+  @Override
+  public String getKeyword() {
+    return "exclusiveMaximum";
+  }
+
   @Override
   public String getMessage() {
     return "Greater than or equal to exclusive maximum: " + getSchema().getExclusiveMaximum();
@@ -7,6 +7,11 @@ public class ExclusiveMinimumError extends ValidationError {
     super(uri, document, schema);
   }
 
+  @Override
+  public String getKeyword() {
+    return "exclusiveMinimum";
+  }
+
   @Override
   public String getMessage() {
     return "Less than or equal to exclusive minimum: " + getSchema().getExclusiveMinimum();
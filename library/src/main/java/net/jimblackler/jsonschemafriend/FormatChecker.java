@@ -183,7 +183,7 @@ public class FormatChecker {
           break;
         case "regex":
           try {
-            regExPatternSupplier.newPattern(string);
+            CachedRegExPatternSupplier.uncached(regExPatternSupplier).newPattern(string);
           } catch (InvalidRegexException ex) {
             return ex.getMessage();
           }
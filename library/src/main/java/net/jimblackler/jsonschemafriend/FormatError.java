@@ -10,6 +10,11 @@ public class FormatError extends ValidationError {
     this.reason = reason;
   }
 
+  @Override
+  public String getKeyword() {
+    return "format";
+  }
+
   @Override
   public String getMessage() {
     return "Not compliant with format: " + getSchema().getFormat() + ". Reason: " + reason;
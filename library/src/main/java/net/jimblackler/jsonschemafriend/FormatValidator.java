@@ -0,0 +1,15 @@
+package net.jimblackler.jsonschemafriend;
+
+/**
+ * Checks strings against a "format" value. Implementations can be added to a SchemaStore to add
+ * custom formats, or to replace the checks built into the library.
+ */
+public interface FormatValidator {
+  /**
+   * Checks a string against the format.
+   *
+   * @param string The string to check.
+   * @return null if the string is compliant, otherwise a short description of the problem.
+   */
+  String check(String string);
+}
@@ -0,0 +1,85 @@
+package net.jimblackler.jsonschemafriend;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import java.math.BigInteger;
+import java.util.Iterator;
+
+/** Reads Gson JsonElement trees. */
+public class GsonNodeAdapter implements NodeAdapter {
+  @Override
+  public boolean handles(Object node) {
+    return node instanceof JsonElement;
+  }
+
+  @Override
+  public boolean isObject(Object node) {
+    return ((JsonElement) node).isJsonObject();
+  }
+
+  @Override
+  public boolean isArray(Object node) {
+    return ((JsonElement) node).isJsonArray();
+  }
+
+  @Override
+  public int size(Object node) {
+    JsonElement element = (JsonElement) node;
+    return element.isJsonObject() ? element.getAsJsonObject().size()
+                                  : element.getAsJsonArray().size();
+  }
+
+  @Override
+  public boolean has(Object node, String name) {
+    return ((JsonElement) node).getAsJsonObject().has(name);
+  }
+
+  @Override
+  public Object get(Object node, String name) {
+    return ((JsonElement) node).getAsJsonObject().get(name);
+  }
+
+  @Override
+  public Iterator<String> keys(Object node) {
+    return ((JsonElement) node).getAsJsonObject().keySet().iterator();
+  }
+
+  @Override
+  public Object get(Object node, int index) {
+    return ((JsonElement) node).getAsJsonArray().get(index);
+  }
+
+  @Override
+  public Object scalar(Object node) {
+    JsonElement element = (JsonElement) node;
+    if (!element.isJsonPrimitive()) {
+      return null;
+    }
+    JsonPrimitive primitive = element.getAsJsonPrimitive();
+    if (primitive.isBoolean()) {
+      return primitive.getAsBoolean();
+    }
+    if (primitive.isNumber()) {
+      return number(primitive.getAsString());
+    }
+    return primitive.getAsString();
+  }
+
+  /**
+   * Gson numbers parsed from text are held as strings until read, so they are converted to the
+   * types Jackson would give, which tell integers apart from other numbers.
+   */
+  private static Number number(String text) {
+    if (text.indexOf('.') != -1 || text.indexOf('e') != -1 || text.indexOf('E') != -1) {
+      return Double.valueOf(text);
+    }
+    BigInteger value = new BigInteger(text);
+    if (value.bitLength() < 32) {
+      return value.intValue();
+    }
+    if (value.bitLength() < 64) {
+      return value.longValue();
+    }
+    return value;
+  }
+}
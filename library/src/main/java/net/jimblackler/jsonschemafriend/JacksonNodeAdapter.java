@@ -0,0 +1,62 @@
+package net.jimblackler.jsonschemafriend;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.Iterator;
+
+/** Reads Jackson JsonNode trees. */
+public class JacksonNodeAdapter implements NodeAdapter {
+  @Override
+  public boolean handles(Object node) {
+    return node instanceof JsonNode;
+  }
+
+  @Override
+  public boolean isObject(Object node) {
+    return ((JsonNode) node).isObject();
+  }
+
+  @Override
+  public boolean isArray(Object node) {
+    return ((JsonNode) node).isArray();
+  }
+
+  @Override
+  public int size(Object node) {
+    return ((JsonNode) node).size();
+  }
+
+  @Override
+  public boolean has(Object node, String name) {
+    return ((JsonNode) node).has(name);
+  }
+
+  @Override
+  public Object get(Object node, String name) {
+    return ((JsonNode) node).get(name);
+  }
+
+  @Override
+  public Iterator<String> keys(Object node) {
+    return ((JsonNode) node).fieldNames();
+  }
+
+  @Override
+  public Object get(Object node, int index) {
+    return ((JsonNode) node).get(index);
+  }
+
+  @Override
+  public Object scalar(Object node) {
+    JsonNode jsonNode = (JsonNode) node;
+    if (jsonNode.isNull() || jsonNode.isMissingNode()) {
+      return null;
+    }
+    if (jsonNode.isNumber()) {
+      return jsonNode.numberValue();
+    }
+    if (jsonNode.isBoolean()) {
+      return jsonNode.booleanValue();
+    }
+    return jsonNode.asText();
+  }
+}
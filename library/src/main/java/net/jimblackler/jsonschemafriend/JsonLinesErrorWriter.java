@@ -0,0 +1,105 @@
+package net.jimblackler.jsonschemafriend;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A consumer of validation errors that writes each error as a line of JSON (JSON Lines) as it is
+ * reported, so errors are not collected in memory however many there are. Each line is an object
+ * with the keyword, the locations in the schema and the document, and the message of an error.
+ * The errors of the branches of anyOf and oneOf are written as an array of arrays of errors, under
+ * "errors".
+ *
+ * <p>Output is buffered; it is written when the writer is flushed or closed. Closing the writer
+ * closes the underlying stream. Errors writing the output are thrown as UncheckedIOException.
+ */
+public class JsonLinesErrorWriter implements Consumer<ValidationError>, Flushable, Closeable {
+  // JsonFactory is thread-safe once configured, so one instance is shared by all writers.
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private final JsonGenerator generator;
+
+  public JsonLinesErrorWriter(Writer writer) throws IOException {
+    this(JSON_FACTORY.createGenerator(writer));
+  }
+
+  public JsonLinesErrorWriter(OutputStream outputStream) throws IOException {
+    this(JSON_FACTORY.createGenerator(outputStream, JsonEncoding.UTF8));
+  }
+
+  public JsonLinesErrorWriter(JsonGenerator generator) {
+    this.generator = generator;
+    // Lines are ended explicitly, rather than separated by the generator.
+    generator.setRootValueSeparator(null);
+  }
+
+  @Override
+  public void accept(ValidationError error) {
+    try {
+      writeError(error);
+      generator.writeRaw('\n');
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    generator.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    generator.close();
+  }
+
+  private void writeError(ValidationError error) throws IOException {
+    generator.writeStartObject();
+    String keyword = error.getKeyword();
+    if (keyword != null) {
+      generator.writeStringField("keyword", keyword);
+    }
+    URI schemaUri = error.getSchema().getUri();
+    String fragment = schemaUri.getRawFragment();
+    generator.writeStringField("keywordLocation",
+        "#" + (fragment == null ? "" : fragment) + (keyword == null ? "" : "/" + keyword));
+    generator.writeStringField("schema", schemaUri.toString());
+    String instanceFragment = error.getUri().getRawFragment();
+    generator.writeStringField(
+        "instanceLocation", "#" + (instanceFragment == null ? "" : instanceFragment));
+    List<List<ValidationError>> branchErrors = null;
+    if (error instanceof AnyOfError) {
+      // The messages of these errors include all the errors of the branches, which are written
+      // separately instead.
+      generator.writeStringField("error", "All anyOf failed");
+      branchErrors = ((AnyOfError) error).getAllErrors();
+    } else if (error instanceof OneOfError && ((OneOfError) error).getPassed().isEmpty()) {
+      generator.writeStringField("error", "No oneOf passed");
+      branchErrors = ((OneOfError) error).getAllErrors();
+    } else {
+      generator.writeStringField("error", error.getMessage());
+    }
+    if (branchErrors != null) {
+      generator.writeArrayFieldStart("errors");
+      for (List<ValidationError> errors : branchErrors) {
+        generator.writeStartArray();
+        for (ValidationError branchError : errors) {
+          writeError(branchError);
+        }
+        generator.writeEndArray();
+      }
+      generator.writeEndArray();
+    }
+    generator.writeEndObject();
+  }
+}
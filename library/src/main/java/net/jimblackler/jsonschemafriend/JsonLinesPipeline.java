@@ -0,0 +1,163 @@
+package net.jimblackler.jsonschemafriend;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Validates the records of a JSON Lines document, for Validator.validateJsonLines(). Lines are
+ * split from the input on the calling thread, and parsed and validated as tasks on an executor.
+ * At most a fixed number of records are in flight at once; further lines are only read as the
+ * results are consumed, in the order of the lines.
+ */
+class JsonLinesPipeline implements Iterator<ValidationResult> {
+  // ObjectMapper is thread-safe once configured, so one instance is shared by all tasks.
+  private static final ObjectMapper OBJECT_MAPPER =
+      new ObjectMapper().enable(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+
+  private final Validator validator;
+  private final Schema schema;
+  private final InputStream inputStream;
+  private final Executor executor;
+  private final int readAhead;
+  private final Deque<CompletableFuture<ValidationResult>> pending = new ArrayDeque<>();
+  private final byte[] buffer = new byte[1 << 16];
+  private int position;
+  private int limit;
+  private long bufferOffset;
+  private long lineNumber;
+  private boolean endOfInput;
+
+  JsonLinesPipeline(Validator validator, Schema schema, InputStream inputStream,
+      Executor executor, int readAhead) {
+    this.validator = validator;
+    this.schema = schema;
+    this.inputStream = inputStream;
+    this.executor = executor;
+    this.readAhead = readAhead;
+  }
+
+  @Override
+  public boolean hasNext() {
+    fill();
+    return !pending.isEmpty();
+  }
+
+  @Override
+  public ValidationResult next() {
+    fill();
+    if (pending.isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    return pending.remove().join();
+  }
+
+  /** Reads and submits lines until the read-ahead limit is reached or the input ends. */
+  private void fill() {
+    try {
+      while (!endOfInput && pending.size() < readAhead) {
+        submitLine();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void submitLine() throws IOException {
+    long offset = bufferOffset + position;
+    byte[] line = readLine();
+    if (line == null) {
+      endOfInput = true;
+      return;
+    }
+    lineNumber++;
+    int length = line.length;
+    if (length > 0 && line[length - 1] == '\r') {
+      length--;
+    }
+    if (isBlank(line, length)) {
+      return;
+    }
+    long number = lineNumber;
+    int recordLength = length;
+    pending.add(CompletableFuture.supplyAsync(
+        () -> validate(number, offset, line, recordLength), executor));
+  }
+
+  private ValidationResult validate(long lineNumber, long byteOffset, byte[] line, int length) {
+    Object document;
+    try {
+      document = OBJECT_MAPPER.readValue(line, 0, length, Object.class);
+    } catch (JsonProcessingException e) {
+      return new ValidationResult(lineNumber - 1, byteOffset, null, Collections.emptyList(), false,
+          e.getOriginalMessage());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    List<ValidationError> errors = new ArrayList<>();
+    validator.validate(schema, document, errors::add);
+    boolean complete = errors.isEmpty()
+        || !(errors.get(errors.size() - 1) instanceof LimitExceededError);
+    return new ValidationResult(lineNumber - 1, byteOffset, document, errors, complete, null);
+  }
+
+  /**
+   * Reads the bytes of the next line, without the line feed.
+   *
+   * @return The line, or null at the end of the input.
+   */
+  private byte[] readLine() throws IOException {
+    byte[] line = null;
+    int lineLength = 0;
+    while (true) {
+      if (position == limit) {
+        bufferOffset += limit;
+        position = 0;
+        limit = Math.max(0, inputStream.read(buffer));
+        if (limit == 0) {
+          return line == null ? null : Arrays.copyOf(line, lineLength);
+        }
+      }
+      int end = position;
+      while (end != limit && buffer[end] != '\n') {
+        end++;
+      }
+      int count = end - position;
+      if (line == null) {
+        line = new byte[Math.max(count, 16)];
+      } else if (lineLength + count > line.length) {
+        line = Arrays.copyOf(line, Math.max(lineLength + count, line.length * 2));
+      }
+      System.arraycopy(buffer, position, line, lineLength, count);
+      lineLength += count;
+      position = end;
+      if (end != limit) {
+        position++;
+        return Arrays.copyOf(line, lineLength);
+      }
+    }
+  }
+
+  private static boolean isBlank(byte[] line, int length) {
+    for (int idx = 0; idx != length; idx++) {
+      byte b = line[idx];
+      if (b != ' ' && b != '\t' && b != '\r') {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,42 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.net.URI;
+
+/**
+ * Reported when a validation was ended before it was complete, because a ValidationLimits limit
+ * or a depth limit of the Validator was exceeded, or the validation was cancelled. The error
+ * locates the evaluation in progress when validation ended.
+ */
+public class LimitExceededError extends ValidationError {
+  /** The reasons a validation can be ended early. */
+  public enum Limit {
+    DEPTH("Maximum validation depth exceeded"),
+    STACK_DEPTH("Maximum stack depth exceeded"),
+    NODES("Maximum number of evaluations exceeded"),
+    ERRORS("Maximum number of errors exceeded"),
+    TIME("Validation timed out"),
+    CANCELLED("Validation cancelled");
+
+    private final String message;
+
+    Limit(String message) {
+      this.message = message;
+    }
+  }
+
+  private final Limit limit;
+
+  public LimitExceededError(URI uri, Object document, Schema schema, Limit limit) {
+    super(uri, document, schema);
+    this.limit = limit;
+  }
+
+  public Limit getLimit() {
+    return limit;
+  }
+
+  @Override
+  public String getMessage() {
+    return limit.message;
+  }
+}
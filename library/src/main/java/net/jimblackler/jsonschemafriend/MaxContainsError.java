@@ -7,6 +7,11 @@ public class MaxContainsError extends ValidationError {
     super(uri, document, schema);
   }
 
+  @Override
+  public String getKeyword() {
+    return "maxContains";
+  }
+
   @Override
   public String getMessage() {
     return "Too many elements in the array matched contains";
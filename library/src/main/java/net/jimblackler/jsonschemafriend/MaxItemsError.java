@@ -7,6 +7,11 @@ public class MaxItemsError extends ValidationError {
     super(uri, document, schema);
   }
 
+  @Override
+  public String getKeyword() {
+    return "maxItems";
+  }
+
   @Override
   public String getMessage() {
     return "Above max items: " + getSchema().getMaxItems();
@@ -7,6 +7,11 @@ public class MaxLengthError extends ValidationError {
     super(uri, document, schema);
   }
 
+  @Override
+  public String getKeyword() {
+    return "maxLength";
+  }
+
   @Override
   public String getMessage() {
     return "Greater than maxLength: " + getSchema().getMaxLength();
@@ -7,6 +7,11 @@ public class MaxPropertiesError extends ValidationError {
     super(uri, document, schema);
   }
 
+  @Override
+  public String getKeyword() {
+    return "maxProperties";
+  }
+
   @Override
   public String getMessage() {
     return "Too many properties";
@@ -7,6 +7,11 @@ public class MaximumError extends ValidationError {
     super(uri, document, schema);
   }
 
+  @Override
+  public String getKeyword() {
+    return "maximum";
+  }
+
   @Override
   public String getMessage() {
     return "Greater than maximum: " + getSchema().getMaximum()
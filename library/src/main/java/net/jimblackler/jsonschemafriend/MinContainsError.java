@@ -7,6 +7,11 @@ public class MinContainsError extends ValidationError {
     super(uri, document, schema);
   }
 
+  @Override
+  public String getKeyword() {
+    return "minContains";
+  }
+
   @Override
   public String getMessage() {
     return "Too few elements in the array matched contains";
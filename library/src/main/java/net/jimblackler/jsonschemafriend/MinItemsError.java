@@ -7,6 +7,11 @@ public class MinItemsError extends ValidationError {
     super(uri, document, schema);
   }
 
+  @Override
+  public String getKeyword() {
+    return "minItems";
+  }
+
   @Override
   public String getMessage() {
     return "Below min items: " + getSchema().getMinItems();
@@ -7,6 +7,11 @@ public class MinLengthError extends ValidationError {
     super(uri, document, schema);
   }
 
+  @Override
+  public String getKeyword() {
+    return "minLength";
+  }
+
   @Override
   public String getMessage() {
     return "Shorter than minLength: " + getSchema().getMinLength();
@@ -7,6 +7,11 @@ public class MinPropertiesError extends ValidationError {
     super(uri, document, schema);
   }
 
+  @Override
+  public String getKeyword() {
+    return "minProperties";
+  }
+
   @Override
   public String getMessage() {
     return "Too few properties";
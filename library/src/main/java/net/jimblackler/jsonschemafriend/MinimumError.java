@@ -7,6 +7,11 @@ public class MinimumError extends ValidationError {
     super(uri, document, schema);
   }
 
+  @Override
+  public String getKeyword() {
+    return "minimum";
+  }
+
   @Override
   public String getMessage() {
     return "Less than minimum: " + getSchema().getMinimum()
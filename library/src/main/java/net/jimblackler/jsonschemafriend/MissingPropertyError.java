@@ -10,6 +10,11 @@ public class MissingPropertyError extends ValidationError {
     this.property = property;
   }
 
+  @Override
+  public String getKeyword() {
+    return "required";
+  }
+
   @Override
   public String getMessage() {
     return "Missing property " + property;
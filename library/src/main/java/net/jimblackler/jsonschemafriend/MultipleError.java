@@ -7,6 +7,11 @@ public class MultipleError extends ValidationError {
     super(uri, document, schema);
   }
 
+  @Override
+  public String getKeyword() {
+    return "multipleOf";
+  }
+
   @Override
   public String getMessage() {
     return "Not a multiple of " + getSchema().getMultipleOf();
@@ -0,0 +1,41 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.util.Iterator;
+
+/**
+ * Gives the Validator access to the nodes of a JSON tree from a third-party library, so documents
+ * parsed by that library can be validated as they are, without first being converted to Maps and
+ * Lists. Nodes are read lazily as the validator reaches them.
+ *
+ * <p>Adapters for Jackson, Gson and org.json trees are provided, and used automatically when the
+ * library is present, as is one for plain Java objects. Others can be added with
+ * Validator.addNodeAdapter().
+ */
+public interface NodeAdapter {
+  /** Returns true if the object is a node of the tree type read by this adapter. */
+  boolean handles(Object node);
+
+  boolean isObject(Object node);
+
+  boolean isArray(Object node);
+
+  /** Returns the number of properties of an object node or items of an array node. */
+  int size(Object node);
+
+  boolean has(Object node, String name);
+
+  /** Returns the value of a property of an object node. */
+  Object get(Object node, String name);
+
+  /** Returns the names of the properties of an object node, in document order. */
+  Iterator<String> keys(Object node);
+
+  /** Returns an item of an array node. */
+  Object get(Object node, int index);
+
+  /**
+   * Returns the value of a node that is not an object or an array, as a String, Number, Boolean or
+   * null.
+   */
+  Object scalar(Object node);
+}
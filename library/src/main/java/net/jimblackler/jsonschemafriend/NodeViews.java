@@ -0,0 +1,258 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Presents the nodes of third-party JSON trees as the Maps, Lists and scalars the validator reads.
+ * The views are created lazily as the validator reaches each node, and hold on to the views of the
+ * children they have returned, so that each part of the document has one identity during a
+ * validation. Parallel validation reads the same views from several threads, so the children are
+ * published through concurrent structures.
+ */
+class NodeViews {
+  private NodeViews() {}
+
+  /** The adapters for the JSON libraries present at runtime. */
+  static List<NodeAdapter> defaultAdapters() {
+    List<NodeAdapter> adapters = new ArrayList<>();
+    adapters.add(new JacksonNodeAdapter());
+    if (isPresent("com.google.gson.JsonElement")) {
+      adapters.add(new GsonNodeAdapter());
+    }
+    if (isPresent("org.json.JSONObject")) {
+      adapters.add(new OrgJsonNodeAdapter());
+    }
+    // Reads any other object, so it comes last.
+    adapters.add(new BeanNodeAdapter());
+    return adapters;
+  }
+
+  private static boolean isPresent(String className) {
+    try {
+      Class.forName(className, false, NodeViews.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns a view of a document for the validator. Documents made only of Maps, Lists and
+   * scalars, and documents that no adapter handles, are returned as they are. Other nodes are read
+   * by the first adapter that handles them, so Maps and Lists of beans, or beans holding Jackson
+   * trees, are read as a whole.
+   */
+  static Object adapt(Object document, List<NodeAdapter> adapters) {
+    if (isNative(document)) {
+      return document;
+    }
+    return wrap(adapters, document, null);
+  }
+
+  private static boolean isScalar(Object node) {
+    return node == null || node instanceof String || node instanceof Number
+        || node instanceof Boolean;
+  }
+
+  /**
+   * Determines whether a document is made only of Maps with String keys, Lists and scalars. The
+   * document is walked with a stack rather than recursion, so that deeply nested documents can be
+   * checked.
+   */
+  private static boolean isNative(Object document) {
+    if (isScalar(document)) {
+      return true;
+    }
+    if (!(document instanceof Map) && !(document instanceof List)) {
+      return false;
+    }
+    Deque<Iterator<?>> stack = new ArrayDeque<>();
+    stack.push(iterator(document));
+    while (!stack.isEmpty()) {
+      Iterator<?> iterator = stack.peek();
+      if (!iterator.hasNext()) {
+        stack.pop();
+        continue;
+      }
+      Object value = iterator.next();
+      if (value instanceof Map.Entry) {
+        Map.Entry<?, ?> entry = (Map.Entry<?, ?>) value;
+        if (!(entry.getKey() instanceof String)) {
+          return false;
+        }
+        value = entry.getValue();
+      }
+      if (value instanceof Map || value instanceof List) {
+        stack.push(iterator(value));
+      } else if (!isScalar(value)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Iterator<?> iterator(Object container) {
+    return container instanceof Map ? ((Map<?, ?>) container).entrySet().iterator()
+                                    : ((List<?>) container).iterator();
+  }
+
+  /**
+   * Returns the view of a node, read by the first adapter that handles it. Scalars are returned as
+   * their values, and nodes that no adapter handles are returned as they are.
+   *
+   * @param parent The node of the view the node was read from, or null for the document.
+   */
+  private static Object wrap(List<NodeAdapter> adapters, Object node, Ancestor parent) {
+    if (isScalar(node)) {
+      return node;
+    }
+    NodeAdapter adapter = null;
+    for (NodeAdapter candidate : adapters) {
+      if (candidate.handles(node)) {
+        adapter = candidate;
+        break;
+      }
+    }
+    if (adapter == null) {
+      return node;
+    }
+    boolean object = adapter.isObject(node);
+    if (!object && !adapter.isArray(node)) {
+      return adapter.scalar(node);
+    }
+    for (Ancestor ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+      if (ancestor.node == node) {
+        // An object graph with a cycle has no JSON form. The node is passed on as it is, and the
+        // validator reports it as an unexpected type, rather than following the cycle forever.
+        return node;
+      }
+    }
+    Ancestor ancestor = new Ancestor(node, parent);
+    return object ? new ObjectView(adapters, adapter, ancestor)
+                  : new ArrayView(adapters, adapter, ancestor);
+  }
+
+  /** A node with a view, linked to the nodes of the views above it. */
+  private static class Ancestor {
+    final Object node;
+    final Ancestor parent;
+
+    Ancestor(Object node, Ancestor parent) {
+      this.node = node;
+      this.parent = parent;
+    }
+  }
+
+  private static class ObjectView extends AbstractMap<String, Object> {
+    private final List<NodeAdapter> adapters;
+    private final NodeAdapter adapter;
+    private final Object node;
+    private final Ancestor ancestor;
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+
+    ObjectView(List<NodeAdapter> adapters, NodeAdapter adapter, Ancestor ancestor) {
+      this.adapters = adapters;
+      this.adapter = adapter;
+      this.node = ancestor.node;
+      this.ancestor = ancestor;
+    }
+
+    @Override
+    public int size() {
+      return adapter.size(node);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return key instanceof String && adapter.has(node, (String) key);
+    }
+
+    @Override
+    public Object get(Object key) {
+      if (!containsKey(key)) {
+        return null;
+      }
+      // Null values are not stored by ConcurrentHashMap, and are read again each time.
+      return values.computeIfAbsent(
+          (String) key, name -> wrap(adapters, adapter.get(node, name), ancestor));
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      return new AbstractSet<Entry<String, Object>>() {
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+          Iterator<String> keys = adapter.keys(node);
+          return new Iterator<Entry<String, Object>>() {
+            @Override
+            public boolean hasNext() {
+              return keys.hasNext();
+            }
+
+            @Override
+            public Entry<String, Object> next() {
+              String key = keys.next();
+              return new SimpleImmutableEntry<>(key, get(key));
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return ObjectView.this.size();
+        }
+      };
+    }
+  }
+
+  private static class ArrayView extends AbstractList<Object> implements RandomAccess {
+    // Marks the items not yet read, as null is a valid item.
+    private static final Object UNREAD = new Object();
+
+    private final List<NodeAdapter> adapters;
+    private final NodeAdapter adapter;
+    private final Object node;
+    private final Ancestor ancestor;
+    private final AtomicReferenceArray<Object> items;
+
+    ArrayView(List<NodeAdapter> adapters, NodeAdapter adapter, Ancestor ancestor) {
+      this.adapters = adapters;
+      this.adapter = adapter;
+      this.node = ancestor.node;
+      this.ancestor = ancestor;
+      int size = adapter.size(node);
+      items = new AtomicReferenceArray<>(size);
+      for (int idx = 0; idx != size; idx++) {
+        items.set(idx, UNREAD);
+      }
+    }
+
+    @Override
+    public int size() {
+      return items.length();
+    }
+
+    @Override
+    public Object get(int index) {
+      Object item = items.get(index);
+      if (item == UNREAD) {
+        // Two threads may wrap the same item; the first to be stored is kept.
+        items.compareAndSet(index, UNREAD, wrap(adapters, adapter.get(node, index), ancestor));
+        item = items.get(index);
+      }
+      return item;
+    }
+  }
+}
@@ -7,6 +7,11 @@ public class NotError extends ValidationError {
     super(uri, document, schema);
   }
 
+  @Override
+  public String getKeyword() {
+    return "not";
+  }
+
   @Override
   public String getMessage() {
     return "Not condition passed";
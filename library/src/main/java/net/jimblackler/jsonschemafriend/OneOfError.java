@@ -24,6 +24,11 @@ public class OneOfError extends ValidationError {
     return passed;
   }
 
+  @Override
+  public String getKeyword() {
+    return "oneOf";
+  }
+
   @Override
   public String getMessage() {
     if (passed.isEmpty()) {
@@ -35,4 +40,9 @@ public class OneOfError extends ValidationError {
               .map(schema -> schema.getUri().toString())
               .collect(Collectors.joining(", "));
   }
+
+  @Override
+  String getShortMessage() {
+    return passed.isEmpty() ? "No oneOf passed" : getMessage();
+  }
 }
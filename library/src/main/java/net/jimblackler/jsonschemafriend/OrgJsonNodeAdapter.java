@@ -0,0 +1,54 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.util.Iterator;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/** Reads org.json JSONObject and JSONArray trees. */
+public class OrgJsonNodeAdapter implements NodeAdapter {
+  @Override
+  public boolean handles(Object node) {
+    return node instanceof JSONObject || node instanceof JSONArray || node == JSONObject.NULL;
+  }
+
+  @Override
+  public boolean isObject(Object node) {
+    return node instanceof JSONObject;
+  }
+
+  @Override
+  public boolean isArray(Object node) {
+    return node instanceof JSONArray;
+  }
+
+  @Override
+  public int size(Object node) {
+    return node instanceof JSONObject ? ((JSONObject) node).length() : ((JSONArray) node).length();
+  }
+
+  @Override
+  public boolean has(Object node, String name) {
+    return ((JSONObject) node).has(name);
+  }
+
+  @Override
+  public Object get(Object node, String name) {
+    return ((JSONObject) node).opt(name);
+  }
+
+  @Override
+  public Iterator<String> keys(Object node) {
+    return ((JSONObject) node).keys();
+  }
+
+  @Override
+  public Object get(Object node, int index) {
+    return ((JSONArray) node).opt(index);
+  }
+
+  @Override
+  public Object scalar(Object node) {
+    // Strings, numbers and booleans are held as the Java types the validator reads.
+    return node == JSONObject.NULL ? null : node;
+  }
+}
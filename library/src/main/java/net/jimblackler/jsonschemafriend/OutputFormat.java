@@ -0,0 +1,19 @@
+package net.jimblackler.jsonschemafriend;
+
+/**
+ * The output formats of JSON Schema 2019-09, for Validator.validateWithOutput(). See
+ * https://json-schema.org/draft/2019-09/json-schema-core.html#rfc.section.10
+ */
+public enum OutputFormat {
+  /** Only whether the document passed. No errors are created. */
+  FLAG,
+  /** A flat list of the errors. */
+  BASIC,
+  /**
+   * The errors arranged by the schemas they came from, with the errors of the branches of anyOf
+   * and oneOf nested under them. Units with a single child are replaced by the child.
+   */
+  DETAILED,
+  /** As DETAILED, but errors are always grouped under a unit for the schema they came from. */
+  VERBOSE
+}
@@ -1,10 +1,13 @@
 package net.jimblackler.jsonschemafriend;
 
 import com.fasterxml.jackson.core.JsonPointer;
+import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
@@ -54,28 +57,73 @@ public class PathUtils {
     return queryFrom(jsonPointer, document);
   }
 
-  private static Object queryFrom(JsonPointer jsonPointer, Object object)
-      throws MissingPathException {
-    if (jsonPointer.matches()) {
-      return object;
+  /**
+   * Returns a copy of a document holding only the value at a path and the arrays and objects that
+   * contain it, so that the rest of the document need not be retained. The path resolves in the
+   * copy to the same value. Other items of the arrays are null, and other properties are absent.
+   */
+  static Object extractPath(Object document, String path) throws MissingPathException {
+    if (path == null || path.isEmpty()) {
+      return document;
     }
-    if (object instanceof List) {
-      int matchingIndex = jsonPointer.getMatchingIndex();
-      List<Object> list = (List<Object>) object;
-      if (matchingIndex < 0 || matchingIndex >= list.size()) {
+    JsonPointer jsonPointer = JsonPointer.compile(path.replace(ESCAPED_EMPTY, ""));
+    List<Object> steps = new ArrayList<>();
+    Object object = document;
+    while (!jsonPointer.matches()) {
+      if (object instanceof List) {
+        int matchingIndex = jsonPointer.getMatchingIndex();
+        List<Object> list = (List<Object>) object;
+        if (matchingIndex < 0 || matchingIndex >= list.size()) {
+          throw new MissingPathException(jsonPointer.toString());
+        }
+        steps.add(matchingIndex);
+        object = list.get(matchingIndex);
+      } else if (object instanceof Map) {
+        Map<String, Object> map = (Map<String, Object>) object;
+        String property = URLDecoder.decode(jsonPointer.getMatchingProperty());
+        if (!map.containsKey(property)) {
+          throw new MissingPathException(jsonPointer.toString());
+        }
+        steps.add(property);
+        object = map.get(property);
+      } else {
         throw new MissingPathException(jsonPointer.toString());
       }
-      return queryFrom(jsonPointer.tail(), list.get(matchingIndex));
+      jsonPointer = jsonPointer.tail();
+    }
+    for (int idx = steps.size() - 1; idx >= 0; idx--) {
+      Object step = steps.get(idx);
+      object = step instanceof Integer
+          ? new StreamingValidation.SingleItemList((Integer) step, object)
+          : Collections.singletonMap((String) step, object);
     }
-    if (object instanceof Map) {
-      Map<String, Object> map = (Map<String, Object>) object;
-      String property = URLDecoder.decode(jsonPointer.getMatchingProperty());
-      if (!map.containsKey(property)) {
+    return object;
+  }
+
+  private static Object queryFrom(JsonPointer jsonPointer, Object object)
+      throws MissingPathException {
+    // Iterative rather than recursive, so that paths into deeply nested documents can be resolved.
+    while (!jsonPointer.matches()) {
+      if (object instanceof List) {
+        int matchingIndex = jsonPointer.getMatchingIndex();
+        List<Object> list = (List<Object>) object;
+        if (matchingIndex < 0 || matchingIndex >= list.size()) {
+          throw new MissingPathException(jsonPointer.toString());
+        }
+        object = list.get(matchingIndex);
+      } else if (object instanceof Map) {
+        Map<String, Object> map = (Map<String, Object>) object;
+        String property = URLDecoder.decode(jsonPointer.getMatchingProperty());
+        if (!map.containsKey(property)) {
+          throw new MissingPathException(jsonPointer.toString());
+        }
+        object = map.get(property);
+      } else {
         throw new MissingPathException(jsonPointer.toString());
       }
-      return queryFrom(jsonPointer.tail(), map.get(property));
+      jsonPointer = jsonPointer.tail();
     }
-    throw new MissingPathException(jsonPointer.toString());
+    return object;
   }
 
   public static Object modifyAtPath(Object document, String path, Object newObject)
@@ -166,6 +214,22 @@ public class PathUtils {
     return encoded;
   }
 
+  /**
+   * Decodes a reference token of a URI fragment made by append(), giving the value that was
+   * appended.
+   */
+  static String decodeToken(String token) {
+    if (token.equals(ESCAPED_EMPTY)) {
+      return "";
+    }
+    try {
+      token = URLDecoder.decode(token, "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+    return token.replace("~1", "/").replace("~0", "~");
+  }
+
   private static String jsonPointerUnescape(String token) {
     // This matches the JSONPointer escaping method which may not match RFC 6901 which does not
     // require quotes to be encoded.
@@ -7,6 +7,11 @@ public class PatternError extends ValidationError {
     super(uri, document, schema);
   }
 
+  @Override
+  public String getKeyword() {
+    return "pattern";
+  }
+
   @Override
   public String getMessage() {
     return "Did not match pattern: " + getSchema().getPattern();
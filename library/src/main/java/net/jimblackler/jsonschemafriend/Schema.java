@@ -16,6 +16,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -44,6 +45,7 @@ public class Schema {
   private final Number minLength;
   private final String pattern;
   private final String format;
+  private final FormatValidator formatValidator;
   private final String contentEncoding;
   private final String contentMediaType;
   // array checks
@@ -71,6 +73,15 @@ public class Schema {
   private final Map<String, Collection<String>> dependentRequired = new HashMap<>();
   private final Map<String, Schema> dependentSchemas = new HashMap<>();
   private final Schema propertyNames;
+  private final boolean closedObject;
+  // Flat lookup tables for the object checks, built once for use by the Validator.
+  private final String[] requiredNames;
+  private final String[] propertyKeys;
+  private final Schema[] propertySchemas;
+  private final String[] dependentRequiredTriggers;
+  private final String[][] dependentRequiredNames;
+  private final String[] dependentSchemaTriggers;
+  private final Schema[] dependentSchemaValues;
   // all types checks
   private final boolean hasConst;
   private final Object _const;
@@ -92,6 +103,8 @@ public class Schema {
   private final Schema recursiveRef;
   private final boolean recursiveAnchor;
 
+  private final boolean leaf;
+
   private final List<Object> examples;
   private final String title;
   private final String description;
@@ -123,6 +136,16 @@ public class Schema {
       jsonObject = new LinkedHashMap<>();
     }
 
+    // "required" is read before any subschemas are built. This allows the draft 3 form to be read
+    // from schemas that are referenced in a cycle, and so are not yet fully built.
+    Object requiredObject = jsonObject.get("required");
+    if (requiredObject instanceof List) {
+      for (Object req : (Iterable<Object>) requiredObject) {
+        requiredProperties.add((String) req);
+      }
+    }
+    required = requiredObject instanceof Boolean && (Boolean) requiredObject;
+
     // number checks
     multipleOf = (Number) jsonObject.get("multipleOf");
     maximum = (Number) jsonObject.get("maximum");
@@ -144,6 +167,7 @@ public class Schema {
 
     Object formatObject = jsonObject.get("format");
     format = formatObject instanceof String ? (String) formatObject : null;
+    formatValidator = format == null ? null : schemaStore.getFormatValidator(format);
 
     Object contentEncodingObject = jsonObject.get("contentEncoding");
     contentEncoding =
@@ -194,14 +218,6 @@ public class Schema {
     maxProperties = (Number) jsonObject.get("maxProperties");
     minProperties = (Number) jsonObject.get("minProperties");
 
-    Object requiredObject = jsonObject.get("required");
-    if (requiredObject instanceof List) {
-      for (Object req : (Iterable<Object>) requiredObject) {
-        requiredProperties.add((String) req);
-      }
-    }
-    required = requiredObject instanceof Boolean && (Boolean) requiredObject;
-
     additionalProperties = getSubSchema(jsonObject, "additionalProperties", uri);
     unevaluatedProperties = getSubSchema(jsonObject, "unevaluatedProperties", uri);
 
@@ -272,6 +288,37 @@ public class Schema {
 
     propertyNames = getSubSchema(jsonObject, "propertyNames", uri);
 
+    // The most common object constraint is "additionalProperties": false. Without
+    // patternProperties, the names of permitted properties are exactly the keys of the properties
+    // map, so unknown properties can be found in a single pass over the object being validated.
+    closedObject = additionalProperties != null && additionalProperties.isFalse()
+        && patternPropertiesPatterns.isEmpty();
+
+    // Required names from both the "required" array, and the draft 3 form where properties are
+    // marked "required": true.
+    Collection<String> allRequired = new LinkedHashSet<>(requiredProperties);
+    for (Map.Entry<String, Schema> entry : _properties.entrySet()) {
+      if (entry.getValue().isRequired()) {
+        allRequired.add(entry.getKey());
+      }
+    }
+    requiredNames = allRequired.toArray(new String[0]);
+
+    propertyKeys = _properties.keySet().toArray(new String[0]);
+    propertySchemas = _properties.values().toArray(new Schema[0]);
+
+    dependentRequiredTriggers = new String[dependentRequired.size()];
+    dependentRequiredNames = new String[dependentRequired.size()][];
+    int dependentRequiredIdx = 0;
+    for (Map.Entry<String, Collection<String>> entry : dependentRequired.entrySet()) {
+      dependentRequiredTriggers[dependentRequiredIdx] = entry.getKey();
+      dependentRequiredNames[dependentRequiredIdx] = entry.getValue().toArray(new String[0]);
+      dependentRequiredIdx++;
+    }
+
+    dependentSchemaTriggers = dependentSchemas.keySet().toArray(new String[0]);
+    dependentSchemaValues = dependentSchemas.values().toArray(new Schema[0]);
+
     // all types checks
     if (jsonObject.containsKey("const")) {
       hasConst = true;
@@ -398,6 +445,19 @@ public class Schema {
       }
     }
 
+    // A leaf schema only has checks on the value itself; it has no subschemas and no checks on
+    // the contents of arrays or objects.
+    leaf = prefixItems == null && additionalItems == null && unevaluatedItems == null
+        && _items == null && itemsTuple == null && maxItems == null && minItems == null
+        && !uniqueItems && contains == null && maxProperties == null && minProperties == null
+        && requiredProperties.isEmpty() && additionalProperties == null
+        && unevaluatedProperties == null && _properties.isEmpty()
+        && patternPropertiesPatterns.isEmpty() && dependentRequired.isEmpty()
+        && dependentSchemas.isEmpty() && propertyNames == null && typesSchema.isEmpty()
+        && disallow.isEmpty() && disallowSchemas.isEmpty() && _if == null && _then == null
+        && _else == null && allOf.isEmpty() && anyOf == null && oneOf == null && not == null
+        && ref == null && recursiveRef == null && !recursiveAnchor;
+
     defaultValue = jsonObject.get("default");
     title = (String) jsonObject.get("title");
     description = (String) jsonObject.get("description");
@@ -512,6 +572,15 @@ public class Schema {
     return format;
   }
 
+  /**
+   * Returns the validator added to the schema store for this schema's format, if any.
+   *
+   * @return The validator, or null if the format is absent or handled by the built-in checks.
+   */
+  public FormatValidator getFormatValidator() {
+    return formatValidator;
+  }
+
   public String getContentEncoding() {
     return contentEncoding;
   }
@@ -612,6 +681,46 @@ public class Schema {
     return propertyNames;
   }
 
+  /**
+   * Returns true if the schema only permits the properties listed in its "properties" keyword;
+   * that is, it has "additionalProperties": false and no "patternProperties".
+   *
+   * @return True if the schema describes a closed object.
+   */
+  boolean isClosedObject() {
+    return closedObject;
+  }
+
+  // The following methods return internal arrays for speed. Callers must not modify them.
+
+  String[] getRequiredNames() {
+    return requiredNames;
+  }
+
+  String[] getPropertyKeys() {
+    return propertyKeys;
+  }
+
+  Schema[] getPropertySchemas() {
+    return propertySchemas;
+  }
+
+  String[] getDependentRequiredTriggers() {
+    return dependentRequiredTriggers;
+  }
+
+  String[][] getDependentRequiredNames() {
+    return dependentRequiredNames;
+  }
+
+  String[] getDependentSchemaTriggers() {
+    return dependentSchemaTriggers;
+  }
+
+  Schema[] getDependentSchemaValues() {
+    return dependentSchemaValues;
+  }
+
   public boolean hasConst() {
     return hasConst;
   }
@@ -687,6 +796,17 @@ public class Schema {
     return defaultValue;
   }
 
+  /**
+   * Returns true if the schema only has checks on the value itself, such as type, bounds, length,
+   * pattern, format, const and enum. Such schemas have no subschemas and no checks on the contents
+   * of arrays or objects, so values can be checked against them without recursion.
+   *
+   * @return True if the schema is a leaf schema.
+   */
+  boolean isLeaf() {
+    return leaf;
+  }
+
   public List<Object> getExamples() {
     return examples;
   }
@@ -0,0 +1,536 @@
+package net.jimblackler.jsonschemafriend;
+
+import static net.jimblackler.jsonschemafriend.ComparableUtils.makeComparable;
+import static net.jimblackler.jsonschemafriend.MetaSchemaUris.DRAFT_3;
+import static net.jimblackler.jsonschemafriend.MetaSchemaUris.DRAFT_4;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Compiles schemas into trees of checks for CompiledSchema. Each schema becomes a check made only
+ * of the checks for the keywords it has, with the values of the keywords held by the checks.
+ * Subschemas are compiled once, however many schemas refer to them, so references call the check
+ * of their target directly. The checks give the same outcome as Validator.isValid().
+ */
+class SchemaCompiler {
+  private static final Logger LOG = Logger.getLogger(SchemaCompiler.class.getName());
+  private static final Check PASS = object -> true;
+  private static final Check FAIL = object -> false;
+  // Objects of other types fail every schema in the validator, with an UnexpectedTypeError.
+  private static final Check KNOWN_TYPE = object -> object == null || object instanceof Number
+      || object instanceof String || object instanceof Boolean || object instanceof List
+      || object instanceof Map;
+
+  private final Validator validator;
+  private final Map<Schema, Check> compiled = new IdentityHashMap<>();
+
+  SchemaCompiler(Validator validator) {
+    this.validator = validator;
+  }
+
+  Check compile(Schema schema) {
+    Check check = compiled.get(schema);
+    if (check != null) {
+      return check;
+    }
+    // A schema can be reached again while it is being compiled (through references), so a
+    // forwarding check stands in for it until it is complete.
+    Forward forward = new Forward();
+    compiled.put(schema, forward);
+    check = isSupported(schema) ? build(schema) : object -> validator.isValid(schema, object);
+    forward.target = check;
+    compiled.put(schema, check);
+    return check;
+  }
+
+  private static boolean isSupported(Schema schema) {
+    // Dynamic references depend on the schemas that led to them, and unevaluated keywords on the
+    // properties and items evaluated by other schemas, so these are left to the validator.
+    return schema.getUnevaluatedProperties() == null && schema.getUnevaluatedItems() == null
+        && schema.getRecursiveRef() == null && !schema.isRecursiveAnchor()
+        && schema.getDisallow().isEmpty() && schema.getDisallowSchemas().isEmpty()
+        && schema.getTypesSchema().isEmpty() && schema.getDivisibleBy() == null
+        && schema.getContentEncoding() == null && schema.getContentMediaType() == null;
+  }
+
+  private Check build(Schema schema) {
+    if (schema.isFalse()) {
+      return FAIL;
+    }
+    List<Check> checks = new ArrayList<>();
+    addApplicators(schema, checks);
+    Check type = typeCheck(schema);
+    checks.add(type == null ? KNOWN_TYPE : type);
+    addTyped(Number.class, numberChecks(schema), checks);
+    addTyped(String.class, stringChecks(schema), checks);
+    addTyped(List.class, arrayChecks(schema), checks);
+    addTyped(Map.class, objectChecks(schema), checks);
+    Check constAndEnum = constAndEnumCheck(schema);
+    if (constAndEnum != null) {
+      checks.add(constAndEnum);
+    }
+    return all(checks);
+  }
+
+  private void addApplicators(Schema schema, List<Check> checks) {
+    Schema _if = schema.getIf();
+    if (_if != null) {
+      Check ifCheck = compile(_if);
+      Check thenCheck = schema.getThen() == null ? PASS : compile(schema.getThen());
+      Check elseCheck = schema.getElse() == null ? PASS : compile(schema.getElse());
+      checks.add(object -> ifCheck.test(object) ? thenCheck.test(object) : elseCheck.test(object));
+    }
+    if (schema.getRef() != null) {
+      checks.add(compile(schema.getRef()));
+    }
+    for (Schema schema1 : schema.getAllOf()) {
+      checks.add(compile(schema1));
+    }
+    Collection<Schema> anyOf = schema.getAnyOf();
+    if (anyOf != null) {
+      Check[] options = compileAll(anyOf);
+      checks.add(object -> {
+        for (Check option : options) {
+          if (option.test(object)) {
+            return true;
+          }
+        }
+        return false;
+      });
+    }
+    Collection<Schema> oneOf = schema.getOneOf();
+    if (oneOf != null) {
+      Check[] options = compileAll(oneOf);
+      checks.add(object -> {
+        int passed = 0;
+        for (Check option : options) {
+          if (option.test(object) && ++passed > 1) {
+            return false;
+          }
+        }
+        return passed == 1;
+      });
+    }
+    if (schema.getNot() != null) {
+      Check not = compile(schema.getNot());
+      checks.add(object -> !not.test(object));
+    }
+  }
+
+  private static Check typeCheck(Schema schema) {
+    Collection<String> types = schema.getExplicitTypes();
+    if (types == null || types.isEmpty() || types.contains("any")) {
+      return null;
+    }
+    boolean nullAllowed = types.contains("null");
+    boolean booleanAllowed = types.contains("boolean");
+    boolean stringAllowed = types.contains("string");
+    boolean arrayAllowed = types.contains("array");
+    boolean objectAllowed = types.contains("object");
+    boolean numberAllowed = types.contains("number");
+    boolean integerAllowed = numberAllowed || types.contains("integer");
+    boolean strictIntegers =
+        DRAFT_3.equals(schema.getMetaSchema()) || DRAFT_4.equals(schema.getMetaSchema());
+    return object -> {
+      if (object instanceof Number) {
+        return numberAllowed || integerAllowed && isInteger((Number) object, strictIntegers);
+      }
+      if (object instanceof String) {
+        return stringAllowed;
+      }
+      if (object instanceof Boolean) {
+        return booleanAllowed;
+      }
+      if (object instanceof List) {
+        return arrayAllowed;
+      }
+      if (object instanceof Map) {
+        return objectAllowed;
+      }
+      return object == null ? nullAllowed : false;
+    };
+  }
+
+  private static boolean isInteger(Number number, boolean strictIntegers) {
+    if (strictIntegers) {
+      return !(number instanceof Float) && !(number instanceof Double);
+    }
+    return Validator.isIntegral(number);
+  }
+
+  private static List<Check> numberChecks(Schema schema) {
+    List<Check> checks = new ArrayList<>();
+    Number multipleOf = schema.getMultipleOf();
+    if (multipleOf != null) {
+      checks.add(object -> Validator.isMultiple((Number) object, multipleOf));
+    }
+    Number maximum = schema.getMaximum();
+    if (maximum != null) {
+      double value = maximum.doubleValue();
+      checks.add(schema.isExclusiveMaximumBoolean()
+              ? object -> ((Number) object).doubleValue() < value
+              : object -> ((Number) object).doubleValue() <= value);
+    }
+    Number exclusiveMaximum = schema.getExclusiveMaximum();
+    if (exclusiveMaximum != null) {
+      double value = exclusiveMaximum.doubleValue();
+      checks.add(object -> ((Number) object).doubleValue() < value);
+    }
+    Number minimum = schema.getMinimum();
+    if (minimum != null) {
+      double value = minimum.doubleValue();
+      checks.add(schema.isExclusiveMinimumBoolean()
+              ? object -> ((Number) object).doubleValue() > value
+              : object -> ((Number) object).doubleValue() >= value);
+    }
+    Number exclusiveMinimum = schema.getExclusiveMinimum();
+    if (exclusiveMinimum != null) {
+      double value = exclusiveMinimum.doubleValue();
+      checks.add(object -> ((Number) object).doubleValue() > value);
+    }
+    return checks;
+  }
+
+  private List<Check> stringChecks(Schema schema) {
+    List<Check> checks = new ArrayList<>();
+    Number minLength = schema.getMinLength();
+    Number maxLength = schema.getMaxLength();
+    if (minLength != null || maxLength != null) {
+      int min = minLength == null ? 0 : minLength.intValue();
+      int max = maxLength == null ? Integer.MAX_VALUE : maxLength.intValue();
+      checks.add(object -> {
+        String string = (String) object;
+        int length = string.codePointCount(0, string.length());
+        return length >= min && length <= max;
+      });
+    }
+    String pattern = schema.getPattern();
+    if (pattern != null) {
+      RegExPattern regExPattern = newPattern(pattern);
+      if (regExPattern != null) {
+        checks.add(object -> regExPattern.matches((String) object));
+      }
+    }
+    String format = schema.getFormat();
+    if (format != null) {
+      FormatValidator formatValidator = schema.getFormatValidator();
+      RegExPatternSupplier regExPatternSupplier = validator.getRegExPatternSupplier();
+      checks.add(formatValidator == null
+              ? object
+              -> FormatChecker.formatCheck(
+                     (String) object, format, schema.getMetaSchema(), regExPatternSupplier)
+                  == null
+              : object -> formatValidator.check((String) object) == null);
+    }
+    return checks;
+  }
+
+  private List<Check> arrayChecks(Schema schema) {
+    List<Check> checks = new ArrayList<>();
+    List<Schema> prefixItems = schema.getPrefixItems();
+    int itemStart = 0;
+    if (prefixItems != null) {
+      itemStart = prefixItems.size();
+      checks.add(tupleCheck(compileAll(prefixItems)));
+    } else {
+      List<Schema> itemsTuple = schema.getItemsTuple();
+      if (itemsTuple != null) {
+        checks.add(tupleCheck(compileAll(itemsTuple)));
+        if (schema.getAdditionalItems() != null) {
+          checks.add(itemsCheck(compile(schema.getAdditionalItems()), itemsTuple.size()));
+        }
+      }
+    }
+    if (schema.getItems() != null) {
+      checks.add(itemsCheck(compile(schema.getItems()), itemStart));
+    }
+    Schema contains = schema.getContains();
+    if (contains != null) {
+      Check containsCheck = compile(contains);
+      Number minContains = schema.getMinContains();
+      int min = minContains == null ? 1 : minContains.intValue();
+      Number maxContains = schema.getMaxContains();
+      int max = maxContains == null ? Integer.MAX_VALUE : maxContains.intValue();
+      checks.add(object -> {
+        List<?> list = (List<?>) object;
+        int passed = 0;
+        for (int idx = 0; idx != list.size(); idx++) {
+          if (containsCheck.test(list.get(idx)) && ++passed > max) {
+            return false;
+          }
+        }
+        return passed >= min;
+      });
+    }
+    Number maxItems = schema.getMaxItems();
+    if (maxItems != null) {
+      int max = maxItems.intValue();
+      checks.add(object -> ((List<?>) object).size() <= max);
+    }
+    Number minItems = schema.getMinItems();
+    if (minItems != null) {
+      int min = minItems.intValue();
+      checks.add(object -> ((List<?>) object).size() >= min);
+    }
+    if (schema.isUniqueItems()) {
+      checks.add(object -> {
+        Collection<Object> items = new HashSet<>();
+        for (Object item : (List<?>) object) {
+          if (!items.add(makeComparable(item))) {
+            return false;
+          }
+        }
+        return true;
+      });
+    }
+    return checks;
+  }
+
+  private static Check tupleCheck(Check[] tuple) {
+    return object -> {
+      List<?> list = (List<?>) object;
+      int end = Math.min(tuple.length, list.size());
+      for (int idx = 0; idx != end; idx++) {
+        if (!tuple[idx].test(list.get(idx))) {
+          return false;
+        }
+      }
+      return true;
+    };
+  }
+
+  private static Check itemsCheck(Check itemCheck, int start) {
+    return object -> {
+      List<?> list = (List<?>) object;
+      for (int idx = start; idx < list.size(); idx++) {
+        if (!itemCheck.test(list.get(idx))) {
+          return false;
+        }
+      }
+      return true;
+    };
+  }
+
+  private List<Check> objectChecks(Schema schema) {
+    List<Check> checks = new ArrayList<>();
+    Number maxProperties = schema.getMaxProperties();
+    if (maxProperties != null) {
+      int max = maxProperties.intValue();
+      checks.add(object -> ((Map<?, ?>) object).size() <= max);
+    }
+    Number minProperties = schema.getMinProperties();
+    if (minProperties != null) {
+      int min = minProperties.intValue();
+      checks.add(object -> ((Map<?, ?>) object).size() >= min);
+    }
+    String[] required = schema.getRequiredNames();
+    if (required.length != 0) {
+      checks.add(object -> {
+        Map<?, ?> map = (Map<?, ?>) object;
+        for (String property : required) {
+          if (!map.containsKey(property)) {
+            return false;
+          }
+        }
+        return true;
+      });
+    }
+
+    Map<String, Check> properties = new HashMap<>();
+    for (Map.Entry<String, Schema> entry : schema.getProperties().entrySet()) {
+      properties.put(entry.getKey(), compile(entry.getValue()));
+    }
+    List<RegExPattern> patterns = new ArrayList<>();
+    List<Check> patternChecks = new ArrayList<>();
+    Collection<Schema> patternSchemas = schema.getPatternPropertiesSchema();
+    Iterator<Schema> it = patternSchemas.iterator();
+    for (String pattern : schema.getPatternPropertiesPatterns()) {
+      Schema patternSchema = it.next();
+      RegExPattern regExPattern = newPattern(pattern);
+      if (regExPattern != null) {
+        patterns.add(regExPattern);
+        patternChecks.add(compile(patternSchema));
+      }
+    }
+    Check additional = schema.getAdditionalProperties() == null
+        ? null
+        : compile(schema.getAdditionalProperties());
+    Check propertyNames =
+        schema.getPropertyNames() == null ? null : compile(schema.getPropertyNames());
+    if (!properties.isEmpty() || !patterns.isEmpty() || additional != null
+        || propertyNames != null) {
+      checks.add(
+          propertiesCheck(properties, patterns.toArray(new RegExPattern[0]),
+              patternChecks.toArray(new Check[0]), additional, propertyNames));
+    }
+
+    String[] dependentSchemaTriggers = schema.getDependentSchemaTriggers();
+    Check[] dependentSchemas = compileAll(schema.getDependentSchemaValues());
+    for (int idx = 0; idx != dependentSchemaTriggers.length; idx++) {
+      String trigger = dependentSchemaTriggers[idx];
+      Check dependentSchema = dependentSchemas[idx];
+      checks.add(
+          object -> !((Map<?, ?>) object).containsKey(trigger) || dependentSchema.test(object));
+    }
+
+    String[] dependentRequiredTriggers = schema.getDependentRequiredTriggers();
+    String[][] dependentRequiredNames = schema.getDependentRequiredNames();
+    for (int idx = 0; idx != dependentRequiredTriggers.length; idx++) {
+      String trigger = dependentRequiredTriggers[idx];
+      String[] names = dependentRequiredNames[idx];
+      checks.add(object -> {
+        Map<?, ?> map = (Map<?, ?>) object;
+        if (!map.containsKey(trigger)) {
+          return true;
+        }
+        for (String name : names) {
+          if (!map.containsKey(name)) {
+            return false;
+          }
+        }
+        return true;
+      });
+    }
+    return checks;
+  }
+
+  /**
+   * Checks each property of an object against the schemas of properties, patternProperties,
+   * additionalProperties and propertyNames, in a single pass over the object.
+   */
+  private static Check propertiesCheck(Map<String, Check> properties, RegExPattern[] patterns,
+      Check[] patternChecks, Check additional, Check propertyNames) {
+    return object -> {
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+        String property = (String) entry.getKey();
+        Object value = entry.getValue();
+        boolean matched = false;
+        Check check = properties.get(property);
+        if (check != null) {
+          if (!check.test(value)) {
+            return false;
+          }
+          matched = true;
+        }
+        for (int idx = 0; idx != patterns.length; idx++) {
+          if (patterns[idx].matches(property)) {
+            if (!patternChecks[idx].test(value)) {
+              return false;
+            }
+            matched = true;
+          }
+        }
+        if (!matched && additional != null && !additional.test(value)) {
+          return false;
+        }
+        if (propertyNames != null && !propertyNames.test(property)) {
+          return false;
+        }
+      }
+      return true;
+    };
+  }
+
+  private static Check constAndEnumCheck(Schema schema) {
+    List<Check> checks = new ArrayList<>();
+    if (schema.hasConst()) {
+      Object value = makeComparable(schema.getConst());
+      checks.add(object -> value.equals(makeComparable(object)));
+    }
+    List<Object> enums = schema.getEnums();
+    if (enums != null) {
+      Object[] values = new Object[enums.size()];
+      for (int idx = 0; idx != values.length; idx++) {
+        values[idx] = makeComparable(enums.get(idx));
+      }
+      checks.add(object -> {
+        Object comparable = makeComparable(object);
+        for (Object value : values) {
+          if (comparable.equals(value)) {
+            return true;
+          }
+        }
+        return false;
+      });
+    }
+    return checks.isEmpty() ? null : all(checks);
+  }
+
+  private RegExPattern newPattern(String pattern) {
+    try {
+      return validator.getRegExPatternSupplier().newPattern(pattern);
+    } catch (InvalidRegexException e) {
+      // As in the validator, invalid patterns are ignored.
+      LOG.warning("Invalid regex " + pattern);
+      return null;
+    }
+  }
+
+  private Check[] compileAll(Collection<Schema> schemas) {
+    return compileAll(schemas.toArray(new Schema[0]));
+  }
+
+  private Check[] compileAll(Schema[] schemas) {
+    Check[] checks = new Check[schemas.length];
+    for (int idx = 0; idx != schemas.length; idx++) {
+      checks[idx] = compile(schemas[idx]);
+    }
+    return checks;
+  }
+
+  /** Adds a check that applies the given checks to objects of one type. */
+  private static void addTyped(Class<?> type, List<Check> typeChecks, List<Check> checks) {
+    if (typeChecks.isEmpty()) {
+      return;
+    }
+    Check check = all(typeChecks);
+    checks.add(object -> !type.isInstance(object) || check.test(object));
+  }
+
+  private static Check all(List<Check> checks) {
+    switch (checks.size()) {
+      case 0:
+        return PASS;
+      case 1:
+        return checks.get(0);
+      case 2: {
+        Check first = checks.get(0);
+        Check second = checks.get(1);
+        return object -> first.test(object) && second.test(object);
+      }
+      default: {
+        Check[] array = checks.toArray(new Check[0]);
+        return object -> {
+          for (Check check : array) {
+            if (!check.test(object)) {
+              return false;
+            }
+          }
+          return true;
+        };
+      }
+    }
+  }
+
+  interface Check {
+    boolean test(Object object);
+  }
+
+  /** Stands in for the check of a schema that is still being compiled. */
+  private static class Forward implements Check {
+    Check target;
+
+    @Override
+    public boolean test(Object object) {
+      return target.test(object);
+    }
+  }
+}
@@ -39,6 +39,7 @@ public class SchemaStore {
   private final Map<URI, URI> canonicalUriToResourceUri = new HashMap<>();
   private final Map<URI, Schema> builtSchemas = new HashMap<>();
   private final Collection<URI> mapped = new HashSet<>();
+  private final Map<String, FormatValidator> formatValidators = new HashMap<>();
   private final UrlRewriter urlRewriter;
   private int memorySchemaNumber;
   private boolean cacheSchema;
@@ -61,6 +62,22 @@ public class SchemaStore {
     this.cacheSchema = cacheSchema;
   }
 
+  /**
+   * Adds a validator for a string format. This can be a custom format, or replace one of the
+   * formats built into the library. The validator is attached to each schema with the format as it
+   * is built, so it should be added before any schemas are loaded.
+   *
+   * @param format The name of the format, as it appears in schemas.
+   * @param formatValidator The validator to check strings with the format.
+   */
+  public void addFormatValidator(String format, FormatValidator formatValidator) {
+    formatValidators.put(format, formatValidator);
+  }
+
+  FormatValidator getFormatValidator(String format) {
+    return formatValidators.get(format);
+  }
+
   public Schema loadSchema(Object document) throws GenerationException {
     // Every document needs a unique, default canonical URI.
     URI uri = URI.create(memorySchemaNumber == 0 ? "" : String.valueOf(memorySchemaNumber));
@@ -174,10 +191,10 @@ public class SchemaStore {
         URI metaSchemaUri = detectMetaSchema(canonicalUriToBaseObject.get(uri));
         if (!normalize(metaSchemaUri).equals(uri)) {
           Schema metaSchema = loadSchema(metaSchemaUri, false);
-          Map<String, Object> validation =
-              validator.validateWithOutput(this, metaSchema, schemaObject);
-          if (!(boolean) validation.get("valid")) {
-            throw new StandardGenerationException(validation);
+          // The errors are only found, and the output built, for schemas that fail.
+          if (!validator.isValid(metaSchema, validator.adapt(schemaObject))) {
+            throw new StandardGenerationException(
+                validator.validateWithOutput(this, metaSchema, schemaObject, OutputFormat.BASIC));
           }
         }
       }
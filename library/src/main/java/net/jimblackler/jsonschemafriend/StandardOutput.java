@@ -0,0 +1,173 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the basic, detailed or verbose output of a validation, for Validator.validateWithOutput(),
+ * from the errors reported by the validator. Units are only created for errors; a passing document
+ * produces a single unit.
+ */
+class StandardOutput {
+  private final SchemaStore schemaStore;
+  private final Schema root;
+  private final OutputFormat format;
+
+  /**
+   * @param schemaStore The store the schema was loaded from, to find absolute keyword locations;
+   *     or null.
+   */
+  StandardOutput(SchemaStore schemaStore, Schema root, OutputFormat format) {
+    this.schemaStore = schemaStore;
+    this.root = root;
+    this.format = format;
+  }
+
+  Map<String, Object> build(List<ValidationError> errors) {
+    Map<String, Object> output = new LinkedHashMap<>();
+    output.put("valid", errors.isEmpty());
+    output.put("keywordLocation", "#");
+    output.put("instanceLocation", "#");
+    if (errors.isEmpty()) {
+      return output;
+    }
+    List<Object> units = new ArrayList<>();
+    if (format == OutputFormat.BASIC) {
+      addFlat(errors, units);
+    } else {
+      addGrouped(errors, units);
+    }
+    output.put("errors", units);
+    return output;
+  }
+
+  /** Adds units for errors, and the errors nested in them, to a flat list. */
+  private void addFlat(List<ValidationError> errors, List<Object> units) {
+    for (ValidationError error : errors) {
+      units.add(errorUnit(error, null));
+      for (List<ValidationError> branchErrors : branchErrors(error)) {
+        addFlat(branchErrors, units);
+      }
+    }
+  }
+
+  /**
+   * Adds units for errors, grouped under a unit for each schema and instance location they came
+   * from. The errors of the branches of anyOf and oneOf are nested under their errors.
+   */
+  private void addGrouped(List<ValidationError> errors, List<Object> units) {
+    Map<Schema, Map<URI, List<ValidationError>>> groups = new IdentityHashMap<>();
+    List<List<ValidationError>> ordered = new ArrayList<>();
+    for (ValidationError error : errors) {
+      List<ValidationError> group = groups.computeIfAbsent(error.getSchema(),
+          schema -> new LinkedHashMap<>()).computeIfAbsent(error.getUri(), uri -> {
+        List<ValidationError> list = new ArrayList<>();
+        ordered.add(list);
+        return list;
+      });
+      group.add(error);
+    }
+    for (List<ValidationError> group : ordered) {
+      List<Object> children = new ArrayList<>();
+      for (ValidationError error : group) {
+        List<Object> nested = new ArrayList<>();
+        for (List<ValidationError> branchErrors : branchErrors(error)) {
+          if (branchErrors.isEmpty()) {
+            continue;
+          }
+          List<Object> branchUnits = new ArrayList<>();
+          addGrouped(branchErrors, branchUnits);
+          nested.add(condense(branchUnits, null, null));
+        }
+        children.add(errorUnit(error, nested.isEmpty() ? null : nested));
+      }
+      ValidationError first = group.get(0);
+      units.add(condense(children, first.getSchema(), first.getUri()));
+    }
+  }
+
+  /**
+   * Returns a unit holding child units. In the detailed format a single child is returned in
+   * place of the unit.
+   *
+   * @param schema The schema of the unit; or null for the errors of a branch of anyOf or oneOf.
+   */
+  private Object condense(List<Object> children, Schema schema, URI uri) {
+    if (children.size() == 1 && (format == OutputFormat.DETAILED || schema == null)) {
+      return children.get(0);
+    }
+    if (schema == null) {
+      Map<String, Object> unit = new LinkedHashMap<>();
+      unit.put("valid", false);
+      Map<?, ?> first = (Map<?, ?>) children.get(0);
+      unit.put("keywordLocation", first.get("keywordLocation"));
+      unit.put("instanceLocation", first.get("instanceLocation"));
+      unit.put("errors", children);
+      return unit;
+    }
+    Map<String, Object> unit = new LinkedHashMap<>();
+    unit.put("valid", false);
+    addLocations(unit, schema, null, uri);
+    unit.put("errors", children);
+    return unit;
+  }
+
+  private Map<String, Object> errorUnit(ValidationError error, List<Object> nested) {
+    Map<String, Object> unit = new LinkedHashMap<>();
+    unit.put("valid", false);
+    addLocations(unit, error.getSchema(), error.getKeyword(), error.getUri());
+    unit.put("error", error.getMessage());
+    if (nested != null) {
+      unit.put("errors", nested);
+    }
+    return unit;
+  }
+
+  private void addLocations(Map<String, Object> unit, Schema schema, String keyword, URI uri) {
+    URI schemaUri = schema.getUri();
+    String pointer = keyword == null ? "" : "/" + keyword;
+    String fragment = schemaUri.getRawFragment();
+    String keywordFragment = "#" + (fragment == null ? "" : fragment) + pointer;
+    if (sameDocument(schemaUri, root.getUri())) {
+      unit.put("keywordLocation", keywordFragment);
+    } else {
+      unit.put("keywordLocation", withoutFragment(schemaUri) + keywordFragment);
+    }
+    URI resourceUri = schemaStore == null ? null : schemaStore.canonicalUriToResourceUri(schemaUri);
+    if (resourceUri == null) {
+      resourceUri = schemaUri;
+    }
+    if (resourceUri.isAbsolute()) {
+      String resourceFragment = resourceUri.getRawFragment();
+      unit.put("absoluteKeywordLocation",
+          withoutFragment(resourceUri) + "#" + (resourceFragment == null ? "" : resourceFragment)
+              + pointer);
+    }
+    String rawFragment = uri.getRawFragment();
+    unit.put("instanceLocation", "#" + (rawFragment == null ? "" : rawFragment));
+  }
+
+  private static boolean sameDocument(URI a, URI b) {
+    return withoutFragment(a).equals(withoutFragment(b));
+  }
+
+  private static String withoutFragment(URI uri) {
+    String string = uri.toString();
+    int hash = string.indexOf('#');
+    return hash == -1 ? string : string.substring(0, hash);
+  }
+
+  private static List<List<ValidationError>> branchErrors(ValidationError error) {
+    if (error instanceof AnyOfError) {
+      return ((AnyOfError) error).getAllErrors();
+    }
+    if (error instanceof OneOfError) {
+      return ((OneOfError) error).getAllErrors();
+    }
+    return new ArrayList<>();
+  }
+}
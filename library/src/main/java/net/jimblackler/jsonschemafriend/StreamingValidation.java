@@ -0,0 +1,570 @@
+package net.jimblackler.jsonschemafriend;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Validates a document as it is read from a JsonParser, for Validator.validate(Schema, JsonParser,
+ * Consumer). Arrays and objects are walked token by token with a stack of frames, so memory use
+ * grows with the depth of the document rather than its size. Scalars are read one at a time and
+ * validated with the tree validator. Arrays and objects evaluated against schemas with keywords
+ * that need the whole value at once (such as uniqueItems, enum, anyOf or unevaluatedProperties)
+ * are read into a tree, up to the buffer limit of the validator, and validated with the tree
+ * validator.
+ *
+ * <p>The document attached to errors is a sparse copy of the document that only has the value
+ * validated at the location of the error. Values of arrays and objects that were not buffered are
+ * not retained, so for errors on those the document has null at the location.
+ */
+class StreamingValidation {
+  private static final Logger LOG = Logger.getLogger(StreamingValidation.class.getName());
+  private static final Collection<String> ARRAY_TYPES = Collections.singleton("array");
+  private static final Collection<String> OBJECT_TYPES = Collections.singleton("object");
+
+  private final Validator validator;
+  private final JsonParser parser;
+  private final Consumer<ValidationError> errorConsumer;
+  private final Deque<Frame> frames = new ArrayDeque<>();
+  // Set when a depth limit was exceeded, which ends the validation.
+  private boolean ended;
+
+  StreamingValidation(
+      Validator validator, JsonParser parser, Consumer<ValidationError> errorConsumer) {
+    this.validator = validator;
+    this.parser = parser;
+    this.errorConsumer = errorConsumer;
+  }
+
+  void validate(Schema schema) throws IOException {
+    JsonToken token = parser.currentToken();
+    if (token == null) {
+      token = parser.nextToken();
+    }
+    if (token == null) {
+      throw new IOException("No content");
+    }
+    value(Collections.singletonList(schema), null, null, URI.create(""), token);
+    while (!frames.isEmpty()) {
+      if (ended) {
+        // The rest of the document is read, to leave the parser at its last token.
+        for (int idx = 0; idx != frames.size(); idx++) {
+          skipToEnd();
+        }
+        frames.clear();
+        return;
+      }
+      Frame frame = frames.peek();
+      token = parser.nextToken();
+      if (token == JsonToken.END_ARRAY || token == JsonToken.END_OBJECT) {
+        frames.pop();
+        finish(frame);
+        continue;
+      }
+      List<Schema> schemas;
+      Object key;
+      if (frame.array) {
+        key = frame.count;
+        schemas = itemSchemas(frame.schemas, frame.count);
+      } else {
+        String property = parser.getCurrentName();
+        token = parser.nextToken();
+        key = property;
+        schemas = propertySchemas(frame, property);
+      }
+      frame.count++;
+      value(schemas, frame, key, PathUtils.append(frame.uri, String.valueOf(key)), token);
+    }
+  }
+
+  /**
+   * Validates the value at the current token against a set of schemas. Scalars and buffered values
+   * are validated straight away; for arrays and objects that can be streamed, a frame is pushed.
+   */
+  private void value(List<Schema> schemas, Frame parent, Object key, URI uri, JsonToken token)
+      throws IOException {
+    if (ended || schemas.isEmpty() || validator.isDisabledPath(uri)) {
+      parser.skipChildren();
+      return;
+    }
+    int depth = parent == null ? 0 : parent.depth + 1;
+    if (!token.isStructStart()) {
+      Object object = readScalar(token);
+      Object document = sparseDocument(parent, key, object);
+      for (Schema schema : schemas) {
+        validateTree(schema, document, uri, object, depth);
+      }
+      return;
+    }
+
+    boolean array = token == JsonToken.START_ARRAY;
+    List<Schema> expanded = expand(schemas, validator);
+    for (Schema schema : expanded) {
+      if (!needsBuffer(schema, array)) {
+        continue;
+      }
+      Object object = readBuffered(token);
+      if (object == BufferLimit.INSTANCE) {
+        // Not subject to the error filter, because the value has not been validated.
+        errorConsumer.accept(
+            new BufferLimitError(uri, sparseDocument(parent, key, null), schema));
+        return;
+      }
+      Object document = sparseDocument(parent, key, object);
+      for (Schema schema1 : schemas) {
+        validateTree(schema1, document, uri, object, depth);
+      }
+      return;
+    }
+
+    Frame frame = new Frame(expanded, parent, key, uri, array, depth);
+    if (depth > validator.getMaxDepth()) {
+      errorConsumer.accept(new LimitExceededError(
+          uri, frame.document(), schemas.get(0), LimitExceededError.Limit.DEPTH));
+      ended = true;
+      parser.skipChildren();
+      return;
+    }
+
+    List<Schema> streamed = new ArrayList<>();
+    for (Schema schema : expanded) {
+      if (schema.isFalse()) {
+        error(new FalseSchemaError(uri, frame.document(), schema));
+        continue;
+      }
+      typeCheck(frame, schema);
+      streamed.add(schema);
+    }
+    frame.schemas = streamed;
+    if (streamed.isEmpty()) {
+      parser.skipChildren();
+      finish(frame);
+      return;
+    }
+    if (!array) {
+      frame.trackProperties();
+    }
+    frames.push(frame);
+  }
+
+  /**
+   * Adds the schemas that apply to the same value through $ref and allOf to a set of schemas, as
+   * these can be evaluated alongside the schemas that reference them. Schemas disabled by the
+   * profile of the validator are left out, along with the schemas reached only through them.
+   */
+  static List<Schema> expand(List<Schema> schemas, Validator validator) {
+    Set<Schema> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+    List<Schema> expanded = new ArrayList<>();
+    Deque<Schema> pending = new ArrayDeque<>();
+    for (int idx = schemas.size() - 1; idx >= 0; idx--) {
+      pending.push(schemas.get(idx));
+    }
+    while (!pending.isEmpty()) {
+      Schema schema = pending.pop();
+      if (!seen.add(schema) || validator.disabledKeywords(schema) == ValidationProfile.ALL) {
+        continue;
+      }
+      expanded.add(schema);
+      List<Schema> members = new ArrayList<>(schema.getAllOf());
+      Schema ref = schema.getRef();
+      if (ref != null) {
+        members.add(0, ref);
+      }
+      for (int idx = members.size() - 1; idx >= 0; idx--) {
+        pending.push(members.get(idx));
+      }
+    }
+    return expanded;
+  }
+
+  /**
+   * Returns true if a schema has keywords that need the whole array or object at once to be
+   * evaluated, so the value must be read into a tree.
+   */
+  private static boolean needsBuffer(Schema schema, boolean array) {
+    if (schema.getIf() != null || schema.getAnyOf() != null || schema.getOneOf() != null
+        || schema.getNot() != null || !schema.getDisallowSchemas().isEmpty()
+        || !schema.getTypesSchema().isEmpty() || schema.hasConst() || schema.getEnums() != null
+        || schema.getRecursiveRef() != null || schema.isRecursiveAnchor()) {
+      return true;
+    }
+    if (array) {
+      return schema.isUniqueItems() || schema.getContains() != null
+          || schema.getUnevaluatedItems() != null;
+    }
+    return schema.getUnevaluatedProperties() != null
+        || schema.getDependentSchemaTriggers().length != 0;
+  }
+
+  private void typeCheck(Frame frame, Schema schema) {
+    Collection<String> types = frame.array ? ARRAY_TYPES : OBJECT_TYPES;
+    long disabled = validator.disabledKeywords(schema);
+    Collection<String> disallow = schema.getDisallow();
+    if (!disallow.isEmpty() && (disabled & ValidationProfile.DISALLOW) == 0) {
+      Collection<String> typesIn0 = new HashSet<>(types);
+      typesIn0.retainAll(disallow);
+      if (!typesIn0.isEmpty()) {
+        error(new TypeDisallowedError(frame.uri, frame.document(), typesIn0, schema));
+      }
+    }
+    Collection<String> explicitTypes = schema.getExplicitTypes();
+    if (explicitTypes == null || (disabled & ValidationProfile.TYPE) != 0
+        || explicitTypes.isEmpty() || explicitTypes.contains("any")
+        || explicitTypes.containsAll(types)) {
+      return;
+    }
+    error(new TypeError(frame.uri, frame.document(), explicitTypes, types, schema));
+  }
+
+  /** Returns the schemas that apply to an item of an array validated against a set of schemas. */
+  static List<Schema> itemSchemas(List<Schema> schemas, int index) {
+    List<Schema> itemSchemas = new ArrayList<>();
+    for (Schema schema : schemas) {
+      List<Schema> prefixItems = schema.getPrefixItems();
+      int itemStart = 0;
+      if (prefixItems != null) {
+        itemStart = prefixItems.size();
+        if (index < prefixItems.size()) {
+          itemSchemas.add(prefixItems.get(index));
+        }
+      } else {
+        List<Schema> itemsTuple = schema.getItemsTuple();
+        if (itemsTuple != null) {
+          if (index < itemsTuple.size()) {
+            itemSchemas.add(itemsTuple.get(index));
+          } else if (schema.getAdditionalItems() != null) {
+            itemSchemas.add(schema.getAdditionalItems());
+          }
+        }
+      }
+      Schema items = schema.getItems();
+      if (items != null && index >= itemStart) {
+        itemSchemas.add(items);
+      }
+    }
+    return itemSchemas;
+  }
+
+  private List<Schema> propertySchemas(Frame frame, String property) {
+    if (frame.properties != null) {
+      frame.properties.add(property);
+    }
+    List<Schema> propertySchemas = new ArrayList<>();
+    for (Schema schema : frame.schemas) {
+      boolean matched = false;
+      Schema propertySchema = schema.getProperties().get(property);
+      if (propertySchema != null) {
+        propertySchemas.add(propertySchema);
+        matched = true;
+      }
+      Iterator<String> it0 = schema.getPatternPropertiesPatterns().iterator();
+      Iterator<Schema> it1 = schema.getPatternPropertiesSchema().iterator();
+      while (it0.hasNext()) {
+        String pattern = it0.next();
+        Schema schema1 = it1.next();
+        try {
+          if (validator.getRegExPatternSupplier().newPattern(pattern).matches(property)) {
+            propertySchemas.add(schema1);
+            matched = true;
+          }
+        } catch (InvalidRegexException e) {
+          LOG.warning("Invalid regex: " + e.getMessage());
+        }
+      }
+      if (!matched && schema.getAdditionalProperties() != null) {
+        propertySchemas.add(schema.getAdditionalProperties());
+      }
+      Schema propertyNames = schema.getPropertyNames();
+      if (propertyNames != null) {
+        try {
+          // As with the tree validator, the property name is carried in the query part of the URI.
+          URI uri = frame.uri;
+          URI propertyPath = new URI(
+              uri.getScheme(), uri.getAuthority(), uri.getPath(), property, uri.getRawFragment());
+          validateTree(propertyNames, frame.document(), propertyPath, property, frame.depth + 1);
+        } catch (URISyntaxException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }
+    return propertySchemas;
+  }
+
+  /** Validates a value with the tree validator, ending the validation if a limit is exceeded. */
+  private void validateTree(Schema schema, Object document, URI uri, Object object, int depth) {
+    if (!ended
+        && !validator.validateStreamed(schema, document, uri, object, errorConsumer, depth)) {
+      ended = true;
+    }
+  }
+
+  /** Evaluates the keywords of the schemas of an array or object that need all of its children. */
+  private void finish(Frame frame) {
+    for (Schema schema : frame.schemas) {
+      long disabled = validator.disabledKeywords(schema);
+      if (frame.array) {
+        Number maxItems = schema.getMaxItems();
+        if (maxItems != null && (disabled & ValidationProfile.MAX_ITEMS) == 0
+            && frame.count > maxItems.intValue()) {
+          error(new MaxItemsError(frame.uri, frame.document(), schema));
+        }
+        Number minItems = schema.getMinItems();
+        if (minItems != null && (disabled & ValidationProfile.MIN_ITEMS) == 0
+            && frame.count < minItems.intValue()) {
+          error(new MinItemsError(frame.uri, frame.document(), schema));
+        }
+        continue;
+      }
+      Number maxProperties = schema.getMaxProperties();
+      if (maxProperties != null && (disabled & ValidationProfile.MAX_PROPERTIES) == 0
+          && frame.count > maxProperties.intValue()) {
+        error(new MaxPropertiesError(frame.uri, frame.document(), schema));
+      }
+      Number minProperties = schema.getMinProperties();
+      if (minProperties != null && (disabled & ValidationProfile.MIN_PROPERTIES) == 0
+          && frame.count < minProperties.intValue()) {
+        error(new MinPropertiesError(frame.uri, frame.document(), schema));
+      }
+      if ((disabled & ValidationProfile.REQUIRED) == 0) {
+        for (String property : schema.getRequiredNames()) {
+          if (!frame.properties.contains(property)) {
+            error(new MissingPropertyError(frame.uri, frame.document(), property, schema));
+          }
+        }
+      }
+      if ((disabled & ValidationProfile.DEPENDENT_REQUIRED) != 0) {
+        continue;
+      }
+      String[] dependentRequiredTriggers = schema.getDependentRequiredTriggers();
+      String[][] dependentRequiredNames = schema.getDependentRequiredNames();
+      for (int idx = 0; idx != dependentRequiredTriggers.length; idx++) {
+        String property = dependentRequiredTriggers[idx];
+        if (!frame.properties.contains(property)) {
+          continue;
+        }
+        for (String dependency : dependentRequiredNames[idx]) {
+          if (!frame.properties.contains(dependency)) {
+            error(new DependencyError(frame.uri, frame.document(), property, dependency, schema));
+          }
+        }
+      }
+    }
+  }
+
+  private void error(ValidationError error) {
+    if (validator.getErrorFilter().test(error)) {
+      errorConsumer.accept(error);
+    }
+  }
+
+  private Object readScalar(JsonToken token) throws IOException {
+    switch (token) {
+      case VALUE_STRING:
+        return parser.getText();
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        return parser.getNumberValue();
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      case VALUE_NULL:
+        return null;
+      default:
+        return parser.getEmbeddedObject();
+    }
+  }
+
+  /**
+   * Reads the array or object at the current token into a tree of maps and lists.
+   *
+   * @return The value, or BufferLimit.INSTANCE if it has more values than the buffer limit of the
+   *     validator. In that case the rest of the value is skipped.
+   */
+  private Object readBuffered(JsonToken token) throws IOException {
+    int limit = validator.getStreamingBufferLimit();
+    int count = 0;
+    Deque<Object> containers = new ArrayDeque<>();
+    Object container = null;
+    String name = null;
+    while (true) {
+      if (token == JsonToken.END_ARRAY || token == JsonToken.END_OBJECT) {
+        Object value = containers.pop();
+        if (containers.isEmpty()) {
+          return value;
+        }
+        container = containers.peek();
+        token = parser.nextToken();
+        continue;
+      }
+      if (token == JsonToken.FIELD_NAME) {
+        name = parser.getCurrentName();
+        token = parser.nextToken();
+        continue;
+      }
+      if (++count > limit) {
+        // The parser is inside the value, so the rest of each enclosing container is skipped.
+        if (token.isStructStart()) {
+          parser.skipChildren();
+        }
+        for (int idx = 0; idx != containers.size(); idx++) {
+          skipToEnd();
+        }
+        return BufferLimit.INSTANCE;
+      }
+      Object value;
+      if (token == JsonToken.START_ARRAY) {
+        value = new ArrayList<>();
+      } else if (token == JsonToken.START_OBJECT) {
+        value = new LinkedHashMap<>();
+      } else {
+        value = readScalar(token);
+      }
+      if (container instanceof List) {
+        ((List<Object>) container).add(value);
+      } else if (container instanceof Map) {
+        ((Map<String, Object>) container).put(name, value);
+      }
+      if (token.isStructStart()) {
+        containers.push(value);
+        container = value;
+      }
+      token = parser.nextToken();
+    }
+  }
+
+  /** Skips the rest of the current array or object, leaving the parser at its end token. */
+  private void skipToEnd() throws IOException {
+    while (true) {
+      JsonToken token = parser.nextToken();
+      if (token == null || token == JsonToken.END_ARRAY || token == JsonToken.END_OBJECT) {
+        return;
+      }
+      parser.skipChildren();
+    }
+  }
+
+  /**
+   * Builds a document that only contains a value at a given location, for the errors of the
+   * value.
+   */
+  private static Object sparseDocument(Frame parent, Object key, Object value) {
+    Object document = value;
+    while (parent != null) {
+      if (parent.array) {
+        document = new SingleItemList((Integer) key, document);
+      } else {
+        document = Collections.singletonMap((String) key, document);
+      }
+      key = parent.key;
+      parent = parent.parent;
+    }
+    return document;
+  }
+
+  /** An array or object being read, with the schemas it is being validated against. */
+  private static class Frame {
+    final Frame parent;
+    final Object key;
+    final URI uri;
+    final boolean array;
+    final int depth;
+    List<Schema> schemas;
+    int count;
+    Set<String> properties;
+    private Object document;
+
+    Frame(List<Schema> schemas, Frame parent, Object key, URI uri, boolean array, int depth) {
+      this.schemas = schemas;
+      this.parent = parent;
+      this.key = key;
+      this.uri = uri;
+      this.array = array;
+      this.depth = depth;
+    }
+
+    /**
+     * Sets up the recording of the properties of an object that are named in required and
+     * dependentRequired keywords. Other properties are not recorded.
+     */
+    void trackProperties() {
+      Set<String> names = new HashSet<>();
+      for (Schema schema : schemas) {
+        Collections.addAll(names, schema.getRequiredNames());
+        Collections.addAll(names, schema.getDependentRequiredTriggers());
+        for (String[] dependentRequiredNames : schema.getDependentRequiredNames()) {
+          Collections.addAll(names, dependentRequiredNames);
+        }
+      }
+      properties = names.isEmpty() ? null : new NamedSet(names);
+    }
+
+    Object document() {
+      if (document == null) {
+        document = sparseDocument(parent, key, null);
+      }
+      return document;
+    }
+  }
+
+  /** A set that only records the strings in a given set of names. */
+  private static class NamedSet extends HashSet<String> {
+    private final Set<String> names;
+
+    NamedSet(Set<String> names) {
+      this.names = names;
+    }
+
+    @Override
+    public boolean add(String s) {
+      return names.contains(s) && super.add(s);
+    }
+  }
+
+  /** A list with a single value at an index, and null at all other indices. */
+  static class SingleItemList extends AbstractList<Object> implements RandomAccess {
+    private final int index;
+    private final Object value;
+
+    SingleItemList(int index, Object value) {
+      this.index = index;
+      this.value = value;
+    }
+
+    @Override
+    public Object get(int index) {
+      if (index < 0 || index > this.index) {
+        throw new IndexOutOfBoundsException();
+      }
+      return index == this.index ? value : null;
+    }
+
+    @Override
+    public int size() {
+      return index + 1;
+    }
+  }
+
+  /** Returned by readBuffered() when a value exceeds the buffer limit. */
+  private static class BufferLimit {
+    static final BufferLimit INSTANCE = new BufferLimit();
+  }
+}
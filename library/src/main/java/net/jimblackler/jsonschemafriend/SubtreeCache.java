@@ -0,0 +1,340 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache of the outcomes of validations of arrays and objects, that can be shared between
+ * validations and threads. Entries are keyed by the schema and a SHA-256 digest of the content of
+ * the array or object, so identical parts of documents (such as the same embedded record appearing
+ * in many documents) are only fully validated once. The digests are keyed with a secret chosen at
+ * random for each cache, so contents that collide can neither be found by chance nor crafted in
+ * advance to make an invalid part pass.
+ *
+ * <p>For parts that passed the schema, the properties and items evaluated by the schema are stored
+ * so that unevaluatedProperties and unevaluatedItems work as without the cache. Errors are not
+ * stored, as they refer to locations in a particular document; parts that failed are validated
+ * again when their errors are needed, and only checks of validity use the stored failure.
+ *
+ * <p>Outcomes depend on the configuration of the validator, so a cache should only be shared by
+ * validators with the same profile and regular expression support. Validators with an error
+ * filter, a maximum depth or disabled instance paths do not use the cache.
+ */
+public class SubtreeCache {
+  // Entries are split between segments with their own locks, so that threads using the cache
+  // rarely wait for each other.
+  private static final int SEGMENTS = 16;
+  private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+  private final int minSize;
+  private final Segment[] segments = new Segment[SEGMENTS];
+  private final byte[] secret = new byte[16];
+  private final MessageDigest prototype;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * @param maxEntries The maximum number of outcomes to keep. The least recently used outcomes are
+   *     evicted first, within each of the segments of the cache.
+   * @param minSize The minimum number of values (counting the array or object itself, and all
+   *     values nested in it) for an array or object to be cached. Small values are faster to
+   *     validate than to look up.
+   */
+  public SubtreeCache(int maxEntries, int minSize) {
+    this.minSize = minSize;
+    int segmentEntries = Math.max(1, (maxEntries + SEGMENTS - 1) / SEGMENTS);
+    for (int idx = 0; idx != SEGMENTS; idx++) {
+      segments[idx] = new Segment(segmentEntries);
+    }
+    SECURE_RANDOM.nextBytes(secret);
+    try {
+      prototype = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** The number of lookups that found a stored outcome. */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /** The number of lookups that found no stored outcome. */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  public void clear() {
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        segment.clear();
+      }
+    }
+    hits.reset();
+    misses.reset();
+  }
+
+  int getMinSize() {
+    return minSize;
+  }
+
+  Outcome get(Key key) {
+    Segment segment = segment(key);
+    Outcome outcome;
+    synchronized (segment) {
+      outcome = segment.get(key);
+    }
+    if (outcome == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return outcome;
+  }
+
+  void put(Key key, Outcome outcome) {
+    Segment segment = segment(key);
+    synchronized (segment) {
+      segment.put(key, outcome);
+    }
+  }
+
+  private Segment segment(Key key) {
+    int hashCode = key.hashCode();
+    return segments[(hashCode ^ hashCode >>> 16) & (SEGMENTS - 1)];
+  }
+
+  /**
+   * Computes the hash of an array or object. Hashes of nested arrays and objects are recorded in
+   * (and reused from) the given map, so each part of a document is only hashed once however many
+   * of its ancestors are hashed. The document is walked with a stack rather than recursion, so
+   * that deeply nested documents can be hashed.
+   */
+  Hash hash(Object container, Map<Object, Hash> hashes) {
+    Hash known = hashes.get(container);
+    if (known != null) {
+      return known;
+    }
+    Deque<HashFrame> stack = new ArrayDeque<>();
+    stack.push(new HashFrame(container, newDigest()));
+    while (true) {
+      HashFrame frame = stack.peek();
+      if (frame.iterator.hasNext()) {
+        Object value = frame.next();
+        if (value instanceof Map || value instanceof List) {
+          Hash hash = hashes.get(value);
+          if (hash == null) {
+            stack.push(new HashFrame(value, newDigest()));
+            continue;
+          }
+          frame.addHash(hash);
+        } else {
+          frame.addScalar(value);
+        }
+        continue;
+      }
+      stack.pop();
+      Hash hash = frame.finish();
+      hashes.put(frame.container, hash);
+      HashFrame parent = stack.peek();
+      if (parent == null) {
+        return hash;
+      }
+      parent.addHash(hash);
+    }
+  }
+
+  /** Returns a digest that has been keyed with the secret of the cache. */
+  private MessageDigest newDigest() {
+    MessageDigest digest;
+    try {
+      digest = (MessageDigest) prototype.clone();
+    } catch (CloneNotSupportedException e) {
+      try {
+        digest = MessageDigest.getInstance(prototype.getAlgorithm());
+      } catch (NoSuchAlgorithmException e1) {
+        throw new IllegalStateException(e1);
+      }
+    }
+    digest.update(secret);
+    return digest;
+  }
+
+  /** A segment of the entries, evicting the least recently used beyond its capacity. */
+  private static class Segment extends LinkedHashMap<Key, Outcome> {
+    private final int maxEntries;
+
+    Segment(int maxEntries) {
+      super(16, 0.75f, true);
+      this.maxEntries = maxEntries;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, Outcome> eldest) {
+      return size() > maxEntries;
+    }
+  }
+
+  /**
+   * An array or object being hashed. Every value is written to the digest with a tag for its type
+   * and, for strings, its length, so that different contents cannot be written as the same bytes.
+   */
+  private static class HashFrame {
+    final Object container;
+    final boolean map;
+    final Iterator<?> iterator;
+    final MessageDigest digest;
+    int size = 1;
+
+    HashFrame(Object container, MessageDigest digest) {
+      this.container = container;
+      this.digest = digest;
+      map = container instanceof Map;
+      if (map) {
+        // Properties are written in the order of their names, as the order does not matter.
+        List<Map.Entry<String, Object>> entries =
+            new ArrayList<>(((Map<String, Object>) container).entrySet());
+        entries.sort(Map.Entry.comparingByKey());
+        iterator = entries.iterator();
+        digest.update((byte) 'O');
+      } else {
+        iterator = ((Collection<?>) container).iterator();
+        digest.update((byte) 'A');
+      }
+    }
+
+    /** Returns the next value, having written the name of the property if this is an object. */
+    Object next() {
+      if (!map) {
+        return iterator.next();
+      }
+      Map.Entry<String, Object> entry = (Map.Entry<String, Object>) iterator.next();
+      writeString(entry.getKey());
+      return entry.getValue();
+    }
+
+    void addScalar(Object value) {
+      if (value == null) {
+        digest.update((byte) 'n');
+      } else if (value instanceof Boolean) {
+        digest.update((byte) ((Boolean) value ? 't' : 'f'));
+      } else if (value instanceof Number) {
+        // Integers of any type validate alike, but integral floating point values may not (for
+        // example, in draft 4 1.0 is not an integer), so the two are kept apart.
+        boolean integer = value instanceof Integer || value instanceof Long
+            || value instanceof Short || value instanceof Byte || value instanceof BigInteger;
+        digest.update((byte) (integer ? 'i' : 'd'));
+        writeString(value.toString());
+      } else if (value instanceof String) {
+        digest.update((byte) 's');
+        writeString((String) value);
+      } else {
+        // Objects of other types fail every schema in the same way, whatever their content.
+        digest.update((byte) 'u');
+        writeString(value.getClass().getName());
+      }
+      size++;
+    }
+
+    void addHash(Hash hash) {
+      digest.update((byte) 'h');
+      digest.update(hash.digest);
+      size += hash.size;
+    }
+
+    private void writeString(String string) {
+      byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+      int length = bytes.length;
+      digest.update(new byte[] {
+          (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+      digest.update(bytes);
+    }
+
+    Hash finish() {
+      return new Hash(digest.digest(), size);
+    }
+  }
+
+  /** The hash of an array or object, and the number of values in it. */
+  static class Hash {
+    final byte[] digest;
+    final int size;
+
+    Hash(byte[] digest, int size) {
+      this.digest = digest;
+      this.size = size;
+    }
+  }
+
+  /** Identifies an evaluation of a schema against arrays or objects with the same content. */
+  static class Key {
+    private final Schema schema;
+    private final Schema recursiveRef;
+    private final Hash hash;
+
+    Key(Schema schema, Schema recursiveRef, Hash hash) {
+      this.schema = schema;
+      this.recursiveRef = recursiveRef;
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return schema == other.schema && recursiveRef == other.recursiveRef
+          && Arrays.equals(hash.digest, other.hash.digest);
+    }
+
+    @Override
+    public int hashCode() {
+      byte[] digest = hash.digest;
+      int digestHash =
+          (digest[0] & 0xff) << 24 | (digest[1] & 0xff) << 16 | (digest[2] & 0xff) << 8
+          | (digest[3] & 0xff);
+      return (System.identityHashCode(schema) * 31 + System.identityHashCode(recursiveRef)) * 31
+          + digestHash;
+    }
+  }
+
+  /** The stored outcome of an evaluation. */
+  static class Outcome {
+    static final Outcome INVALID = new Outcome(false, null, null);
+
+    final boolean valid;
+    final Collection<String> properties;
+    final Collection<Integer> items;
+
+    Outcome(boolean valid, Collection<String> properties, Collection<Integer> items) {
+      this.valid = valid;
+      this.properties = properties;
+      this.items = items;
+    }
+  }
+}
@@ -12,6 +12,11 @@ public class TypeDisallowedError extends ValidationError {
     this.disallowed = disallowed;
   }
 
+  @Override
+  public String getKeyword() {
+    return "disallow";
+  }
+
   @Override
   public String getMessage() {
     return "Type disallowed: " + disallowed;
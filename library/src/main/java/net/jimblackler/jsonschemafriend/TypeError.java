@@ -25,6 +25,11 @@ public class TypeError extends ValidationError {
     return foundTypes;
   }
 
+  @Override
+  public String getKeyword() {
+    return "type";
+  }
+
   @Override
   public String getMessage() {
     return "Expected: [" + String.join(", ", expectedTypes) + "] "
@@ -12,6 +12,11 @@ public class UnexpectedTypeError extends ValidationError {
     this.object = object;
   }
 
+  @Override
+  public String getKeyword() {
+    return "type";
+  }
+
   @Override
   public String getMessage() {
     if (uri.toString().isEmpty()) {
@@ -7,6 +7,11 @@ public class UniqueItemsError extends ValidationError {
     super(uri, document, schema);
   }
 
+  @Override
+  public String getKeyword() {
+    return "uniqueItems";
+  }
+
   @Override
   public String getMessage() {
     return "Items were not unique";
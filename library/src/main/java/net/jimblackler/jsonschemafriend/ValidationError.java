@@ -4,7 +4,7 @@ import java.net.URI;
 
 public abstract class ValidationError {
   private final URI uri;
-  private final Object document;
+  private Object document;
   private final Schema schema;
   private final Object object;
 
@@ -23,13 +23,25 @@ public abstract class ValidationError {
 
   @Override
   public String toString() {
+    return describe(getMessage());
+  }
+
+  /**
+   * Returns a description of the error like toString(), but without the errors it holds (such as
+   * the errors of the branches of anyOf), so that its length is bounded.
+   */
+  String toShortString() {
+    return describe(getShortMessage());
+  }
+
+  private String describe(String message) {
     URI schemaPath = schema.getUri();
 
     String string = object == null ? "" : object.toString();
     return (string.length() <= 20 ? "\"" + string + "\" " : "")
         + (uri.toString().isEmpty() ? "" : "at " + uri + " ") + "failed "
         + (schemaPath.toString().isEmpty() ? "" : "against " + schemaPath + " ") + "with \""
-        + getMessage() + "\"";
+        + message + "\"";
   }
 
   public Object getObject() {
@@ -40,6 +52,19 @@ public abstract class ValidationError {
     return uri;
   }
 
+  /**
+   * Replaces the document with a copy holding only the value of the error and the arrays and
+   * objects that contain it, so that the error does not retain the whole document. The errors of
+   * the branches of anyOf and oneOf are detached by the validator as they are recorded.
+   */
+  void detachDocument() {
+    try {
+      document = PathUtils.extractPath(document, uri.getRawFragment());
+    } catch (MissingPathException e) {
+      document = null;
+    }
+  }
+
   public Object getDocument() {
     return document;
   }
@@ -48,5 +73,18 @@ public abstract class ValidationError {
     return schema;
   }
 
+  /**
+   * The keyword of the schema that the error is from, such as "minimum"; or null for errors from
+   * the schema as a whole.
+   */
+  public String getKeyword() {
+    return null;
+  }
+
   public abstract String getMessage();
+
+  /** The message of the error without the errors it holds. */
+  String getShortMessage() {
+    return getMessage();
+  }
 }
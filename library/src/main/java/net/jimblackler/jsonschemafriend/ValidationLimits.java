@@ -0,0 +1,57 @@
+package net.jimblackler.jsonschemafriend;
+
+/**
+ * Limits on the resources used by each validation of a document, for validating untrusted
+ * documents or schemas. When a limit is exceeded, validation ends and a LimitExceededError is
+ * reported after any errors already found. See Validator.setLimits(). The depth of validation is
+ * limited by Validator.setMaxDepth().
+ */
+public class ValidationLimits {
+  private long maxNodes = Long.MAX_VALUE;
+  private int maxErrors = Integer.MAX_VALUE;
+  private long timeoutMillis;
+
+  /**
+   * Sets a limit on the number of evaluations of a schema against a value in the document,
+   * including those of subschemas and of the branches of applicators. The count is checked every
+   * 64 evaluations on each thread, so a validation can make up to 64 evaluations per thread beyond
+   * the limit before it ends.
+   *
+   * @param maxNodes The maximum number of evaluations. By default there is no limit.
+   */
+  public void setMaxNodes(long maxNodes) {
+    this.maxNodes = maxNodes;
+  }
+
+  public long getMaxNodes() {
+    return maxNodes;
+  }
+
+  /**
+   * Sets a limit on the number of errors reported. Errors in the branches of applicators are not
+   * counted, unless they are reported themselves.
+   *
+   * @param maxErrors The maximum number of errors reported before validation ends. By default
+   *     there is no limit.
+   */
+  public void setMaxErrors(int maxErrors) {
+    this.maxErrors = maxErrors;
+  }
+
+  public int getMaxErrors() {
+    return maxErrors;
+  }
+
+  /**
+   * Sets a limit on the time taken by each validation.
+   *
+   * @param timeoutMillis The maximum time in milliseconds, or 0 (the default) for no limit.
+   */
+  public void setTimeoutMillis(long timeoutMillis) {
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  public long getTimeoutMillis() {
+    return timeoutMillis;
+  }
+}
@@ -0,0 +1,169 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Describes checks that a validator does not make, for lenient validation. Unlike an error filter,
+ * which discards errors after they are found, disabled checks are skipped, so they cost nothing.
+ * See Validator.setProfile().
+ *
+ * <p>Keywords can be disabled in all schemas, or in a single schema. The keywords that can be
+ * disabled are the assertions: type, disallow, enum, const, multipleOf, divisibleBy, maximum,
+ * exclusiveMaximum, minimum, exclusiveMinimum, maxLength, minLength, pattern, format,
+ * contentEncoding, contentMediaType, contains, maxItems, minItems, uniqueItems, maxProperties,
+ * minProperties, required, dependentRequired, dependentSchemas and dependencies. Whole schemas,
+ * including their subschemas, and whole parts of documents can also be disabled.
+ */
+public class ValidationProfile {
+  static final long TYPE = 1L;
+  static final long DISALLOW = 1L << 1;
+  static final long ENUM = 1L << 2;
+  static final long CONST = 1L << 3;
+  static final long MULTIPLE_OF = 1L << 4;
+  static final long DIVISIBLE_BY = 1L << 5;
+  static final long MAXIMUM = 1L << 6;
+  static final long EXCLUSIVE_MAXIMUM = 1L << 7;
+  static final long MINIMUM = 1L << 8;
+  static final long EXCLUSIVE_MINIMUM = 1L << 9;
+  static final long MAX_LENGTH = 1L << 10;
+  static final long MIN_LENGTH = 1L << 11;
+  static final long PATTERN = 1L << 12;
+  static final long FORMAT = 1L << 13;
+  static final long CONTENT = 1L << 14;
+  static final long CONTAINS = 1L << 15;
+  static final long MAX_ITEMS = 1L << 16;
+  static final long MIN_ITEMS = 1L << 17;
+  static final long UNIQUE_ITEMS = 1L << 18;
+  static final long MAX_PROPERTIES = 1L << 19;
+  static final long MIN_PROPERTIES = 1L << 20;
+  static final long REQUIRED = 1L << 21;
+  static final long DEPENDENT_REQUIRED = 1L << 22;
+  static final long DEPENDENT_SCHEMAS = 1L << 23;
+  // The mask of a schema that is disabled as a whole.
+  static final long ALL = ~0L;
+
+  private static final Map<String, Long> KEYWORDS = getKeywords();
+
+  private long keywords;
+  private final Map<URI, Long> schemaKeywords = new HashMap<>();
+  // The disabled paths, as the raw fragments of the URIs the validator gives values.
+  private final List<String> instancePaths = new ArrayList<>();
+
+  private static Map<String, Long> getKeywords() {
+    Map<String, Long> keywords = new HashMap<>();
+    keywords.put("type", TYPE);
+    keywords.put("disallow", DISALLOW);
+    keywords.put("enum", ENUM);
+    keywords.put("const", CONST);
+    keywords.put("multipleOf", MULTIPLE_OF);
+    keywords.put("divisibleBy", DIVISIBLE_BY);
+    keywords.put("maximum", MAXIMUM);
+    keywords.put("exclusiveMaximum", EXCLUSIVE_MAXIMUM);
+    keywords.put("minimum", MINIMUM);
+    keywords.put("exclusiveMinimum", EXCLUSIVE_MINIMUM);
+    keywords.put("maxLength", MAX_LENGTH);
+    keywords.put("minLength", MIN_LENGTH);
+    keywords.put("pattern", PATTERN);
+    keywords.put("format", FORMAT);
+    keywords.put("contentEncoding", CONTENT);
+    keywords.put("contentMediaType", CONTENT);
+    keywords.put("contains", CONTAINS);
+    keywords.put("maxItems", MAX_ITEMS);
+    keywords.put("minItems", MIN_ITEMS);
+    keywords.put("uniqueItems", UNIQUE_ITEMS);
+    keywords.put("maxProperties", MAX_PROPERTIES);
+    keywords.put("minProperties", MIN_PROPERTIES);
+    keywords.put("required", REQUIRED);
+    keywords.put("dependentRequired", DEPENDENT_REQUIRED);
+    keywords.put("dependentSchemas", DEPENDENT_SCHEMAS);
+    keywords.put("dependencies", DEPENDENT_REQUIRED | DEPENDENT_SCHEMAS);
+    return Collections.unmodifiableMap(keywords);
+  }
+
+  /**
+   * Disables a keyword in all schemas.
+   *
+   * @param keyword The name of the keyword, such as "format".
+   * @throws IllegalArgumentException If the keyword cannot be disabled.
+   */
+  public void disableKeyword(String keyword) {
+    keywords |= bitOf(keyword);
+  }
+
+  /**
+   * Disables a keyword in one schema.
+   *
+   * @param schemaUri The URI of the schema, as returned by Schema.getUri().
+   * @param keyword The name of the keyword, such as "format".
+   * @throws IllegalArgumentException If the keyword cannot be disabled.
+   */
+  public void disableKeyword(URI schemaUri, String keyword) {
+    schemaKeywords.merge(schemaUri, bitOf(keyword), (a, b) -> a | b);
+  }
+
+  /**
+   * Disables a schema. Values are not evaluated against the schema, and so pass it.
+   *
+   * @param schemaUri The URI of the schema, as returned by Schema.getUri().
+   */
+  public void disableSchema(URI schemaUri) {
+    schemaKeywords.put(schemaUri, ALL);
+  }
+
+  /**
+   * Disables the validation of a part of documents. The value at the path, and the values it
+   * contains, are not evaluated against any schema.
+   *
+   * @param pointer A JSON Pointer to the value, such as "/metadata", as in the decoded fragments of
+   *     the URIs of errors.
+   */
+  public void disableInstancePath(String pointer) {
+    // The pointer is encoded once here as PathUtils.append() encodes the URIs of values, so the
+    // URIs need no decoding when they are compared.
+    URI uri = URI.create("");
+    String[] tokens = pointer.split("/", -1);
+    for (int idx = 1; idx < tokens.length; idx++) {
+      uri = PathUtils.append(uri, tokens[idx].replace("~1", "/").replace("~0", "~"));
+    }
+    String fragment = uri.getRawFragment();
+    instancePaths.add(fragment == null ? "" : fragment);
+  }
+
+  /** Returns the keywords disabled in a schema, as a mask of the keyword bits. */
+  long resolve(Schema schema) {
+    Long forSchema = schemaKeywords.get(schema.getUri());
+    return forSchema == null ? keywords : keywords | forSchema;
+  }
+
+  boolean hasInstancePaths() {
+    return !instancePaths.isEmpty();
+  }
+
+  /** Returns true if the evaluation of the value at a URI in the document is disabled. */
+  boolean isDisabledPath(URI uri) {
+    String fragment = uri.getRawFragment();
+    if (fragment == null) {
+      fragment = "";
+    }
+    for (String path : instancePaths) {
+      if (fragment.startsWith(path)
+          && (fragment.length() == path.length() || fragment.charAt(path.length()) == '/')) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static long bitOf(String keyword) {
+    Long bit = KEYWORDS.get(keyword);
+    if (bit == null) {
+      throw new IllegalArgumentException("Keyword cannot be disabled: " + keyword);
+    }
+    return bit;
+  }
+}
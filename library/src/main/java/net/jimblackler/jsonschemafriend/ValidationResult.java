@@ -0,0 +1,84 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.util.List;
+
+/**
+ * The outcome of the validation of one document in a batch, of one record of validateJsonLines(),
+ * or of one element of validateArrayElements().
+ */
+public class ValidationResult {
+  private final long index;
+  private final long byteOffset;
+  private final Object document;
+  private final List<ValidationError> errors;
+  private final boolean complete;
+  private final String syntaxError;
+
+  public ValidationResult(
+      long index, Object document, List<ValidationError> errors, boolean complete) {
+    this(index, document, errors, complete, null);
+  }
+
+  public ValidationResult(long index, Object document, List<ValidationError> errors,
+      boolean complete, String syntaxError) {
+    this(index, -1, document, errors, complete, syntaxError);
+  }
+
+  public ValidationResult(long index, long byteOffset, Object document,
+      List<ValidationError> errors, boolean complete, String syntaxError) {
+    this.index = index;
+    this.byteOffset = byteOffset;
+    this.document = document;
+    this.errors = errors;
+    this.complete = complete;
+    this.syntaxError = syntaxError;
+  }
+
+  /**
+   * The position of the document in the batch, or of the element in the array. For
+   * validateJsonLines(), the number of the line of the record less one, as blank lines are counted
+   * but have no result.
+   */
+  public long getIndex() {
+    return index;
+  }
+
+  /**
+   * The offset of the start of the record or element in the (decompressed) input, or -1 if the
+   * document was not read by the validator.
+   */
+  public long getByteOffset() {
+    return byteOffset;
+  }
+
+  /** The document, or null if it could not be parsed. */
+  public Object getDocument() {
+    return document;
+  }
+
+  public List<ValidationError> getErrors() {
+    return errors;
+  }
+
+  /**
+   * Returns false if the document was not fully validated: because the error limit of the batch
+   * was exceeded first, because a limit of the validator was exceeded (reported as a
+   * LimitExceededError), or because it could not be parsed. The errors found before validation
+   * stopped are still reported.
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  /**
+   * A description of the problem if the document could not be parsed; otherwise null. Only set
+   * for the records of validateJsonLines() and the elements of validateArrayElements().
+   */
+  public String getSyntaxError() {
+    return syntaxError;
+  }
+
+  public boolean isValid() {
+    return complete && errors.isEmpty();
+  }
+}
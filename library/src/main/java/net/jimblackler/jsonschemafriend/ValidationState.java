@@ -0,0 +1,139 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * The recorded outcomes of the evaluations of a validation of a document, so that the document can
+ * be validated again after edits by Validator.revalidate(), evaluating only the parts of the
+ * document affected by the edits. The outcomes are indexed by the location in the document of the
+ * value evaluated. Not thread-safe.
+ */
+public class ValidationState {
+  private final Schema schema;
+  private final Map<Validator.MemoKey, Validator.MemoResult> memo = new HashMap<>();
+  // Keys of the recorded outcomes, by the (escaped) JSON Pointer of the value evaluated.
+  private final NavigableMap<String, List<Validator.MemoKey>> byPointer = new TreeMap<>();
+
+  ValidationState(Schema schema) {
+    this.schema = schema;
+  }
+
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /** The number of outcomes recorded. */
+  public int size() {
+    return memo.size();
+  }
+
+  Map<Validator.MemoKey, Validator.MemoResult> getMemo() {
+    return memo;
+  }
+
+  void record(Validator.MemoKey key, URI uri) {
+    byPointer.computeIfAbsent(pointerOf(uri), k -> new ArrayList<>()).add(key);
+  }
+
+  /**
+   * Discards the outcomes of the evaluations that depend on the value at a location in the
+   * document: evaluations of that value, of values inside it, and of the values that contain it.
+   * When the location is an item of an array, the following items may have moved, so the outcomes
+   * for the whole array are discarded.
+   *
+   * @param pointer A JSON Pointer to a value that has been changed, added or removed.
+   * @param document The edited document.
+   */
+  void invalidate(String pointer, Object document) {
+    List<String> tokens = new ArrayList<>();
+    if (!pointer.isEmpty()) {
+      for (String token : pointer.substring(1).split("/", -1)) {
+        tokens.add(token.replace("~1", "/").replace("~0", "~"));
+      }
+    }
+    if (!tokens.isEmpty() && isArrayIndex(tokens.get(tokens.size() - 1))
+        && parentIsArray(tokens, document)) {
+      tokens.remove(tokens.size() - 1);
+    }
+    URI uri = URI.create("");
+    for (String token : tokens) {
+      uri = PathUtils.append(uri, token);
+    }
+    String changed = pointerOf(uri);
+    // Values inside the changed value are those with pointers that extend its pointer.
+    discard(byPointer.subMap(changed + "/", true, changed + "0", false));
+    discard(byPointer.subMap(changed, true, changed, true));
+    // Values containing the changed value have pointers that are prefixes of its pointer.
+    int end = changed.lastIndexOf('/');
+    while (end != -1) {
+      String ancestor = changed.substring(0, end);
+      discard(byPointer.subMap(ancestor, true, ancestor, true));
+      end = ancestor.lastIndexOf('/');
+    }
+  }
+
+  private static boolean isArrayIndex(String token) {
+    if (token.equals("-")) {
+      return true;
+    }
+    if (token.isEmpty()) {
+      return false;
+    }
+    for (int idx = 0; idx != token.length(); idx++) {
+      if (!Character.isDigit(token.charAt(idx))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns true if the value that contains the last token of a pointer is an array in the
+   * document, or cannot be found (as when an edit removed it), in which case it is assumed to be.
+   */
+  private static boolean parentIsArray(List<String> tokens, Object document) {
+    Object object = document;
+    for (String token : tokens.subList(0, tokens.size() - 1)) {
+      if (object instanceof Map) {
+        object = ((Map<?, ?>) object).get(token);
+      } else if (object instanceof List && isArrayIndex(token) && !token.equals("-")) {
+        List<?> list = (List<?>) object;
+        int index;
+        try {
+          index = Integer.parseInt(token);
+        } catch (NumberFormatException e) {
+          return true;
+        }
+        if (index >= list.size()) {
+          return true;
+        }
+        object = list.get(index);
+      } else {
+        return true;
+      }
+    }
+    return object instanceof List || !(object instanceof Map);
+  }
+
+  private void discard(Map<String, List<Validator.MemoKey>> entries) {
+    Iterator<List<Validator.MemoKey>> it = entries.values().iterator();
+    while (it.hasNext()) {
+      for (Validator.MemoKey key : it.next()) {
+        memo.remove(key);
+      }
+      it.remove();
+    }
+  }
+
+  private static String pointerOf(URI uri) {
+    String fragment = uri.getRawFragment();
+    return fragment == null ? "" : fragment;
+  }
+}
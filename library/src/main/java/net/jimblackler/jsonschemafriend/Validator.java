@@ -1,45 +1,111 @@
 package net.jimblackler.jsonschemafriend;
 
-import static java.util.Base64.getUrlDecoder;
 import static net.jimblackler.jsonschemafriend.ComparableUtils.makeComparable;
 import static net.jimblackler.jsonschemafriend.DocumentUtils.loadJson;
 import static net.jimblackler.jsonschemafriend.MetaSchemaUris.DRAFT_3;
 import static net.jimblackler.jsonschemafriend.MetaSchemaUris.DRAFT_4;
 import static net.jimblackler.jsonschemafriend.MetaSchemaUris.DRAFT_6;
 import static net.jimblackler.jsonschemafriend.MetaSchemaUris.DRAFT_7;
-import static net.jimblackler.jsonschemafriend.Utils.setOf;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonParser;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Base64;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
-
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Validates documents against schemas. A configured Validator can be used by many threads at once.
+ * The setters are not synchronized with validations in progress, so a Validator should be fully
+ * configured before it is first used and not reconfigured while any validation using it may be
+ * running; use another Validator for a different configuration.
+ */
 public class Validator {
   private static final Logger LOG = Logger.getLogger(Validator.class.getName());
 
+  private static final Consumer<String> IGNORE_PROPERTY = property -> {};
+  private static final Consumer<Integer> IGNORE_ITEM = item -> {};
+  private static final Predicate<ValidationError> ACCEPT_ALL = validationError -> true;
+  private static final Consumer<ValidationError> FAIL_FAST = validationError -> {
+    throw InvalidException.INSTANCE;
+  };
+  // The work stack of each thread, shared by the validations on that thread. Each validation only
+  // uses the part above the size it found on entry, so validations nested on the same thread, such
+  // as tasks run while joining in a ForkJoinPool, leave the stack as they found it.
+  private static final ThreadLocal<List<PendingValidation>> WORK_STACKS =
+      ThreadLocal.withInitial(ArrayList::new);
+  // Work stacks that have grown beyond this are not kept for reuse.
+  private static final int MAX_RETAINED_WORK = 1 << 16;
+  private static final Set<String> NUMBER_TYPES = typesOf("number");
+  private static final Set<String> INTEGER_TYPES = typesOf("number", "integer");
+  private static final Set<String> STRING_TYPES = typesOf("string");
+  private static final Set<String> BOOLEAN_TYPES = typesOf("boolean");
+  private static final Set<String> ARRAY_TYPES = typesOf("array");
+  private static final Set<String> OBJECT_TYPES = typesOf("object");
+  private static final Set<String> NULL_TYPES = typesOf("null");
+
   private final RegExPatternSupplier regExPatternSupplier;
   private final Predicate<? super ValidationError> errorFilter;
+  private int maxDepth = Integer.MAX_VALUE;
+  private int maxStackDepth = Integer.MAX_VALUE;
+  private boolean memoize;
+  private ForkJoinPool forkJoinPool;
+  private int parallelThreshold = 1000;
+  private Executor batchExecutor;
+  private int batchMaxErrors = Integer.MAX_VALUE;
+  private int batchReadAhead = 1024;
+  private int streamingBufferLimit = 100000;
+  private int jsonLinesReadAhead = 1024;
+  private int arrayChunkSize = 1 << 20;
+  private SubtreeCache subtreeCache;
+  private int maxBranchErrors = Integer.MAX_VALUE;
+  private int maxBranchDepth = Integer.MAX_VALUE;
+  private boolean summarizeBranches;
+  private boolean detachDocuments;
+  private ValidationLimits limits;
+  private ValidationProfile profile;
+  // The keywords disabled by the profile in each schema, resolved when the schema is first used.
+  private final Map<Schema, Long> disabledKeywords = new ConcurrentHashMap<>();
+  private final List<NodeAdapter> nodeAdapters = NodeViews.defaultAdapters();
 
   public Validator() {
-    this(validationError -> true);
+    this(ACCEPT_ALL);
   }
 
   public Validator(Predicate<? super ValidationError> errorFilter) {
@@ -52,6 +118,389 @@ public class Validator {
     this.errorFilter = errorFilter;
   }
 
+  /**
+   * Sets a limit on the number of nested schema evaluations, counting both the nesting of the
+   * document and the schemas reached through references and applicators. When the limit is
+   * exceeded, validation ends and a LimitExceededError is reported, as for the limits of
+   * {@link #setLimits(ValidationLimits)}.
+   *
+   * <p>Children of arrays and objects are validated from a work stack rather than on the Java
+   * stack, so deeply nested documents do not need a large thread stack. The stack used by
+   * recursive schemas built from applicators such as anyOf is bounded separately, by
+   * {@link #setMaxStackDepth(int)}.
+   *
+   * @param maxDepth The maximum depth. By default there is no limit.
+   */
+  public void setMaxDepth(int maxDepth) {
+    this.maxDepth = maxDepth;
+  }
+
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Sets a limit on the number of schema evaluations nested on the Java stack. Children of arrays
+   * and objects are validated from a work stack, but applicators whose result must be known before
+   * continuing (anyOf, oneOf, not, if, contains and the schemas of draft 3 type and disallow)
+   * evaluate their subschemas on the Java stack, as do references. A schema that recurses through
+   * them at every level of a document nests about two evaluations per level. When the limit is
+   * exceeded, validation ends and a LimitExceededError is reported instead of overflowing the
+   * stack.
+   *
+   * <p>A limit of 256 leaves a wide margin on the default 1 MB thread stack of 64-bit JVMs.
+   *
+   * @param maxStackDepth The maximum number of evaluations nested on the Java stack. By default
+   *     there is no limit.
+   */
+  public void setMaxStackDepth(int maxStackDepth) {
+    this.maxStackDepth = maxStackDepth;
+  }
+
+  public int getMaxStackDepth() {
+    return maxStackDepth;
+  }
+
+  /**
+   * Enables memoization of evaluations within each validation. When the same schema is evaluated
+   * against the same part of a document more than once, for example when several branches of an
+   * anyOf reference a common schema, the errors and evaluated properties and items of the first
+   * evaluation are replayed rather than evaluated again. This can reduce the cost of validation
+   * with recursive or heavily referenced schemas from exponential to linear, at the cost of memory
+   * for the recorded outcomes of the validation. The same errors are reported, but possibly in a
+   * different order.
+   *
+   * @param memoize Whether to memoize evaluations. Disabled by default.
+   */
+  public void setMemoize(boolean memoize) {
+    this.memoize = memoize;
+  }
+
+  public boolean isMemoize() {
+    return memoize;
+  }
+
+  /**
+   * Enables parallel validation of large arrays and objects. The children of arrays and objects
+   * with at least the threshold number of children are split into chunks and validated as tasks on
+   * the pool. Errors are passed to the consumer on the calling thread, in the same order as in
+   * sequential validation. Any FormatValidator or RegExPatternSupplier in use must be thread-safe.
+   *
+   * @param forkJoinPool The pool to validate on, or null (the default) to validate sequentially.
+   */
+  public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+    this.forkJoinPool = forkJoinPool;
+  }
+
+  public ForkJoinPool getForkJoinPool() {
+    return forkJoinPool;
+  }
+
+  /**
+   * Sets the minimum number of children of an array or object for them to be validated in
+   * parallel, when a ForkJoinPool is set.
+   *
+   * @param parallelThreshold The minimum number of children. The default is 1000.
+   */
+  public void setParallelThreshold(int parallelThreshold) {
+    this.parallelThreshold = parallelThreshold;
+  }
+
+  public int getParallelThreshold() {
+    return parallelThreshold;
+  }
+
+  /**
+   * Sets the executor on which the documents of validateAll() are validated. This can be a thread
+   * pool, or on newer JDKs an executor of virtual threads.
+   *
+   * @param batchExecutor The executor, or null (the default) to use the common ForkJoinPool.
+   */
+  public void setBatchExecutor(Executor batchExecutor) {
+    this.batchExecutor = batchExecutor;
+  }
+
+  public Executor getBatchExecutor() {
+    return batchExecutor;
+  }
+
+  /**
+   * Sets a limit on the total number of errors reported by each call to validateAll(). The
+   * document with the first error beyond the limit is reported as incomplete, with the errors found
+   * up to the limit. Documents not started by then are not validated, and are reported as
+   * incomplete.
+   *
+   * @param batchMaxErrors The maximum number of errors. By default there is no limit.
+   */
+  public void setBatchMaxErrors(int batchMaxErrors) {
+    this.batchMaxErrors = batchMaxErrors;
+  }
+
+  public int getBatchMaxErrors() {
+    return batchMaxErrors;
+  }
+
+  /**
+   * Sets the maximum number of documents of validateAll() that are taken ahead of the consumer of
+   * the results. This bounds the memory used by validations in flight, and stops a stream of
+   * documents from being read faster than the results are consumed.
+   *
+   * @param batchReadAhead The maximum number of documents being validated or waiting to be
+   *     consumed. The default is 1024.
+   */
+  public void setBatchReadAhead(int batchReadAhead) {
+    this.batchReadAhead = batchReadAhead;
+  }
+
+  public int getBatchReadAhead() {
+    return batchReadAhead;
+  }
+
+  /**
+   * Sets a limit on the size of the arrays and objects that are read into memory during streaming
+   * validation, for schemas with keywords that need the whole value at once. Values over the limit
+   * are not validated and a BufferLimitError is reported instead.
+   *
+   * @param streamingBufferLimit The maximum number of values, counting each item, property value,
+   *     array and object, in one buffered value. The default is 100000.
+   */
+  public void setStreamingBufferLimit(int streamingBufferLimit) {
+    this.streamingBufferLimit = streamingBufferLimit;
+  }
+
+  public int getStreamingBufferLimit() {
+    return streamingBufferLimit;
+  }
+
+  /**
+   * Sets the maximum number of records of validateJsonLines() that are read ahead of the consumer
+   * of the results. This bounds the memory used by the pipeline, and stops the input from being
+   * read faster than the results are consumed.
+   *
+   * @param jsonLinesReadAhead The maximum number of records being parsed, validated or waiting to
+   *     be consumed. The default is 1024.
+   */
+  public void setJsonLinesReadAhead(int jsonLinesReadAhead) {
+    this.jsonLinesReadAhead = jsonLinesReadAhead;
+  }
+
+  public int getJsonLinesReadAhead() {
+    return jsonLinesReadAhead;
+  }
+
+  /**
+   * Sets the approximate size of the chunks of elements parsed and validated as one task by
+   * validateArrayElements().
+   *
+   * @param arrayChunkSize The chunk size in bytes. The default is 1MB.
+   */
+  public void setArrayChunkSize(int arrayChunkSize) {
+    this.arrayChunkSize = arrayChunkSize;
+  }
+
+  public int getArrayChunkSize() {
+    return arrayChunkSize;
+  }
+
+  /**
+   * Sets a cache of the outcomes of validations of arrays and objects, which can be shared between
+   * validations (and validators with the same configuration). Parts of documents with the same
+   * content as a part already validated against the same schema are not validated again, unless
+   * their errors are needed. As outcomes are keyed by content rather than location, the cache is
+   * not used when a maximum depth, an error filter or a profile with disabled instance paths is
+   * set.
+   *
+   * <p>Arrays and objects large enough to be cached are validated on the Java stack rather than
+   * the work stack, so very deeply nested documents may need a larger thread stack.
+   *
+   * @param subtreeCache The cache, or null (the default) for no cache.
+   */
+  public void setSubtreeCache(SubtreeCache subtreeCache) {
+    this.subtreeCache = subtreeCache;
+  }
+
+  public SubtreeCache getSubtreeCache() {
+    return subtreeCache;
+  }
+
+  /**
+   * Sets limits on the resources used by each validation of a document by the validate() methods
+   * for documents in memory, and so by validateAll() and validateJsonLines(). When a limit is
+   * exceeded, validation ends and a LimitExceededError is reported. The error limit is checked at
+   * each error; the others are checked every 64 evaluations on each thread, so the node limit can
+   * be passed by up to 64 evaluations per thread. The depth of validation is limited by
+   * {@link #setMaxDepth(int)}.
+   *
+   * @param limits The limits, or null (the default) for no limits.
+   */
+  public void setLimits(ValidationLimits limits) {
+    this.limits = limits;
+  }
+
+  public ValidationLimits getLimits() {
+    return limits;
+  }
+
+  /**
+   * Sets a profile of checks that are not made. The profile is resolved for each schema when the
+   * schema is first used, so disabled checks add no cost to validation. The profile should not be
+   * changed after it is set.
+   *
+   * @param profile The profile, or null (the default) to make all checks.
+   */
+  public void setProfile(ValidationProfile profile) {
+    this.profile = profile;
+    disabledKeywords.clear();
+  }
+
+  public ValidationProfile getProfile() {
+    return profile;
+  }
+
+  /** Returns the keywords of a schema disabled by the profile, as ValidationProfile bits. */
+  long disabledKeywords(Schema schema) {
+    if (profile == null) {
+      return 0;
+    }
+    return disabledKeywords.computeIfAbsent(schema, profile::resolve);
+  }
+
+  /** Returns true if the profile disables the evaluation of the value at a URI in a document. */
+  boolean isDisabledPath(URI uri) {
+    return profile != null && profile.hasInstancePaths() && profile.isDisabledPath(uri);
+  }
+
+  /**
+   * Sets a limit on the number of errors kept for each branch of anyOf and oneOf, in the errors
+   * reported when they fail. Errors over the limit still count towards the outcome of the branch.
+   *
+   * @param maxBranchErrors The maximum number of errors per branch. By default there is no limit.
+   */
+  public void setMaxBranchErrors(int maxBranchErrors) {
+    this.maxBranchErrors = maxBranchErrors;
+  }
+
+  public int getMaxBranchErrors() {
+    return maxBranchErrors;
+  }
+
+  /**
+   * Sets a limit on the nesting of anyOf and oneOf within the branches of other anyOf and oneOf
+   * for which the errors of branches are kept. Errors for anyOf and oneOf nested more deeply are
+   * still reported, but hold no branch errors.
+   *
+   * <p>With memoization, an error replayed from an earlier evaluation of the same schema and
+   * value holds the branch errors kept for that evaluation.
+   *
+   * @param maxBranchDepth The number of levels that keep their branch errors; 1 keeps only those
+   *     of the outermost anyOf and oneOf, and 0 keeps none. By default there is no limit.
+   */
+  public void setMaxBranchDepth(int maxBranchDepth) {
+    this.maxBranchDepth = maxBranchDepth;
+  }
+
+  public int getMaxBranchDepth() {
+    return maxBranchDepth;
+  }
+
+  /**
+   * Sets whether the errors of failing anyOf and oneOf are summarized by the branch that came
+   * closest to passing. When set, getAllErrors() of AnyOfError and OneOfError holds a single list:
+   * the errors of the branch with the fewest errors (the first such branch in a tie).
+   *
+   * @param summarizeBranches True to keep only the best-matching branch. The default is false.
+   */
+  public void setSummarizeBranches(boolean summarizeBranches) {
+    this.summarizeBranches = summarizeBranches;
+  }
+
+  public boolean isSummarizeBranches() {
+    return summarizeBranches;
+  }
+
+  /**
+   * Sets whether reported errors are detached from the document. A detached error's getDocument()
+   * returns a copy holding only the failing value and the arrays and objects containing it, so
+   * errors that are retained do not keep the whole document in memory. getUri() still locates the
+   * value in the copy.
+   *
+   * @param detachDocuments True to detach errors. The default is false.
+   */
+  public void setDetachDocuments(boolean detachDocuments) {
+    this.detachDocuments = detachDocuments;
+  }
+
+  public boolean isDetachDocuments() {
+    return detachDocuments;
+  }
+
+  /**
+   * Adds an adapter for documents held as a third-party JSON tree type. Adapters for Jackson, Gson
+   * and org.json trees are present by default, when those libraries are available, as is one for
+   * Java beans, records, Collections and arrays (see BeanNodeAdapter). Documents are read through
+   * their adapter as they are validated, rather than converted first, and the documents of errors
+   * are views of the tree as Maps and Lists. Adapters added later take priority.
+   *
+   * <p>A document made only of Maps, Lists and scalars is read as it is. Maps and Lists holding
+   * other objects, such as a List of beans, are read through views so that those objects can be
+   * adapted.
+   *
+   * @param nodeAdapter The adapter to add.
+   */
+  public void addNodeAdapter(NodeAdapter nodeAdapter) {
+    nodeAdapters.add(0, nodeAdapter);
+  }
+
+  /**
+   * Compiles a schema into a plan of checks specialized to its keywords, for fast validity checks
+   * of documents against frequently used schemas. The compiled schema uses the configuration of
+   * this validator.
+   *
+   * @param schema The schema to compile.
+   * @return The compiled schema.
+   */
+  public CompiledSchema compile(Schema schema) {
+    return new CompiledSchema(this, schema);
+  }
+
+  /**
+   * Returns true if compiled schemas give the same outcomes as this validator. The error filter,
+   * the depth limits, the limits of setLimits() and the profile can change outcomes, so compiled
+   * plans are not used when they are set.
+   */
+  boolean isCompilable() {
+    return errorFilter == ACCEPT_ALL && maxDepth == Integer.MAX_VALUE
+        && maxStackDepth == Integer.MAX_VALUE && limits == null && profile == null;
+  }
+
+  Object adapt(Object document) {
+    return NodeViews.adapt(document, nodeAdapters);
+  }
+
+  /** Determines whether an object, which is the whole document, passes a schema. */
+  boolean isValid(Schema schema, Object object) {
+    Context context = new Context(memoize);
+    context.guard = newGuard(null);
+    try {
+      return isValid(schema, object, URI.create(""), object, null, 0, context);
+    } catch (LimitException e) {
+      // The object is not known to be valid.
+      return false;
+    }
+  }
+
+  Predicate<? super ValidationError> getErrorFilter() {
+    return errorFilter;
+  }
+
+  RegExPatternSupplier getRegExPatternSupplier() {
+    return regExPatternSupplier;
+  }
+
+  private static Set<String> typesOf(String... types) {
+    return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(types)));
+  }
+
   public static Object getObject(Object document, URI uri) throws MissingPathException {
     Object object;
     String query = uri.getQuery();
@@ -68,23 +517,407 @@ public class Validator {
 
   public void validate(
       Schema schema, Object document, URI uri, Consumer<ValidationError> errorConsumer) {
-    validate(schema, document, uri, errorConsumer, property -> {}, item -> {}, null);
+    validate(schema, document, uri, errorConsumer, IGNORE_PROPERTY, IGNORE_ITEM, null);
   }
 
   public void validate(Schema schema, Object document, URI uri,
       Consumer<ValidationError> errorConsumer, Schema recursiveRef) {
-    validate(schema, document, uri, errorConsumer, property -> {}, item -> {}, recursiveRef);
+    validate(schema, document, uri, errorConsumer, IGNORE_PROPERTY, IGNORE_ITEM, recursiveRef);
   }
 
   public void validate(Schema schema, Object document, URI uri,
       Consumer<ValidationError> errorConsumer, Consumer<String> propertyConsumer,
       Consumer<Integer> itemConsumer, Schema recursiveRef) {
+    validate(schema, document, uri, errorConsumer, propertyConsumer, itemConsumer, recursiveRef,
+        null);
+  }
+
+  /**
+   * Validates a document, ending the validation early if a cancellation token is cancelled. A
+   * cancelled validation reports a LimitExceededError.
+   *
+   * @param schema The schema to validate against.
+   * @param document The document to validate.
+   * @param errorConsumer The consumer for errors.
+   * @param cancellationToken The token to cancel the validation with.
+   */
+  public void validate(Schema schema, Object document, Consumer<ValidationError> errorConsumer,
+      CancellationToken cancellationToken) {
+    validate(schema, document, URI.create(""), errorConsumer, IGNORE_PROPERTY, IGNORE_ITEM, null,
+        cancellationToken);
+  }
+
+  private void validate(Schema schema, Object document, URI uri,
+      Consumer<ValidationError> errorConsumer, Consumer<String> propertyConsumer,
+      Consumer<Integer> itemConsumer, Schema recursiveRef, CancellationToken cancellationToken) {
+    document = NodeViews.adapt(document, nodeAdapters);
     Object object;
     try {
       object = getObject(document, uri);
     } catch (MissingPathException e) {
       throw new IllegalStateException(e);
     }
+    validateWithLimits(schema, document, uri, object, detaching(errorConsumer), propertyConsumer,
+        itemConsumer, recursiveRef, 0, new Context(memoize), newGuard(cancellationToken));
+  }
+
+  /** Returns a guard of the limits of a validation, or null if it has no limits. */
+  private Guard newGuard(CancellationToken cancellationToken) {
+    if (limits == null && cancellationToken == null) {
+      return null;
+    }
+    return new Guard(limits == null ? new ValidationLimits() : limits, cancellationToken);
+  }
+
+  /**
+   * Validates an object in a document as a whole validation, which ends when a limit is exceeded.
+   *
+   * @param guard The guard of the limits of the validation, or null for none but the depth limits.
+   * @return False if the validation ended early, in which case a LimitExceededError was reported
+   *     after the errors found before it ended.
+   */
+  private boolean validateWithLimits(Schema schema, Object document, URI uri, Object object,
+      Consumer<ValidationError> errorConsumer, Consumer<String> propertyConsumer,
+      Consumer<Integer> itemConsumer, Schema recursiveRef, int depth, Context context,
+      Guard guard) {
+    Consumer<ValidationError> consumer = errorConsumer;
+    if (guard != null) {
+      context.guard = guard;
+      consumer = validationError -> {
+        guard.countError(validationError);
+        errorConsumer.accept(validationError);
+      };
+    }
+    try {
+      validateNow(schema, document, uri, object, consumer, propertyConsumer, itemConsumer,
+          recursiveRef, depth, context);
+      return true;
+    } catch (LimitException e) {
+      errorConsumer.accept(new LimitExceededError(e.uri, document, e.schema, e.limit));
+      return false;
+    }
+  }
+
+  /** Wraps a consumer of errors to detach the errors from the document, when configured to. */
+  private Consumer<ValidationError> detaching(Consumer<ValidationError> errorConsumer) {
+    if (!detachDocuments) {
+      return errorConsumer;
+    }
+    return error -> {
+      error.detachDocument();
+      errorConsumer.accept(error);
+    };
+  }
+
+  /**
+   * Validates an object against a schema for streaming validation, where the object has been read
+   * from the parser and the document only contains the object.
+   *
+   * @return False if the depth limits were exceeded, in which case a LimitExceededError was
+   *     reported and the validation of the document should end.
+   */
+  boolean validateStreamed(Schema schema, Object document, URI uri, Object object,
+      Consumer<ValidationError> errorConsumer, int depth) {
+    return validateWithLimits(schema, document, uri, object, errorConsumer, IGNORE_PROPERTY,
+        IGNORE_ITEM, null, depth, new Context(memoize), null);
+  }
+
+  /**
+   * Validates an element of validateArrayElements() against the schemas of its position in the
+   * array, as one validation under the limits of setLimits().
+   *
+   * @return False if a limit was exceeded, in which case a LimitExceededError was reported and
+   *     the validation of the element ended.
+   */
+  boolean validateElement(List<Schema> schemas, Object document, URI uri, Object object,
+      Consumer<ValidationError> errorConsumer) {
+    Guard guard = newGuard(null);
+    for (Schema schema : schemas) {
+      if (!validateWithLimits(schema, document, uri, object, errorConsumer, IGNORE_PROPERTY,
+              IGNORE_ITEM, null, 1, new Context(memoize), guard)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Validates an object in a document against a schema, including all of its children, before
+   * returning. This is used where the errors of the evaluation must be known before continuing.
+   * When memoization is enabled, the outcome is recorded, and is replayed for later evaluations of
+   * the same schema against the same part of the document. When a subtree cache is set, outcomes
+   * for large arrays and objects are looked up in and recorded to the cache.
+   *
+   * @param context The state of the current validation. The validations deferred by this
+   *     evaluation are run from its work stack, in a loop, so that the Java stack does not grow
+   *     with the depth of the document.
+   */
+  private void validateNow(Schema schema, Object document, URI uri, Object object,
+      Consumer<ValidationError> errorConsumer, Consumer<String> propertyConsumer,
+      Consumer<Integer> itemConsumer, Schema recursiveRef, int depth, Context context) {
+    SubtreeCache.Key cacheKey = subtreeCacheKey(schema, object, recursiveRef, context);
+    if (cacheKey != null) {
+      SubtreeCache.Outcome outcome = subtreeCache.get(cacheKey);
+      if (outcome != null) {
+        if (outcome.valid) {
+          outcome.properties.forEach(propertyConsumer);
+          outcome.items.forEach(itemConsumer);
+          return;
+        }
+        if (errorConsumer == FAIL_FAST) {
+          throw InvalidException.INSTANCE;
+        }
+        // The errors of the object are needed, so it is validated again.
+      }
+    }
+
+    Map<MemoKey, MemoResult> memo = context.memo;
+    MemoKey key = null;
+    if (memo != null) {
+      key = new MemoKey(schema, uri, recursiveRef);
+      MemoResult result = memo.get(key);
+      if (result != null) {
+        result.errors.forEach(errorConsumer);
+        result.properties.forEach(propertyConsumer);
+        result.items.forEach(itemConsumer);
+        return;
+      }
+    } else if (cacheKey == null) {
+      validateAndDrain(schema, document, uri, object, errorConsumer, propertyConsumer,
+          itemConsumer, recursiveRef, depth, context);
+      return;
+    }
+
+    // Evaluated properties and items are always recorded, as later evaluations may need them even
+    // if this one does not.
+    List<ValidationError> errors = new ArrayList<>();
+    Collection<String> properties = new HashSet<>();
+    Collection<Integer> items = new HashSet<>();
+    try {
+      validateAndDrain(schema, document, uri, object, validationError -> {
+        errors.add(validationError);
+        errorConsumer.accept(validationError);
+      }, property -> {
+        properties.add(property);
+        propertyConsumer.accept(property);
+      }, item -> {
+        items.add(item);
+        itemConsumer.accept(item);
+      }, recursiveRef, depth, context);
+    } catch (InvalidException e) {
+      // A check of validity was abandoned at the first error, which is enough to record a failure.
+      if (cacheKey != null && !errors.isEmpty()) {
+        subtreeCache.put(cacheKey, SubtreeCache.Outcome.INVALID);
+      }
+      throw e;
+    }
+
+    if (key != null) {
+      memo.put(key, new MemoResult(errors, properties, items));
+      if (context.state != null) {
+        context.state.record(key, uri);
+      }
+    }
+    if (cacheKey != null) {
+      subtreeCache.put(cacheKey,
+          errors.isEmpty() ? new SubtreeCache.Outcome(true, properties, items)
+                           : SubtreeCache.Outcome.INVALID);
+    }
+  }
+
+  /**
+   * Returns the key in the subtree cache for an evaluation of a schema against an object, or null
+   * if the object is not to be cached.
+   */
+  private SubtreeCache.Key subtreeCacheKey(
+      Schema schema, Object object, Schema recursiveRef, Context context) {
+    // Outcomes are keyed by content alone, so they are not cached when they can also depend on
+    // where the content is in the document, through its depth, an error filter or disabled paths.
+    if (subtreeCache == null || maxDepth != Integer.MAX_VALUE || errorFilter != ACCEPT_ALL
+        || profile != null && profile.hasInstancePaths()
+        || !(object instanceof Map || object instanceof List)) {
+      return null;
+    }
+    if (context.hashes == null) {
+      context.hashes = new IdentityHashMap<>();
+    }
+    SubtreeCache.Hash hash = subtreeCache.hash(object, context.hashes);
+    if (hash.size < subtreeCache.getMinSize()) {
+      return null;
+    }
+    return new SubtreeCache.Key(schema, recursiveRef, hash);
+  }
+
+  private void validateAndDrain(Schema schema, Object document, URI uri, Object object,
+      Consumer<ValidationError> errorConsumer, Consumer<String> propertyConsumer,
+      Consumer<Integer> itemConsumer, Schema recursiveRef, int depth, Context context) {
+    List<PendingValidation> work = context.work;
+    int mark = work.size();
+    try {
+      validate(schema, document, uri, object, errorConsumer, propertyConsumer, itemConsumer,
+          recursiveRef, depth, context);
+      scheduleBatch(work, mark, context);
+      while (work.size() > mark) {
+        PendingValidation pending = work.remove(work.size() - 1);
+        if (context.state != null
+            || subtreeCacheKey(pending.schema, pending.object, pending.recursiveRef, context)
+                != null) {
+          // The outcome must be known to be recorded, so the child is validated before continuing.
+          validateNow(pending.schema, pending.document, pending.uri, pending.object,
+              pending.errorConsumer, IGNORE_PROPERTY, IGNORE_ITEM, pending.recursiveRef,
+              pending.depth, context);
+          continue;
+        }
+        int start = work.size();
+        validate(pending.schema, pending.document, pending.uri, pending.object,
+            pending.errorConsumer, IGNORE_PROPERTY, IGNORE_ITEM, pending.recursiveRef,
+            pending.depth, context);
+        scheduleBatch(work, start, context);
+      }
+    } finally {
+      // If the evaluation was abandoned, its remaining deferred validations are discarded.
+      work.subList(mark, work.size()).clear();
+      if (mark == 0 && context.peakWork > MAX_RETAINED_WORK) {
+        WORK_STACKS.remove();
+      }
+    }
+  }
+
+  /**
+   * Prepares the validations deferred by one evaluation, from the given position on the work
+   * stack, to be run. Large batches are validated in parallel when a ForkJoinPool is set, and are
+   * removed from the stack. Outcomes of parallel validations are not recorded, so batches are not
+   * validated in parallel when a ValidationState is being recorded.
+   */
+  private void scheduleBatch(List<PendingValidation> work, int start, Context context) {
+    int size = work.size();
+    if (size > context.peakWork) {
+      context.peakWork = size;
+    }
+    if (forkJoinPool != null && context.state == null && size - start >= parallelThreshold) {
+      List<PendingValidation> batch = new ArrayList<>(work.subList(start, size));
+      work.subList(start, size).clear();
+      validateInParallel(batch, context);
+      return;
+    }
+    // Deferred validations are pushed in document order, so each batch is reversed to pop them in
+    // that order.
+    Collections.reverse(work.subList(start, size));
+  }
+
+  /**
+   * Runs a batch of deferred validations in chunks on the ForkJoinPool. The errors of each
+   * validation are collected, then passed to the consumers in document order on the calling
+   * thread, so that the errors are the same, and in the same order, as in sequential validation.
+   */
+  private void validateInParallel(List<PendingValidation> batch, Context parent) {
+    List<List<ValidationError>> errors = new ArrayList<>(batch.size());
+    for (int idx = 0; idx != batch.size(); idx++) {
+      errors.add(new ArrayList<>());
+    }
+    forEachInParallel(0, batch.size(), (from, to) -> {
+      Context context = new Context(memoize);
+      context.branchDepth = parent.branchDepth;
+      context.stackDepth = parent.stackDepth;
+      context.guard = parent.guard;
+      for (int idx = from; idx != to; idx++) {
+        PendingValidation pending = batch.get(idx);
+        validateAndDrain(pending.schema, pending.document, pending.uri, pending.object,
+            errors.get(idx)::add, IGNORE_PROPERTY, IGNORE_ITEM, pending.recursiveRef,
+            pending.depth, context);
+      }
+    });
+    for (int idx = 0; idx != batch.size(); idx++) {
+      errors.get(idx).forEach(batch.get(idx).errorConsumer);
+    }
+  }
+
+  /**
+   * Runs an action over a range of indices in chunks on the ForkJoinPool, returning when all chunks
+   * are complete. When already running in a pool, the tasks are forked in that pool.
+   */
+  private void forEachInParallel(int from, int to, RangeAction action) {
+    int chunkSize = Math.max(1, (to - from) / (forkJoinPool.getParallelism() * 4));
+    ParallelRange task = new ParallelRange(from, to, chunkSize, action);
+    if (ForkJoinTask.inForkJoinPool()) {
+      task.invoke();
+    } else {
+      forkJoinPool.invoke(task);
+    }
+  }
+
+  /**
+   * Validates an object against a schema that applies to the same object, such as the target of a
+   * $ref or a member of allOf. With memoization, the evaluation is completed before returning so
+   * that its outcome can be recorded; otherwise the validation of its children is deferred.
+   */
+  private void validateSubschema(Schema schema, Object document, URI uri, Object object,
+      Consumer<ValidationError> errorConsumer, Consumer<String> propertyConsumer,
+      Consumer<Integer> itemConsumer, Schema recursiveRef, int depth, Context context) {
+    if (context.memo == null) {
+      validate(schema, document, uri, object, errorConsumer, propertyConsumer, itemConsumer,
+          recursiveRef, depth, context);
+    } else {
+      validateNow(schema, document, uri, object, errorConsumer, propertyConsumer, itemConsumer,
+          recursiveRef, depth, context);
+    }
+  }
+
+  /**
+   * Defers the validation of a child of an object, for validations where the result only
+   * contributes errors to the consumer, and is not needed by the current evaluation.
+   */
+  private static void defer(Context context, Schema schema, Object document, URI uri,
+      Object object, Consumer<ValidationError> errorConsumer, Schema recursiveRef, int depth) {
+    context.work.add(
+        new PendingValidation(schema, document, uri, object, errorConsumer, recursiveRef, depth));
+  }
+
+  /**
+   * Validates an object in a document against a schema. The object is passed alongside its URI so
+   * that it is not looked up from the root of the document at every level. The validation of
+   * children of the object is deferred to the work stack.
+   *
+   * @param depth The number of nested evaluations of schemas leading to this one.
+   */
+  private void validate(Schema schema, Object document, URI uri, Object object,
+      Consumer<ValidationError> errorConsumer, Consumer<String> propertyConsumer,
+      Consumer<Integer> itemConsumer, Schema recursiveRef, int depth, Context context) {
+    if (context.stackDepth >= maxStackDepth) {
+      // The validation ends rather than overflowing the Java stack.
+      throw new LimitException(LimitExceededError.Limit.STACK_DEPTH, uri, schema);
+    }
+    context.stackDepth++;
+    try {
+      evaluate(schema, document, uri, object, errorConsumer, propertyConsumer, itemConsumer,
+          recursiveRef, depth, context);
+    } finally {
+      context.stackDepth--;
+    }
+  }
+
+  private void evaluate(Schema schema, Object document, URI uri, Object object,
+      Consumer<ValidationError> errorConsumer, Consumer<String> propertyConsumer,
+      Consumer<Integer> itemConsumer, Schema recursiveRef, int depth, Context context) {
+    if (context.guard != null) {
+      context.guard.visit(schema, uri, context);
+    }
+    if (depth > maxDepth) {
+      // The validation ends, as the outcome of any applicator containing this evaluation is not
+      // known.
+      throw new LimitException(LimitExceededError.Limit.DEPTH, uri, schema);
+    }
+    long disabled = 0;
+    if (profile != null) {
+      if (isDisabledPath(uri)) {
+        return;
+      }
+      disabled = disabledKeywords(schema);
+      if (disabled == ValidationProfile.ALL) {
+        return;
+      }
+    }
+    int childDepth = depth + 1;
 
     Consumer<ValidationError> error = validationError -> {
       if (errorFilter.test(validationError)) {
@@ -97,23 +930,40 @@ public class Validator {
       return;
     }
 
-    Collection<String> evaluatedProperties = new HashSet<>();
-    Consumer<String> selfPropertyHandler = property -> {
-      propertyConsumer.accept(property);
-      evaluatedProperties.add(property);
-    };
+    // Evaluated properties and items are only collected if this schema has unevaluatedProperties or
+    // unevaluatedItems. Otherwise they are passed straight to the consumers of the caller.
+    Collection<String> evaluatedProperties;
+    Consumer<String> selfPropertyHandler;
+    if (schema.getUnevaluatedProperties() == null) {
+      evaluatedProperties = null;
+      selfPropertyHandler = propertyConsumer;
+    } else {
+      evaluatedProperties = new HashSet<>();
+      selfPropertyHandler = property -> {
+        propertyConsumer.accept(property);
+        evaluatedProperties.add(property);
+      };
+    }
 
-    Collection<Integer> evaluatedItems = new HashSet<>();
-    Consumer<Integer> selfItemHandler = property -> {
-      itemConsumer.accept(property);
-      evaluatedItems.add(property);
-    };
+    Collection<Integer> evaluatedItems;
+    Consumer<Integer> selfItemHandler;
+    if (schema.getUnevaluatedItems() == null) {
+      evaluatedItems = null;
+      selfItemHandler = itemConsumer;
+    } else {
+      evaluatedItems = new HashSet<>();
+      selfItemHandler = item -> {
+        itemConsumer.accept(item);
+        evaluatedItems.add(item);
+      };
+    }
 
     Schema recursiveRef1 = schema.getRecursiveRef();
     if (recursiveRef1 != null) {
-      validate(
+      validateSubschema(
           recursiveRef == null || !recursiveRef1.isRecursiveAnchor() ? recursiveRef1 : recursiveRef,
-          document, uri, errorConsumer, selfPropertyHandler, selfItemHandler, null);
+          document, uri, object, errorConsumer, selfPropertyHandler, selfItemHandler, null,
+          childDepth, context);
     }
 
     if (recursiveRef == null && schema.isRecursiveAnchor()) {
@@ -128,8 +978,8 @@ public class Validator {
       List<ValidationError> errors = new ArrayList<>();
       Collection<String> unevaluatedProperties = new HashSet<>();
       Collection<Integer> unevaluatedItems = new HashSet<>();
-      validate(_if, document, uri, errors::add, unevaluatedProperties::add, unevaluatedItems::add,
-          recursiveRef);
+      validateNow(_if, document, uri, object, errors::add, unevaluatedProperties::add,
+          unevaluatedItems::add, recursiveRef, childDepth, context);
       Schema useSchema;
       if (errors.isEmpty()) {
         useSchema = _then;
@@ -139,34 +989,39 @@ public class Validator {
         useSchema = _else;
       }
       if (useSchema != null) {
-        validate(useSchema, document, uri, errorConsumer, selfPropertyHandler, selfItemHandler,
-            recursiveRef);
+        validateSubschema(useSchema, document, uri, object, errorConsumer, selfPropertyHandler,
+            selfItemHandler, recursiveRef, childDepth, context);
       }
     }
 
     Schema ref = schema.getRef();
     if (ref != null) {
-      validate(
-          ref, document, uri, errorConsumer, selfPropertyHandler, selfItemHandler, recursiveRef);
+      validateSubschema(ref, document, uri, object, errorConsumer, selfPropertyHandler,
+          selfItemHandler, recursiveRef, childDepth, context);
     }
 
     Collection<Schema> allOf = schema.getAllOf();
     for (Schema schema1 : allOf) {
-      validate(schema1, document, uri, errorConsumer, selfPropertyHandler, selfItemHandler,
-          recursiveRef);
+      validateSubschema(schema1, document, uri, object, errorConsumer, selfPropertyHandler,
+          selfItemHandler, recursiveRef, childDepth, context);
     }
 
     Collection<Schema> anyOf = schema.getAnyOf();
     if (anyOf != null) {
       int numberPassed = 0;
-      List<List<ValidationError>> allErrors = new ArrayList<>();
+      List<BranchErrors> allErrors = new ArrayList<>();
       for (Schema schema1 : anyOf) {
-        List<ValidationError> errors = new ArrayList<>();
+        BranchErrors errors = new BranchErrors(context);
         Collection<String> unevaluatedProperties = new HashSet<>();
         Collection<Integer> unevaluatedItems = new HashSet<>();
-        validate(schema1, document, uri, errors::add, unevaluatedProperties::add,
-            unevaluatedItems::add, recursiveRef);
-        if (errors.isEmpty()) {
+        context.branchDepth++;
+        try {
+          validateNow(schema1, document, uri, object, errors, unevaluatedProperties::add,
+              unevaluatedItems::add, recursiveRef, childDepth, context);
+        } finally {
+          context.branchDepth--;
+        }
+        if (errors.count == 0) {
           numberPassed++;
           unevaluatedProperties.forEach(selfPropertyHandler);
           unevaluatedItems.forEach(selfItemHandler);
@@ -174,32 +1029,39 @@ public class Validator {
         allErrors.add(errors);
       }
       if (numberPassed == 0) {
-        error.accept(new AnyOfError(uri, document, allErrors, schema));
+        error.accept(new AnyOfError(uri, document, keptErrors(allErrors, context), schema));
       }
     }
 
     Collection<Schema> oneOf = schema.getOneOf();
     if (oneOf != null) {
       List<Schema> passed = new ArrayList<>();
-      List<List<ValidationError>> allErrors = new ArrayList<>();
+      List<BranchErrors> allErrors = new ArrayList<>();
       for (Schema schema1 : oneOf) {
-        List<ValidationError> errors = new ArrayList<>();
-        validate(schema1, document, uri, errors::add, selfPropertyHandler, selfItemHandler,
-            recursiveRef);
-        if (errors.isEmpty()) {
+        BranchErrors errors = new BranchErrors(context);
+        context.branchDepth++;
+        try {
+          validateNow(schema1, document, uri, object, errors, selfPropertyHandler,
+              selfItemHandler, recursiveRef, childDepth, context);
+        } finally {
+          context.branchDepth--;
+        }
+        if (errors.count == 0) {
           passed.add(schema1);
         }
         allErrors.add(errors);
       }
       if (passed.size() != 1) {
-        error.accept(new OneOfError(uri, document, passed, allErrors, schema));
+        error.accept(
+            new OneOfError(uri, document, passed, keptErrors(allErrors, context), schema));
       }
     }
 
     Schema not = schema.getNot();
     if (not != null) {
       List<ValidationError> errors = new ArrayList<>();
-      validate(not, document, uri, errors::add, recursiveRef);
+      validateNow(not, document, uri, object, errors::add, IGNORE_PROPERTY, IGNORE_ITEM,
+          recursiveRef, childDepth, context);
       if (errors.isEmpty()) {
         error.accept(new NotError(uri, document, schema));
       }
@@ -208,149 +1070,32 @@ public class Validator {
     Collection<Schema> disallowSchemas = schema.getDisallowSchemas();
     for (Schema disallowSchema : disallowSchemas) {
       List<ValidationError> errors = new ArrayList<>();
-      validate(disallowSchema, document, uri, errors::add, selfPropertyHandler, selfItemHandler,
-          recursiveRef);
+      validateNow(disallowSchema, document, uri, object, errors::add, selfPropertyHandler,
+          selfItemHandler, recursiveRef, childDepth, context);
       if (errors.isEmpty()) {
         error.accept(new DisallowError(uri, document, schema));
       }
     }
 
-    Number multipleOf = schema.getMultipleOf();
-    Number minimum = schema.getMinimum();
-    Number maximum = schema.getMaximum();
-    Number exclusiveMinimum = schema.getExclusiveMinimum();
-    Number exclusiveMaximum = schema.getExclusiveMaximum();
-    boolean exclusiveMinimumBoolean = schema.isExclusiveMinimumBoolean();
-    boolean exclusiveMaximumBoolean = schema.isExclusiveMaximumBoolean();
-    Collection<String> disallow = schema.getDisallow();
-
     if (object instanceof Number) {
-      Number number = (Number) object;
-      if (multipleOf != null
-          && (new BigDecimal(number.toString())
-                  .remainder(new BigDecimal(multipleOf.toString()))
-                  .compareTo(BigDecimal.ZERO)
-              != 0)) {
-        error.accept(new MultipleError(uri, document, schema));
-      }
-      if (maximum != null
-          && (exclusiveMaximumBoolean ? number.doubleValue() >= maximum.doubleValue()
-                                      : number.doubleValue() > maximum.doubleValue())) {
-        error.accept(new MaximumError(uri, document, schema));
-      }
-
-      if (exclusiveMaximum != null && number.doubleValue() >= exclusiveMaximum.doubleValue()) {
-        error.accept(new ExclusiveMaximumError(uri, document, schema));
-      }
-      if (minimum != null) {
-        if (exclusiveMinimumBoolean ? number.doubleValue() <= minimum.doubleValue()
-                                    : number.doubleValue() < minimum.doubleValue()) {
-          error.accept(new MinimumError(uri, document, schema));
-        }
-      }
-      if (exclusiveMinimum != null && number.doubleValue() <= exclusiveMinimum.doubleValue()) {
-        error.accept(new ExclusiveMinimumError(uri, document, schema));
-      }
-      Set<String> okTypes = new HashSet<>();
-      okTypes.add("number");
-      try {
-        boolean preDraft5 =
-            DRAFT_3.equals(schema.getMetaSchema()) || DRAFT_4.equals(schema.getMetaSchema());
-        if (preDraft5) {
-          if (!(number instanceof Float) && !(number instanceof Double)) {
-            okTypes.add("integer");
-          }
-        } else {
-          BigDecimal bigDecimal = new BigDecimal(number.toString());
-          if (bigDecimal.remainder(BigDecimal.ONE).compareTo(BigDecimal.ZERO) == 0) {
-            okTypes.add("integer");
-          }
-        }
-      } catch (NumberFormatException e) {
-        // Intentionally silenced.
-      }
-
-      typeCheck(schema, document, uri, okTypes, disallow, error);
-
-      Number divisibleBy = schema.getDivisibleBy();
-      if (divisibleBy != null && number.doubleValue() / divisibleBy.doubleValue() % 1 != 0) {
-        error.accept(new DivisibleByError(uri, document, schema));
-      }
-
+      checkNumber(schema, document, uri, (Number) object, childDepth, disabled, error, context);
     } else if (object instanceof String) {
-      String string = (String) object;
-      int unicodeCompliantLength = string.codePointCount(0, string.length());
-      Number minLength = schema.getMinLength();
-      Number maxLength = schema.getMaxLength();
-      if (maxLength != null && unicodeCompliantLength > maxLength.intValue()) {
-        error.accept(new MaxLengthError(uri, document, schema));
-      }
-      if (minLength != null && unicodeCompliantLength < minLength.intValue()) {
-        error.accept(new MinLengthError(uri, document, schema));
-      }
-      String patternString = schema.getPattern();
-      if (patternString != null) {
-        try {
-          if (!regExPatternSupplier.newPattern(patternString).matches(string)) {
-            error.accept(new PatternError(uri, document, schema));
-          }
-        } catch (InvalidRegexException e) {
-          LOG.warning("Invalid regex " + patternString);
-        }
-      }
-
-      String format = schema.getFormat();
-      if (format != null) {
-        String message =
-            FormatChecker.formatCheck(string, format, schema.getMetaSchema(), regExPatternSupplier);
-        if (message != null) {
-          error.accept(new FormatError(uri, document, schema, message));
-        }
-      }
-      String stringToValidate = string;
-      String contentEncoding = schema.getContentEncoding();
-
-      boolean preDraft5 =
-          DRAFT_3.equals(schema.getMetaSchema()) || DRAFT_4.equals(schema.getMetaSchema());
-      boolean preDraft2019 = preDraft5 || DRAFT_6.equals(schema.getMetaSchema())
-          || DRAFT_7.equals(schema.getMetaSchema());
-      if (preDraft2019) {
-        if ("base64".equals(contentEncoding)) {
-          Base64.Decoder urlDecoder = getUrlDecoder();
-          byte[] decoded = null;
-          try {
-            decoded = urlDecoder.decode(string);
-          } catch (IllegalArgumentException e) {
-            error.accept(new ContentEncodingError(uri, document, schema, e.getMessage()));
-          }
-          if (decoded != null) {
-            stringToValidate = new String(decoded, StandardCharsets.UTF_8);
-          }
-        }
-
-        String contentMediaType = schema.getContentMediaType();
-        if ("application/json".equals(contentMediaType)) {
-          try {
-            new ObjectMapper().readValue(stringToValidate, Object.class);
-          } catch (JsonProcessingException e) {
-            error.accept(new ContentEncodingError(uri, document, schema, e.getMessage()));
-          }
-        }
-      }
-
-      typeCheck(schema, document, uri, setOf("string"), disallow, errorConsumer);
+      checkString(schema, document, uri, (String) object, childDepth, disabled, error, context);
     } else if (object instanceof Boolean) {
-      typeCheck(schema, document, uri, setOf("boolean"), disallow, errorConsumer);
+      typeCheck(
+          schema, document, uri, object, BOOLEAN_TYPES, childDepth, disabled, error, context);
     } else if (object instanceof List) {
-      typeCheck(schema, document, uri, setOf("array"), disallow, errorConsumer);
-      Collection<Object> jsonArray = (Collection<Object>) object;
+      typeCheck(
+          schema, document, uri, object, ARRAY_TYPES, childDepth, disabled, error, context);
+      List<Object> jsonArray = (List<Object>) object;
       List<Schema> prefixItems = schema.getPrefixItems();
       int itemStart = 0;
       if (prefixItems != null) {
         itemStart = prefixItems.size();
         for (int idx = 0; idx != Math.min(prefixItems.size(), jsonArray.size()); idx++) {
-          validate(prefixItems.get(idx), document, PathUtils.append(uri, String.valueOf(idx)),
-              errorConsumer, recursiveRef);
+          defer(context, prefixItems.get(idx), document,
+              PathUtils.append(uri, String.valueOf(idx)), jsonArray.get(idx), errorConsumer,
+              recursiveRef, childDepth);
           selfItemHandler.accept(idx);
         }
       } else {
@@ -358,15 +1103,13 @@ public class Validator {
         if (itemsTuple != null) {
           Schema additionalItems = schema.getAdditionalItems();
           if (jsonArray.size() > itemsTuple.size() && additionalItems != null) {
-            for (int idx = itemsTuple.size(); idx != jsonArray.size(); idx++) {
-              validate(additionalItems, document, PathUtils.append(uri, String.valueOf(idx)),
-                  errorConsumer, recursiveRef);
-              selfItemHandler.accept(idx);
-            }
+            validateItems(additionalItems, document, uri, jsonArray, itemsTuple.size(),
+                errorConsumer, selfItemHandler, recursiveRef, childDepth, context);
           }
           for (int idx = 0; idx != Math.min(itemsTuple.size(), jsonArray.size()); idx++) {
-            validate(itemsTuple.get(idx), document, PathUtils.append(uri, String.valueOf(idx)),
-                errorConsumer, recursiveRef);
+            defer(context, itemsTuple.get(idx), document,
+                PathUtils.append(uri, String.valueOf(idx)), jsonArray.get(idx), errorConsumer,
+                recursiveRef, childDepth);
             selfItemHandler.accept(idx);
           }
         }
@@ -374,30 +1117,39 @@ public class Validator {
 
       Schema _items = schema.getItems();
       if (_items != null) {
-        for (int idx = itemStart; idx < jsonArray.size(); idx++) {
-          validate(_items, document, PathUtils.append(uri, String.valueOf(idx)), errorConsumer,
-              recursiveRef);
-          selfItemHandler.accept(idx);
-        }
+        validateItems(_items, document, uri, jsonArray, itemStart, errorConsumer, selfItemHandler,
+            recursiveRef, childDepth, context);
       }
       Schema contains = schema.getContains();
-      if (contains != null) {
+      if (contains != null && (disabled & ValidationProfile.CONTAINS) == 0) {
+        Number minContains = schema.getMinContains();
+        int min = minContains == null ? 1 : minContains.intValue();
+        Number maxContains = schema.getMaxContains();
+        int max = maxContains == null ? Integer.MAX_VALUE : maxContains.intValue();
+        // Unless the matching items are needed to resolve unevaluatedItems, evaluation stops as
+        // soon as the remaining items can no longer change the outcome.
+        boolean trackItems = selfItemHandler != IGNORE_ITEM;
         int numberPassed = 0;
-        for (int idx = 0; idx != jsonArray.size(); idx++) {
-          List<ValidationError> errors = new ArrayList<>();
-          validate(contains, document, PathUtils.append(uri, String.valueOf(idx)), errors::add,
-              recursiveRef);
-          if (errors.isEmpty()) {
+        int size = jsonArray.size();
+        for (int idx = 0; idx != size; idx++) {
+          if (!trackItems) {
+            int remaining = size - idx;
+            boolean minDecided = numberPassed >= min || numberPassed + remaining < min;
+            boolean maxDecided = numberPassed > max || numberPassed + remaining <= max;
+            if (minDecided && maxDecided) {
+              break;
+            }
+          }
+          if (isValid(contains, document, PathUtils.append(uri, String.valueOf(idx)),
+                  jsonArray.get(idx), recursiveRef, childDepth, context)) {
             selfItemHandler.accept(idx);
             numberPassed++;
           }
         }
-        Number minContains = schema.getMinContains();
-        if (numberPassed < (minContains == null ? 1 : minContains.intValue())) {
+        if (numberPassed < min) {
           error.accept(new MinContainsError(uri, document, schema));
         }
-        Number maxContains = schema.getMaxContains();
-        if (maxContains != null && numberPassed > maxContains.intValue()) {
+        if (maxContains != null && numberPassed > max) {
           error.accept(new MaxContainsError(uri, document, schema));
         }
       }
@@ -408,23 +1160,25 @@ public class Validator {
           if (evaluatedItems.contains(idx)) {
             continue;
           }
-          validate(unevaluatedItems, document, PathUtils.append(uri, String.valueOf(idx)),
-              errorConsumer, recursiveRef);
+          defer(context, unevaluatedItems, document, PathUtils.append(uri, String.valueOf(idx)),
+              jsonArray.get(idx), errorConsumer, recursiveRef, childDepth);
           selfItemHandler.accept(idx);
         }
       }
 
       Number maxItems = schema.getMaxItems();
-      if (maxItems != null && jsonArray.size() > maxItems.intValue()) {
+      if (maxItems != null && (disabled & ValidationProfile.MAX_ITEMS) == 0
+          && jsonArray.size() > maxItems.intValue()) {
         error.accept(new MaxItemsError(uri, document, schema));
       }
 
       Number minItems = schema.getMinItems();
-      if (minItems != null && jsonArray.size() < minItems.intValue()) {
+      if (minItems != null && (disabled & ValidationProfile.MIN_ITEMS) == 0
+          && jsonArray.size() < minItems.intValue()) {
         error.accept(new MinItemsError(uri, document, schema));
       }
 
-      if (schema.isUniqueItems()) {
+      if (schema.isUniqueItems() && (disabled & ValidationProfile.UNIQUE_ITEMS) == 0) {
         Collection<Object> items = new HashSet<>();
         for (Object o : jsonArray) {
           if (!items.add(makeComparable(o))) {
@@ -434,96 +1188,141 @@ public class Validator {
       }
 
     } else if (object instanceof Map) {
-      typeCheck(schema, document, uri, setOf("object"), disallow, errorConsumer);
+      typeCheck(
+          schema, document, uri, object, OBJECT_TYPES, childDepth, disabled, error, context);
       Map<String, Object> jsonObject = (Map<String, Object>) object;
       Number maxProperties = schema.getMaxProperties();
-      if (maxProperties != null && jsonObject.size() > maxProperties.intValue()) {
+      if (maxProperties != null && (disabled & ValidationProfile.MAX_PROPERTIES) == 0
+          && jsonObject.size() > maxProperties.intValue()) {
         error.accept(new MaxPropertiesError(uri, document, schema));
       }
       Number minProperties = schema.getMinProperties();
-      if (minProperties != null && jsonObject.size() < minProperties.intValue()) {
+      if (minProperties != null && (disabled & ValidationProfile.MIN_PROPERTIES) == 0
+          && jsonObject.size() < minProperties.intValue()) {
         error.accept(new MinPropertiesError(uri, document, schema));
       }
 
-      Collection<String> requiredProperties = schema.getRequiredProperties();
-      for (String property : requiredProperties) {
-        if (!jsonObject.containsKey(property)) {
-          error.accept(new MissingPropertyError(uri, document, property, schema));
-        }
-      }
-
-      Map<String, Schema> _properties = schema.getProperties();
-      for (Map.Entry<String, Schema> entry : _properties.entrySet()) {
-        if (!entry.getValue().isRequired()) {
-          continue;
-        }
-        String property = entry.getKey();
+      String[] requiredNames =
+          (disabled & ValidationProfile.REQUIRED) == 0 ? schema.getRequiredNames() : new String[0];
+      for (String property : requiredNames) {
         if (!jsonObject.containsKey(property)) {
           error.accept(new MissingPropertyError(uri, document, property, schema));
         }
       }
 
-      Collection<String> remainingProperties = new HashSet<>(jsonObject.keySet());
+      Schema additionalProperties = schema.getAdditionalProperties();
+      boolean closedObject = schema.isClosedObject();
+      // For closed objects, properties not found in the schema's properties are reported in the
+      // pass over the object's keys, so the set of remaining properties is only needed for other
+      // additionalProperties.
+      Collection<String> remainingProperties = additionalProperties == null || closedObject
+          ? null
+          : new HashSet<>(jsonObject.keySet());
       Collection<String> patternPropertiesPatterns = schema.getPatternPropertiesPatterns();
       Collection<Schema> patternPropertiesSchema = schema.getPatternPropertiesSchema();
-      for (String property : jsonObject.keySet()) {
-        if (_properties.containsKey(property)) {
-          validate(_properties.get(property), document, PathUtils.append(uri, property),
-              errorConsumer, recursiveRef);
-          remainingProperties.remove(property);
+      Schema propertyNames = schema.getPropertyNames();
+
+      // When the object has more keys than the schema has properties (and the schema doesn't need
+      // to see every key), the schema's properties are looked up in the object rather than the
+      // other way around.
+      String[] propertyKeys = schema.getPropertyKeys();
+      boolean schemaDriven = !closedObject && propertyKeys.length < jsonObject.size();
+      if (schemaDriven) {
+        Schema[] propertySchemas = schema.getPropertySchemas();
+        for (int idx = 0; idx != propertyKeys.length; idx++) {
+          String property = propertyKeys[idx];
+          if (!jsonObject.containsKey(property)) {
+            continue;
+          }
+          defer(context, propertySchemas[idx], document, PathUtils.append(uri, property),
+              jsonObject.get(property), errorConsumer, recursiveRef, childDepth);
+          if (remainingProperties != null) {
+            remainingProperties.remove(property);
+          }
           selfPropertyHandler.accept(property);
         }
+      }
 
-        Iterator<String> it0 = patternPropertiesPatterns.iterator();
-        Iterator<Schema> it1 = patternPropertiesSchema.iterator();
-        while (it0.hasNext()) {
-          String pattern1 = it0.next();
-          Schema schema1 = it1.next();
-          try {
-            if (regExPatternSupplier.newPattern(pattern1).matches(property)) {
-              validate(
-                  schema1, document, PathUtils.append(uri, property), errorConsumer, recursiveRef);
-              remainingProperties.remove(property);
+      if (!schemaDriven || !patternPropertiesPatterns.isEmpty() || propertyNames != null) {
+        Map<String, Schema> _properties = schema.getProperties();
+        for (String property : jsonObject.keySet()) {
+          if (!schemaDriven) {
+            Schema propertySchema = _properties.get(property);
+            if (propertySchema != null) {
+              defer(context, propertySchema, document, PathUtils.append(uri, property),
+                  jsonObject.get(property), errorConsumer, recursiveRef, childDepth);
+              if (remainingProperties != null) {
+                remainingProperties.remove(property);
+              }
+              selfPropertyHandler.accept(property);
+            } else if (closedObject) {
+              // The profile is checked here as it would be by an evaluation of the false schema.
+              URI propertyUri = PathUtils.append(uri, property);
+              if (profile == null || !isDisabledPath(propertyUri)
+                      && disabledKeywords(additionalProperties) != ValidationProfile.ALL) {
+                error.accept(new FalseSchemaError(propertyUri, document, additionalProperties));
+              }
               selfPropertyHandler.accept(property);
             }
-          } catch (InvalidRegexException e) {
-            LOG.warning("Invalid regex: " + e.getMessage());
           }
-        }
-        Schema propertyNames = schema.getPropertyNames();
-        if (propertyNames != null) {
-          try {
-            // To provide developer-friendly validation error messages, the validator takes a URL to
-            // the object being validated, relative to the base document. In turn, to avoid
-            // redundant coupled parameters, the object is not passed as a parameter but converted
-            // to the object inside the validator. This is a problem for propertyName validation
-            // because the property name itself cannot have a path using the current version of JSON
-            // Pointers. Relative JSON Pointers does support property names; but the standard states
-            // these pointers are not suitable for use in URIs. As a workaround we use the query
-            // part of the URL to carry the property name into the child iteration of the validator.
-            URI propertyPath = new URI(
-                uri.getScheme(), uri.getAuthority(), uri.getPath(), property, uri.getRawFragment());
-            validate(propertyNames, document, propertyPath, errorConsumer, recursiveRef);
-          } catch (URISyntaxException e) {
-            throw new IllegalStateException(e);
+
+          Iterator<String> it0 = patternPropertiesPatterns.iterator();
+          Iterator<Schema> it1 = patternPropertiesSchema.iterator();
+          while (it0.hasNext()) {
+            String pattern1 = it0.next();
+            Schema schema1 = it1.next();
+            try {
+              if (regExPatternSupplier.newPattern(pattern1).matches(property)) {
+                defer(context, schema1, document, PathUtils.append(uri, property),
+                    jsonObject.get(property), errorConsumer, recursiveRef, childDepth);
+                if (remainingProperties != null) {
+                  remainingProperties.remove(property);
+                }
+                selfPropertyHandler.accept(property);
+              }
+            } catch (InvalidRegexException e) {
+              LOG.warning("Invalid regex: " + e.getMessage());
+            }
+          }
+          if (propertyNames != null) {
+            try {
+              // To provide developer-friendly validation error messages, the validator takes a URL
+              // to the object being validated, relative to the base document. In turn, to avoid
+              // redundant coupled parameters, the object is not passed as a parameter but
+              // converted to the object inside the validator. This is a problem for propertyName
+              // validation because the property name itself cannot have a path using the current
+              // version of JSON Pointers. Relative JSON Pointers does support property names; but
+              // the standard states these pointers are not suitable for use in URIs. As a
+              // workaround we use the query part of the URL to carry the property name into the
+              // child iteration of the validator.
+              URI propertyPath = new URI(uri.getScheme(), uri.getAuthority(), uri.getPath(),
+                  property, uri.getRawFragment());
+              defer(context, propertyNames, document, propertyPath, property, errorConsumer,
+                  recursiveRef, childDepth);
+            } catch (URISyntaxException e) {
+              throw new IllegalStateException(e);
+            }
           }
         }
       }
-      Map<String, Schema> schemaDependencies = schema.getDependentSchemas();
-      for (Map.Entry<String, Schema> entry : schemaDependencies.entrySet()) {
-        String property = entry.getKey();
-        if (!jsonObject.containsKey(property)) {
+
+      String[] dependentSchemaTriggers = schema.getDependentSchemaTriggers();
+      Schema[] dependentSchemaValues = schema.getDependentSchemaValues();
+      int dependentSchemaCount = (disabled & ValidationProfile.DEPENDENT_SCHEMAS) == 0
+          ? dependentSchemaTriggers.length
+          : 0;
+      for (int idx = 0; idx != dependentSchemaCount; idx++) {
+        if (!jsonObject.containsKey(dependentSchemaTriggers[idx])) {
           continue;
         }
-        validate(entry.getValue(), document, uri, errorConsumer, selfPropertyHandler,
-            selfItemHandler, recursiveRef);
+        validateSubschema(dependentSchemaValues[idx], document, uri, object, errorConsumer,
+            selfPropertyHandler, selfItemHandler, recursiveRef, childDepth, context);
       }
 
-      Schema additionalProperties = schema.getAdditionalProperties();
-      if (additionalProperties != null) {
+      if (remainingProperties != null) {
         for (String property : remainingProperties) {
-          validate(additionalProperties, document, PathUtils.append(uri, property), errorConsumer,
-              recursiveRef);
+          defer(context, additionalProperties, document, PathUtils.append(uri, property),
+              jsonObject.get(property), errorConsumer, recursiveRef, childDepth);
           selfPropertyHandler.accept(property);
         }
       }
@@ -533,21 +1332,23 @@ public class Validator {
         Collection<String> remainingProperties2 = new HashSet<>(jsonObject.keySet());
         remainingProperties2.removeAll(evaluatedProperties);
         for (String property : remainingProperties2) {
-          validate(unevaluatedProperties, document, PathUtils.append(uri, property), errorConsumer,
-              recursiveRef);
+          defer(context, unevaluatedProperties, document, PathUtils.append(uri, property),
+              jsonObject.get(property), errorConsumer, recursiveRef, childDepth);
           selfPropertyHandler.accept(property);
         }
       }
 
-      Map<String, Collection<String>> dependencies = schema.getDependentRequired();
-      for (Map.Entry<String, Collection<String>> entry : dependencies.entrySet()) {
-        String property = entry.getKey();
+      String[] dependentRequiredTriggers = schema.getDependentRequiredTriggers();
+      String[][] dependentRequiredNames = schema.getDependentRequiredNames();
+      int dependentRequiredCount = (disabled & ValidationProfile.DEPENDENT_REQUIRED) == 0
+          ? dependentRequiredTriggers.length
+          : 0;
+      for (int idx = 0; idx != dependentRequiredCount; idx++) {
+        String property = dependentRequiredTriggers[idx];
         if (!jsonObject.containsKey(property)) {
           continue;
         }
-
-        Collection<String> _dependencies = entry.getValue();
-        for (String dependency : _dependencies) {
+        for (String dependency : dependentRequiredNames[idx]) {
           if (jsonObject.containsKey(dependency)) {
             continue;
           }
@@ -556,19 +1357,219 @@ public class Validator {
       }
 
     } else if (object == null) {
-      typeCheck(schema, document, uri, setOf("null"), disallow, errorConsumer);
+      typeCheck(
+          schema, document, uri, object, NULL_TYPES, childDepth, disabled, error, context);
     } else {
       error.accept(new UnexpectedTypeError(uri, document, object, schema));
     }
 
-    if (schema.hasConst()) {
+    checkConstAndEnum(schema, document, uri, object, disabled, error);
+  }
+
+  /**
+   * Checks a number against the number keywords of a schema, and its type.
+   *
+   * @param error The consumer for errors; or null to return at the first failure without creating
+   *     errors.
+   * @return False if error is null and the number failed a check; otherwise true.
+   */
+  private boolean checkNumber(Schema schema, Object document, URI uri, Number number, int depth,
+      long disabled, Consumer<ValidationError> error, Context context) {
+    Number multipleOf = schema.getMultipleOf();
+    if (multipleOf != null && (disabled & ValidationProfile.MULTIPLE_OF) == 0
+        && !isMultiple(number, multipleOf)) {
+      if (error == null) {
+        return false;
+      }
+      error.accept(new MultipleError(uri, document, schema));
+    }
+    Number maximum = schema.getMaximum();
+    if (maximum != null && (disabled & ValidationProfile.MAXIMUM) == 0
+        && (schema.isExclusiveMaximumBoolean() ? number.doubleValue() >= maximum.doubleValue()
+                                               : number.doubleValue() > maximum.doubleValue())) {
+      if (error == null) {
+        return false;
+      }
+      error.accept(new MaximumError(uri, document, schema));
+    }
+    Number exclusiveMaximum = schema.getExclusiveMaximum();
+    if (exclusiveMaximum != null && (disabled & ValidationProfile.EXCLUSIVE_MAXIMUM) == 0
+        && number.doubleValue() >= exclusiveMaximum.doubleValue()) {
+      if (error == null) {
+        return false;
+      }
+      error.accept(new ExclusiveMaximumError(uri, document, schema));
+    }
+    Number minimum = schema.getMinimum();
+    if (minimum != null && (disabled & ValidationProfile.MINIMUM) == 0
+        && (schema.isExclusiveMinimumBoolean() ? number.doubleValue() <= minimum.doubleValue()
+                                               : number.doubleValue() < minimum.doubleValue())) {
+      if (error == null) {
+        return false;
+      }
+      error.accept(new MinimumError(uri, document, schema));
+    }
+    Number exclusiveMinimum = schema.getExclusiveMinimum();
+    if (exclusiveMinimum != null && (disabled & ValidationProfile.EXCLUSIVE_MINIMUM) == 0
+        && number.doubleValue() <= exclusiveMinimum.doubleValue()) {
+      if (error == null) {
+        return false;
+      }
+      error.accept(new ExclusiveMinimumError(uri, document, schema));
+    }
+
+    boolean integer;
+    if (DRAFT_3.equals(schema.getMetaSchema()) || DRAFT_4.equals(schema.getMetaSchema())) {
+      integer = !(number instanceof Float) && !(number instanceof Double);
+    } else {
+      integer = isIntegral(number);
+    }
+    if (!typeCheck(schema, document, uri, number, integer ? INTEGER_TYPES : NUMBER_TYPES, depth,
+            disabled, error, context)) {
+      return false;
+    }
+
+    Number divisibleBy = schema.getDivisibleBy();
+    if (divisibleBy != null && (disabled & ValidationProfile.DIVISIBLE_BY) == 0
+        && number.doubleValue() / divisibleBy.doubleValue() % 1 != 0) {
+      if (error == null) {
+        return false;
+      }
+      error.accept(new DivisibleByError(uri, document, schema));
+    }
+    return true;
+  }
+
+  static boolean isMultiple(Number number, Number multipleOf) {
+    if (isPrimitiveInteger(number) && isPrimitiveInteger(multipleOf)) {
+      return number.longValue() % multipleOf.longValue() == 0;
+    }
+    return new BigDecimal(number.toString())
+               .remainder(new BigDecimal(multipleOf.toString()))
+               .compareTo(BigDecimal.ZERO)
+        == 0;
+  }
+
+  private static boolean isPrimitiveInteger(Number number) {
+    return number instanceof Integer || number instanceof Long || number instanceof Short
+        || number instanceof Byte;
+  }
+
+  static boolean isIntegral(Number number) {
+    if (isPrimitiveInteger(number)) {
+      return true;
+    }
+    if (number instanceof Double || number instanceof Float) {
+      double value = number.doubleValue();
+      return !Double.isInfinite(value) && value == Math.floor(value);
+    }
+    try {
+      return new BigDecimal(number.toString()).remainder(BigDecimal.ONE).compareTo(BigDecimal.ZERO)
+          == 0;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Checks a string against the string keywords of a schema, and its type.
+   *
+   * @param error The consumer for errors; or null to return at the first failure without creating
+   *     errors.
+   * @return False if error is null and the string failed a check; otherwise true.
+   */
+  private boolean checkString(Schema schema, Object document, URI uri, String string, int depth,
+      long disabled, Consumer<ValidationError> error, Context context) {
+    Number minLength =
+        (disabled & ValidationProfile.MIN_LENGTH) == 0 ? schema.getMinLength() : null;
+    Number maxLength =
+        (disabled & ValidationProfile.MAX_LENGTH) == 0 ? schema.getMaxLength() : null;
+    if (minLength != null || maxLength != null) {
+      int unicodeCompliantLength = string.codePointCount(0, string.length());
+      if (maxLength != null && unicodeCompliantLength > maxLength.intValue()) {
+        if (error == null) {
+          return false;
+        }
+        error.accept(new MaxLengthError(uri, document, schema));
+      }
+      if (minLength != null && unicodeCompliantLength < minLength.intValue()) {
+        if (error == null) {
+          return false;
+        }
+        error.accept(new MinLengthError(uri, document, schema));
+      }
+    }
+    String patternString = schema.getPattern();
+    if (patternString != null && (disabled & ValidationProfile.PATTERN) == 0) {
+      try {
+        if (!regExPatternSupplier.newPattern(patternString).matches(string)) {
+          if (error == null) {
+            return false;
+          }
+          error.accept(new PatternError(uri, document, schema));
+        }
+      } catch (InvalidRegexException e) {
+        LOG.warning("Invalid regex " + patternString);
+      }
+    }
+
+    String format = schema.getFormat();
+    if (format != null && (disabled & ValidationProfile.FORMAT) == 0) {
+      FormatValidator formatValidator = schema.getFormatValidator();
+      String message = formatValidator == null
+          ? FormatChecker.formatCheck(string, format, schema.getMetaSchema(), regExPatternSupplier)
+          : formatValidator.check(string);
+      if (message != null) {
+        if (error == null) {
+          return false;
+        }
+        error.accept(new FormatError(uri, document, schema, message));
+      }
+    }
+
+    String contentEncoding = schema.getContentEncoding();
+    String contentMediaType = schema.getContentMediaType();
+    if ((contentEncoding != null || contentMediaType != null)
+        && (disabled & ValidationProfile.CONTENT) == 0) {
+      boolean preDraft5 =
+          DRAFT_3.equals(schema.getMetaSchema()) || DRAFT_4.equals(schema.getMetaSchema());
+      boolean preDraft2019 = preDraft5 || DRAFT_6.equals(schema.getMetaSchema())
+          || DRAFT_7.equals(schema.getMetaSchema());
+      if (preDraft2019) {
+        String message = ContentChecker.contentCheck(string, contentEncoding, contentMediaType);
+        if (message != null) {
+          if (error == null) {
+            return false;
+          }
+          error.accept(new ContentEncodingError(uri, document, schema, message));
+        }
+      }
+    }
+
+    return typeCheck(
+        schema, document, uri, string, STRING_TYPES, depth, disabled, error, context);
+  }
+
+  /**
+   * Checks an object against the const and enum keywords of a schema.
+   *
+   * @param error The consumer for errors; or null to return at the first failure without creating
+   *     errors.
+   * @return False if error is null and the object failed a check; otherwise true.
+   */
+  private static boolean checkConstAndEnum(Schema schema, Object document, URI uri, Object object,
+      long disabled, Consumer<ValidationError> error) {
+    if (schema.hasConst() && (disabled & ValidationProfile.CONST) == 0) {
       if (!makeComparable(schema.getConst()).equals(makeComparable(object))) {
+        if (error == null) {
+          return false;
+        }
         error.accept(new ConstError(uri, document, schema));
       }
     }
 
     List<Object> enums = schema.getEnums();
-    if (enums != null) {
+    if (enums != null && (disabled & ValidationProfile.ENUM) == 0) {
       boolean matchedOne = false;
       Object o = makeComparable(object);
       for (Object value : enums) {
@@ -578,52 +1579,213 @@ public class Validator {
         }
       }
       if (!matchedOne) {
+        if (error == null) {
+          return false;
+        }
         error.accept(new EnumError(uri, document, schema));
       }
     }
+    return true;
   }
 
-  private void typeCheck(Schema schema, Object document, URI path, Set<String> types,
-      Collection<String> disallow, Consumer<? super ValidationError> errorConsumer) {
-    if (!disallow.isEmpty()) {
+  /**
+   * Checks the type of an object against the type keywords of a schema.
+   *
+   * @param types The JSON Schema types matching the object.
+   * @param depth The depth at which schemas in the type keyword are evaluated.
+   * @param errorConsumer The consumer for errors; or null to return at the first failure without
+   *     creating errors.
+   * @return False if errorConsumer is null and the type check failed; otherwise true.
+   */
+  private boolean typeCheck(Schema schema, Object document, URI path, Object object,
+      Set<String> types, int depth, long disabled, Consumer<ValidationError> errorConsumer,
+      Context context) {
+    Collection<String> disallow = schema.getDisallow();
+    if (!disallow.isEmpty() && (disabled & ValidationProfile.DISALLOW) == 0) {
       Collection<String> typesIn0 = new HashSet<>(types);
       typesIn0.retainAll(disallow);
       if (!typesIn0.isEmpty()) {
+        if (errorConsumer == null) {
+          return false;
+        }
         errorConsumer.accept(new TypeDisallowedError(path, document, typesIn0, schema));
       }
     }
 
     Collection<String> explicitTypes = schema.getExplicitTypes();
-    if (explicitTypes == null) {
-      return;
+    if (explicitTypes == null || (disabled & ValidationProfile.TYPE) != 0) {
+      return true;
     }
 
     Collection<Schema> typesSchema = schema.getTypesSchema();
 
     for (Schema schema1 : typesSchema) {
+      // The evaluation shares the context of the validation, so that it counts towards its limits
+      // and the depth of its stack. Checks of leaf validity have no context.
       List<ValidationError> errors = new ArrayList<>();
-      validate(schema1, document, path, errors::add);
+      validateNow(schema1, document, path, object, errors::add, IGNORE_PROPERTY, IGNORE_ITEM, null,
+          depth, context == null ? new Context(memoize) : context);
       if (errors.isEmpty()) {
-        return;
+        return true;
       }
     }
 
     if (explicitTypes.contains("any")) {
-      return;
+      return true;
     }
 
-    Collection<String> typesIn;
     if (explicitTypes.isEmpty() && typesSchema.isEmpty()) {
-      typesIn = types;
-    } else {
-      typesIn = new HashSet<>(types);
-      typesIn.retainAll(explicitTypes);
+      return true;
     }
-    if (!typesIn.isEmpty()) {
-      return;
+    for (String type : types) {
+      if (explicitTypes.contains(type)) {
+        return true;
+      }
     }
 
+    if (errorConsumer == null) {
+      return false;
+    }
     errorConsumer.accept(new TypeError(path, document, explicitTypes, types, schema));
+    return true;
+  }
+
+  /**
+   * Checks an object against a schema that only has checks on the object itself (see
+   * Schema.isLeaf()), without creating any errors. The result matches whether validate() would
+   * report any errors for the object, so callers can use validate() only for failed objects to
+   * obtain the errors.
+   *
+   * @param schema The leaf schema.
+   * @param object The object to check.
+   * @return True if the object passes the schema.
+   */
+  private boolean isLeafValid(Schema schema, Object object) {
+    long disabled = disabledKeywords(schema);
+    if (disabled == ValidationProfile.ALL) {
+      return true;
+    }
+    if (schema.isFalse()) {
+      return false;
+    }
+    boolean valid;
+    if (object instanceof Number) {
+      valid = checkNumber(schema, null, null, (Number) object, 0, disabled, null, null);
+    } else if (object instanceof String) {
+      valid = checkString(schema, null, null, (String) object, 0, disabled, null, null);
+    } else if (object instanceof Boolean) {
+      valid = typeCheck(schema, null, null, object, BOOLEAN_TYPES, 0, disabled, null, null);
+    } else if (object instanceof List) {
+      valid = typeCheck(schema, null, null, object, ARRAY_TYPES, 0, disabled, null, null);
+    } else if (object instanceof Map) {
+      valid = typeCheck(schema, null, null, object, OBJECT_TYPES, 0, disabled, null, null);
+    } else if (object == null) {
+      valid = typeCheck(schema, null, null, object, NULL_TYPES, 0, disabled, null, null);
+    } else {
+      return false;
+    }
+    return valid && checkConstAndEnum(schema, null, null, object, disabled, null);
+  }
+
+  /**
+   * Determines whether an object passes a schema, without collecting any errors. Leaf schemas are
+   * checked without creating errors at all; otherwise evaluation stops at the first error.
+   */
+  private boolean isValid(Schema schema, Object document, URI uri, Object object,
+      Schema recursiveRef, int depth, Context context) {
+    if (schema.isLeaf()) {
+      if (depth > maxDepth) {
+        // As evaluate() would.
+        throw new LimitException(LimitExceededError.Limit.DEPTH, uri, schema);
+      }
+      if (isLeafValid(schema, object)) {
+        return true;
+      }
+      if (errorFilter == ACCEPT_ALL && (profile == null || !profile.hasInstancePaths())) {
+        return false;
+      }
+      // The filter may discard the errors of the object, or the object may be in a disabled part
+      // of the document, so the full validator is needed.
+    }
+    try {
+      validateNow(schema, document, uri, object, FAIL_FAST, IGNORE_PROPERTY, IGNORE_ITEM,
+          recursiveRef, depth, context);
+    } catch (InvalidException e) {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Validates a range of items in an array against a single schema. When the schema is a leaf
+   * schema the items are checked in a tight loop, and the full validator is only used to report
+   * the errors of items that failed.
+   */
+  private void validateItems(Schema itemSchema, Object document, URI uri, List<Object> jsonArray,
+      int start, Consumer<ValidationError> errorConsumer, Consumer<Integer> itemHandler,
+      Schema recursiveRef, int depth, Context context) {
+    int size = jsonArray.size();
+    // Disabled paths are left to evaluate(), which checks them for each item.
+    if (!itemSchema.isLeaf() || profile != null && profile.hasInstancePaths()) {
+      for (int idx = start; idx < size; idx++) {
+        defer(context, itemSchema, document, PathUtils.append(uri, String.valueOf(idx)),
+            jsonArray.get(idx), errorConsumer, recursiveRef, depth);
+        itemHandler.accept(idx);
+      }
+      return;
+    }
+    if (depth > maxDepth && start < size) {
+      // As evaluate() would for the first item.
+      throw new LimitException(LimitExceededError.Limit.DEPTH,
+          PathUtils.append(uri, String.valueOf(start)), itemSchema);
+    }
+    if (context.guard != null) {
+      context.guard.visitLeaves(itemSchema, uri, size - start);
+    }
+    boolean trackItems = itemHandler != IGNORE_ITEM;
+    if (forkJoinPool != null && jsonArray instanceof RandomAccess
+        && size - start >= parallelThreshold) {
+      // The checks are made in parallel, and the failed items are deferred in order afterwards.
+      boolean[] failed = new boolean[size];
+      forEachInParallel(start, size, (from, to) -> {
+        for (int idx = from; idx != to; idx++) {
+          failed[idx] = !isLeafValid(itemSchema, jsonArray.get(idx));
+        }
+      });
+      for (int idx = start; idx < size; idx++) {
+        if (failed[idx]) {
+          defer(context, itemSchema, document, PathUtils.append(uri, String.valueOf(idx)),
+              jsonArray.get(idx), errorConsumer, recursiveRef, depth);
+        }
+        if (trackItems) {
+          itemHandler.accept(idx);
+        }
+      }
+    } else if (jsonArray instanceof RandomAccess) {
+      for (int idx = start; idx < size; idx++) {
+        Object item = jsonArray.get(idx);
+        if (!isLeafValid(itemSchema, item)) {
+          defer(context, itemSchema, document, PathUtils.append(uri, String.valueOf(idx)), item,
+              errorConsumer, recursiveRef, depth);
+        }
+        if (trackItems) {
+          itemHandler.accept(idx);
+        }
+      }
+    } else {
+      ListIterator<Object> it = jsonArray.listIterator(start);
+      while (it.hasNext()) {
+        int idx = it.nextIndex();
+        Object item = it.next();
+        if (!isLeafValid(itemSchema, item)) {
+          defer(context, itemSchema, document, PathUtils.append(uri, String.valueOf(idx)), item,
+              errorConsumer, recursiveRef, depth);
+        }
+        if (trackItems) {
+          itemHandler.accept(idx);
+        }
+      }
+    }
   }
 
   public void validate(Schema schema, File file) throws ValidationException, IOException {
@@ -690,32 +1852,523 @@ public class Validator {
     validate(schema, document, URI.create(""), errorConsumer);
   }
 
+  /**
+   * Validates a document as it is read from a parser, without reading the whole document into
+   * memory. Arrays and objects are validated as their tokens are read, so for most schemas memory
+   * use depends on the depth of the document rather than its size. Arrays and objects validated
+   * against schemas with keywords that need the whole value at once, such as uniqueItems, enum,
+   * anyOf, oneOf, not, if and unevaluatedProperties, are read into memory, up to the streaming
+   * buffer limit.
+   *
+   * <p>Errors are reported as they are found, so their order can differ from that of other
+   * validate() methods. The document of each error only contains the value at its location, and
+   * for arrays and objects that were not read into memory it has null at that location. The
+   * profile and error filter apply as for the other validate() methods.
+   *
+   * @param schema The schema to validate against.
+   * @param parser The parser to read the document from. The first value is validated, and the
+   *     parser is left at its last token.
+   * @param errorConsumer The consumer for errors.
+   * @throws IOException If the document could not be read.
+   */
+  public void validate(Schema schema, JsonParser parser, Consumer<ValidationError> errorConsumer)
+      throws IOException {
+    new StreamingValidation(this, parser, errorConsumer).validate(schema);
+  }
+
+  public void validate(Schema schema, JsonParser parser) throws ValidationException, IOException {
+    Collection<ValidationError> errors = new ArrayList<>();
+    validate(schema, parser, errors::add);
+    if (!errors.isEmpty()) {
+      throw new ListValidationException(errors);
+    }
+  }
+
+  /**
+   * Validates a document, recording the outcomes of the evaluations of the schema against the parts
+   * of the document, so that the document can be validated again after edits with revalidate().
+   * The recorded outcomes take memory in proportion to the size of the document and the number of
+   * schemas evaluated against each part. Outcomes are recorded as with setMemoize(), so errors may
+   * be reported in a different order than by the other validate() methods.
+   *
+   * @param schema The schema to validate against.
+   * @param document The document to validate.
+   * @param errorConsumer The consumer for errors.
+   * @return The recorded state of the validation.
+   */
+  public ValidationState validateWithState(
+      Schema schema, Object document, Consumer<ValidationError> errorConsumer) {
+    ValidationState state = new ValidationState(schema);
+    document = NodeViews.adapt(document, nodeAdapters);
+    validateWithLimits(schema, document, URI.create(""), document, detaching(errorConsumer),
+        IGNORE_PROPERTY, IGNORE_ITEM, null, 0, new Context(state), newGuard(null));
+    return state;
+  }
+
+  /**
+   * Validates an edited document, only evaluating the parts of the document affected by the edits.
+   * Outcomes of evaluations of parts of the document that were not changed, and do not contain
+   * changed parts, are replayed from the state. The errors reported are the same, and in the same
+   * order, as from validateWithState() with the edited document, and the state is updated to the
+   * edited document. Replayed errors refer to the document they were found in.
+   *
+   * @param state The state of the validation of the document before the edits.
+   * @param document The edited document.
+   * @param changedPointers JSON Pointers to all of the values that were changed, added or removed
+   *     by the edits (for example, the paths of the operations of a JSON Patch). When items are
+   *     inserted into or removed from an array the following items move, so for a pointer to an
+   *     item of an array the outcomes for the whole array are discarded.
+   * @param errorConsumer The consumer for errors.
+   */
+  public void revalidate(ValidationState state, Object document,
+      Collection<String> changedPointers, Consumer<ValidationError> errorConsumer) {
+    document = NodeViews.adapt(document, nodeAdapters);
+    for (String pointer : changedPointers) {
+      state.invalidate(pointer, document);
+    }
+    validateWithLimits(state.getSchema(), document, URI.create(""), document,
+        detaching(errorConsumer), IGNORE_PROPERTY, IGNORE_ITEM, null, 0, new Context(state),
+        newGuard(null));
+  }
+
+  /**
+   * Validates many documents against one schema concurrently, on the batch executor. At most the
+   * batch read-ahead number of documents are in flight at once.
+   *
+   * @param schema The schema to validate against.
+   * @param documents The documents to validate.
+   * @return The result for each document, in the order of the documents.
+   */
+  public List<ValidationResult> validateAll(Schema schema, Iterable<?> documents) {
+    Iterator<ValidationResult> pipeline = batchPipeline(schema, documents.iterator());
+    List<ValidationResult> results = new ArrayList<>();
+    while (pipeline.hasNext()) {
+      results.add(pipeline.next());
+    }
+    return results;
+  }
+
+  /**
+   * Validates many documents against one schema concurrently, on the batch executor. Documents
+   * are taken from the stream as the results are consumed, with at most the batch read-ahead
+   * number in flight, so the stream can be larger than memory or unbounded.
+   *
+   * @param schema The schema to validate against.
+   * @param documents The documents to validate. It is closed when the returned stream is closed.
+   * @return The result for each document, in the order of the documents.
+   */
+  public Stream<ValidationResult> validateAll(Schema schema, Stream<?> documents) {
+    return StreamSupport
+        .stream(Spliterators.spliteratorUnknownSize(batchPipeline(schema, documents.iterator()),
+                    Spliterator.ORDERED | Spliterator.NONNULL),
+            false)
+        .onClose(documents::close);
+  }
+
+  private BatchPipeline batchPipeline(Schema schema, Iterator<?> documents) {
+    Executor executor = batchExecutor == null ? ForkJoinPool.commonPool() : batchExecutor;
+    return new BatchPipeline(this, schema, documents, executor, batchReadAhead);
+  }
+
+  /**
+   * Validates one document of a call to validateAll(). The document is reported as incomplete if
+   * it would take the errors of the batch beyond the limit, or if the limit was already exceeded.
+   */
+  ValidationResult validateInBatch(
+      Schema schema, int index, Object document, AtomicInteger errorCount) {
+    List<ValidationError> errors = new ArrayList<>();
+    if (errorCount.get() > batchMaxErrors) {
+      return new ValidationResult(index, document, errors, false);
+    }
+    try {
+      validate(schema, document, validationError -> {
+        if (errorCount.incrementAndGet() > batchMaxErrors) {
+          throw BatchLimitException.INSTANCE;
+        }
+        errors.add(validationError);
+      });
+    } catch (BatchLimitException e) {
+      return new ValidationResult(index, document, errors, false);
+    }
+    boolean complete = errors.isEmpty()
+        || !(errors.get(errors.size() - 1) instanceof LimitExceededError);
+    return new ValidationResult(index, document, errors, complete);
+  }
+
+  /**
+   * Validates each record of a JSON Lines (newline-delimited JSON) document against one schema.
+   * Records are parsed and validated concurrently on the batch executor, with at most the
+   * read-ahead number of records in flight. Blank lines are skipped. Input compressed with gzip is
+   * detected and decompressed.
+   *
+   * @param schema The schema to validate against.
+   * @param inputStream The input to read the records from. It is closed when the stream is closed.
+   * @return A stream of the result for each record, in the order of the lines. Errors reading the
+   *     input are thrown from the stream as UncheckedIOException.
+   * @throws IOException If the start of the input could not be read.
+   */
+  public Stream<ValidationResult> validateJsonLines(Schema schema, InputStream inputStream)
+      throws IOException {
+    InputStream in = new BufferedInputStream(inputStream);
+    in.mark(2);
+    boolean gzip = in.read() == 0x1f && in.read() == 0x8b;
+    in.reset();
+    if (gzip) {
+      in = new GZIPInputStream(in);
+    }
+    Executor executor = batchExecutor == null ? ForkJoinPool.commonPool() : batchExecutor;
+    JsonLinesPipeline pipeline =
+        new JsonLinesPipeline(this, schema, in, executor, jsonLinesReadAhead);
+    InputStream toClose = in;
+    return StreamSupport
+        .stream(Spliterators.spliteratorUnknownSize(
+                    pipeline, Spliterator.ORDERED | Spliterator.NONNULL),
+            false)
+        .onClose(() -> {
+          try {
+            toClose.close();
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+  }
+
+  public Stream<ValidationResult> validateJsonLines(Schema schema, Path path) throws IOException {
+    InputStream inputStream = Files.newInputStream(path);
+    try {
+      return validateJsonLines(schema, inputStream);
+    } catch (IOException e) {
+      inputStream.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Validates the elements of a file that holds a single top-level JSON array, such as a large
+   * export of records. The file is memory-mapped and scanned for the boundaries of the elements,
+   * and chunks of elements are parsed and validated concurrently on the batch executor. Only a few
+   * chunks per processor are held in memory at once.
+   *
+   * <p>Each element is validated against the schemas that apply to items of the array (items,
+   * prefixItems and additionalItems, including through $ref and allOf). Keywords on the array as a
+   * whole, such as minItems, uniqueItems and contains, are not evaluated. The profile applies as
+   * for the other validate() methods, and the limits of setLimits() to each element. The file is
+   * unmapped once it has been scanned, or when the stream is closed.
+   *
+   * @param schema The schema of the array.
+   * @param path The file to read.
+   * @return A stream of the result for each element, in the order of the elements. An element
+   *     that is not valid JSON, or missing (as after a trailing comma), has a result with a syntax
+   *     error, and the elements after it are still validated. If the array itself is not
+   *     terminated, UncheckedIOException is thrown from the stream.
+   * @throws IOException If the file could not be mapped, or does not hold a JSON array.
+   */
+  public Stream<ValidationResult> validateArrayElements(Schema schema, Path path)
+      throws IOException {
+    Executor executor = batchExecutor == null ? ForkJoinPool.commonPool() : batchExecutor;
+    ArrayFileValidation validation =
+        new ArrayFileValidation(this, schema, path, executor, arrayChunkSize);
+    return StreamSupport
+        .stream(Spliterators.spliteratorUnknownSize(
+                    validation, Spliterator.ORDERED | Spliterator.NONNULL),
+            false)
+        .onClose(validation::release);
+  }
+
+  /** Validates a document, and describes the outcome in the basic output format. */
   public Map<String, Object> validateWithOutput(
       SchemaStore schemaStore, Schema schema, Object document) throws GenerationException {
-    Map<String, Object> output = new LinkedHashMap<>();
-    output.put("valid", true);
-    validate(schema, document, validationError -> {
-      output.put("valid", false);
-      Map<String, Object> error = new LinkedHashMap<>();
-      error.put("error", validationError.getMessage());
-      error.put("keywordLocation", validationError.getSchema().getUri());
-      error.put("absoluteKeywordLocation",
-          schemaStore.canonicalUriToResourceUri(validationError.getSchema().getUri()));
-      String rawFragment = validationError.getUri().getRawFragment();
-      error.put("instanceLocation", "#" + (rawFragment == null ? "" : rawFragment));
-      if (!output.containsKey("errors")) {
-        output.put("errors", new ArrayList<>());
-      }
-      ((Collection<Object>) output.get("errors")).add(error);
-    });
-    Schema metaSchema = schemaStore.loadSchema(
-        URI.create("https://json-schema.org/draft/2019-09/output/schema"), false);
+    return validateWithOutput(schemaStore, schema, document, OutputFormat.BASIC);
+  }
 
-    try {
-      new Validator().validate(metaSchema, output);
-    } catch (ValidationException e) {
-      throw new GenerationException(e);
+  /**
+   * Validates a document, and describes the outcome in one of the standard output formats of JSON
+   * Schema. The flag format only checks validity, without creating errors.
+   *
+   * @param schemaStore The store the schema was loaded from, to find the absolute keyword locations
+   *     of errors; or null.
+   */
+  public Map<String, Object> validateWithOutput(
+      SchemaStore schemaStore, Schema schema, Object document, OutputFormat format) {
+    if (format == OutputFormat.FLAG) {
+      Map<String, Object> output = new LinkedHashMap<>();
+      output.put("valid", isValid(schema, adapt(document)));
+      return output;
+    }
+    List<ValidationError> errors = new ArrayList<>();
+    validate(schema, document, errors::add);
+    return new StandardOutput(schemaStore, schema, format).build(errors);
+  }
+
+  /** An action on a range of indices, as run by forEachInParallel(). */
+  private interface RangeAction {
+    void run(int from, int to);
+  }
+
+  /** Runs an action over a range of indices, splitting it into tasks of at most chunkSize. */
+  private static class ParallelRange extends RecursiveAction {
+    private final int from;
+    private final int to;
+    private final int chunkSize;
+    private final RangeAction action;
+
+    ParallelRange(int from, int to, int chunkSize, RangeAction action) {
+      this.from = from;
+      this.to = to;
+      this.chunkSize = chunkSize;
+      this.action = action;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= chunkSize) {
+        action.run(from, to);
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(new ParallelRange(from, middle, chunkSize, action),
+          new ParallelRange(middle, to, chunkSize, action));
+    }
+  }
+
+  /** The state of a single validation. */
+  private static class Context {
+    final List<PendingValidation> work = WORK_STACKS.get();
+    final Map<MemoKey, MemoResult> memo;
+    // The state recording the outcomes in the memo, for incremental validation; or null.
+    final ValidationState state;
+    // Hashes of the arrays and objects of the document, for the subtree cache.
+    Map<Object, SubtreeCache.Hash> hashes;
+    // The number of branches of anyOf and oneOf that the current evaluation is within.
+    int branchDepth;
+    // The number of evaluations nested on the Java stack.
+    int stackDepth;
+    // The largest size of the work stack seen by this validation.
+    int peakWork;
+    // The limits of the validation, or null.
+    Guard guard;
+    // The evaluations on this context not yet added to the count of the guard.
+    int nodes;
+
+    Context(boolean memoize) {
+      memo = memoize ? new HashMap<>() : null;
+      state = null;
+    }
+
+    Context(ValidationState state) {
+      memo = state.getMemo();
+      this.state = state;
+    }
+  }
+
+  /** Identifies an evaluation of a schema against an object in the document. */
+  static class MemoKey {
+    private final Schema schema;
+    private final URI uri;
+    private final Schema recursiveRef;
+
+    MemoKey(Schema schema, URI uri, Schema recursiveRef) {
+      this.schema = schema;
+      this.uri = uri;
+      this.recursiveRef = recursiveRef;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof MemoKey)) {
+        return false;
+      }
+      MemoKey other = (MemoKey) obj;
+      return schema == other.schema && recursiveRef == other.recursiveRef && uri.equals(other.uri);
+    }
+
+    @Override
+    public int hashCode() {
+      return (System.identityHashCode(schema) * 31 + System.identityHashCode(recursiveRef)) * 31
+          + uri.hashCode();
+    }
+  }
+
+  /** The recorded outcome of an evaluation. */
+  static class MemoResult {
+    final List<ValidationError> errors;
+    final Collection<String> properties;
+    final Collection<Integer> items;
+
+    MemoResult(
+        List<ValidationError> errors, Collection<String> properties, Collection<Integer> items) {
+      this.errors = errors;
+      this.properties = properties;
+      this.items = items;
+    }
+  }
+
+  /**
+   * Collects the errors of a branch of anyOf or oneOf, keeping those within the limits of the
+   * validator and counting all of them.
+   */
+  private class BranchErrors implements Consumer<ValidationError> {
+    final List<ValidationError> errors = new ArrayList<>();
+    final boolean keep;
+    int count;
+
+    BranchErrors(Context context) {
+      keep = context.branchDepth < maxBranchDepth;
+    }
+
+    @Override
+    public void accept(ValidationError error) {
+      count++;
+      if (keep && errors.size() < maxBranchErrors) {
+        // Detached as they are recorded, so that the errors of nested branches are detached
+        // however the error holding them is reported.
+        if (detachDocuments) {
+          error.detachDocument();
+        }
+        errors.add(error);
+      }
+    }
+  }
+
+  /** Returns the errors of the branches of anyOf or oneOf to be held by its error. */
+  private List<List<ValidationError>> keptErrors(List<BranchErrors> branches, Context context) {
+    List<List<ValidationError>> allErrors = new ArrayList<>();
+    if (context.branchDepth >= maxBranchDepth) {
+      return allErrors;
+    }
+    if (summarizeBranches) {
+      BranchErrors best = null;
+      for (BranchErrors branch : branches) {
+        if (best == null || branch.count < best.count) {
+          best = branch;
+        }
+      }
+      if (best != null) {
+        allErrors.add(best.errors);
+      }
+      return allErrors;
+    }
+    for (BranchErrors branch : branches) {
+      allErrors.add(branch.errors);
+    }
+    return allErrors;
+  }
+
+  /** A validation of a child of an object, waiting on the work stack. */
+  private static class PendingValidation {
+    final Schema schema;
+    final Object document;
+    final URI uri;
+    final Object object;
+    final Consumer<ValidationError> errorConsumer;
+    final Schema recursiveRef;
+    final int depth;
+
+    PendingValidation(Schema schema, Object document, URI uri, Object object,
+        Consumer<ValidationError> errorConsumer, Schema recursiveRef, int depth) {
+      this.schema = schema;
+      this.document = document;
+      this.uri = uri;
+      this.object = object;
+      this.errorConsumer = errorConsumer;
+      this.recursiveRef = recursiveRef;
+      this.depth = depth;
+    }
+  }
+
+  /**
+   * Enforces the limits of one validation of a document. It is shared by the contexts of the
+   * parallel parts of the validation.
+   */
+  private static class Guard {
+    // The number of evaluations on each thread between checks of the limits. Each thread adds its
+    // evaluations to the shared count in steps of this size, so a validation can make up to this
+    // many evaluations per thread beyond the node limit before it ends.
+    private static final int CHECK_INTERVAL = 64;
+
+    private final ValidationLimits limits;
+    private final CancellationToken cancellationToken;
+    private final long start = System.nanoTime();
+    private final long timeoutNanos;
+    private final int checkInterval;
+    private final AtomicLong nodes = new AtomicLong();
+    private final AtomicInteger errors = new AtomicInteger();
+
+    Guard(ValidationLimits limits, CancellationToken cancellationToken) {
+      this.limits = limits;
+      this.cancellationToken = cancellationToken;
+      timeoutNanos = TimeUnit.MILLISECONDS.toNanos(limits.getTimeoutMillis());
+      // Small node limits are checked exactly, in sequential validation.
+      checkInterval = limits.getMaxNodes() < CHECK_INTERVAL ? (int) limits.getMaxNodes() + 1
+                                                            : CHECK_INTERVAL;
+    }
+
+    void visit(Schema schema, URI uri, Context context) {
+      if (++context.nodes < checkInterval) {
+        return;
+      }
+      context.nodes = 0;
+      if (nodes.addAndGet(checkInterval) > limits.getMaxNodes()) {
+        throw new LimitException(LimitExceededError.Limit.NODES, uri, schema);
+      }
+      if (cancellationToken != null && cancellationToken.isCancelled()) {
+        throw new LimitException(LimitExceededError.Limit.CANCELLED, uri, schema);
+      }
+      if (timeoutNanos != 0 && System.nanoTime() - start > timeoutNanos) {
+        throw new LimitException(LimitExceededError.Limit.TIME, uri, schema);
+      }
+    }
+
+    /** Counts the items of an array checked against a leaf schema without evaluations. */
+    void visitLeaves(Schema schema, URI uri, int count) {
+      if (nodes.addAndGet(count) > limits.getMaxNodes()) {
+        throw new LimitException(LimitExceededError.Limit.NODES, uri, schema);
+      }
+    }
+
+    void countError(ValidationError error) {
+      if (errors.incrementAndGet() > limits.getMaxErrors()) {
+        throw new LimitException(
+            LimitExceededError.Limit.ERRORS, error.getUri(), error.getSchema());
+      }
+    }
+  }
+
+  /**
+   * Thrown to end a validation when one of its limits is exceeded. It records where the validation
+   * was when it ended. It has no stack trace, as it is only used for control flow.
+   */
+  static class LimitException extends RuntimeException {
+    final LimitExceededError.Limit limit;
+    final URI uri;
+    final Schema schema;
+
+    LimitException(LimitExceededError.Limit limit, URI uri, Schema schema) {
+      super(null, null, false, false);
+      this.limit = limit;
+      this.uri = uri;
+      this.schema = schema;
+    }
+  }
+
+  /** Thrown to abandon the validation of a document when the error limit of a batch is reached. */
+  private static class BatchLimitException extends RuntimeException {
+    static final BatchLimitException INSTANCE = new BatchLimitException();
+
+    private BatchLimitException() {
+      super(null, null, false, false);
+    }
+  }
+
+  /**
+   * Thrown to abandon a validity check at the first error. A single instance without a stack trace
+   * is used, as the exception is only used for control flow.
+   */
+  private static class InvalidException extends RuntimeException {
+    static final InvalidException INSTANCE = new InvalidException();
+
+    private InvalidException() {
+      super(null, null, false, false);
     }
-    return output;
   }
 }
@@ -0,0 +1,120 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+public class ArrayElementsTest {
+  @Test
+  public void sameErrors() throws IOException, SchemaException {
+    Schema schema = SchemaTestUtils.loadSchema("{"
+        + "  \"items\": {\"required\": [\"id\"], \"properties\": {\"id\": {\"minimum\": 0}}}"
+        + "}");
+
+    StringBuilder json = new StringBuilder(" [\n");
+    List<Object> document = new ArrayList<>();
+    for (int idx = 0; idx != 1000; idx++) {
+      String name = "n\\\"],[{" + idx;
+      Map<String, Object> item = new HashMap<>();
+      item.put("name", "n\"],[{" + idx);
+      if (idx % 7 != 0) {
+        item.put("id", idx % 5 == 0 ? -idx : idx);
+      }
+      document.add(item);
+      json.append(idx == 0 ? "" : ",\n").append("{\"name\": \"").append(name).append('"');
+      if (item.containsKey("id")) {
+        json.append(", \"id\": ").append(item.get("id"));
+      }
+      json.append('}');
+    }
+    json.append("\n]\n");
+
+    List<String> expected = new ArrayList<>();
+    new Validator().validate(schema, document, error -> expected.add(error.toString()));
+
+    Path path = Files.createTempFile("elements", ".json");
+    try {
+      Files.write(path, json.toString().getBytes(StandardCharsets.UTF_8));
+      Validator validator = new Validator();
+      validator.setArrayChunkSize(500);
+      List<ValidationResult> results =
+          validator.validateArrayElements(schema, path).collect(Collectors.toList());
+      assertEquals(1000, results.size());
+      List<String> errors = new ArrayList<>();
+      for (int idx = 0; idx != results.size(); idx++) {
+        assertEquals(idx, results.get(idx).getIndex());
+        assertEquals(document.get(idx), results.get(idx).getDocument());
+        results.get(idx).getErrors().forEach(error -> errors.add(error.toString()));
+      }
+      assertEquals(expected, errors);
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void malformedElement() throws IOException, SchemaException {
+    Schema schema = SchemaTestUtils.loadSchema("{\"items\": {\"minimum\": 0}}");
+
+    Path path = Files.createTempFile("elements", ".json");
+    try {
+      Files.write(path, "[1, 2x, -3, {\"a\": }, 5]".getBytes(StandardCharsets.UTF_8));
+      List<ValidationResult> results =
+          new Validator().validateArrayElements(schema, path).collect(Collectors.toList());
+      assertEquals(5, results.size());
+      assertTrue(results.get(0).isValid());
+      assertNull(results.get(0).getSyntaxError());
+      assertFalse(results.get(1).isValid());
+      assertFalse(results.get(1).isComplete());
+      assertTrue(results.get(1).getSyntaxError().startsWith("Element at offset 4 "));
+      assertEquals(1, results.get(2).getErrors().size());
+      assertTrue(results.get(2).isComplete());
+      assertFalse(results.get(3).isValid());
+      assertTrue(results.get(4).isValid());
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void trailingCommaAndLimits() throws IOException, SchemaException {
+    Schema schema =
+        SchemaTestUtils.loadSchema("{\"items\": {\"properties\": {\"a\": {\"minimum\": 0}}}}");
+    Validator validator = new Validator();
+    ValidationLimits limits = new ValidationLimits();
+    limits.setMaxNodes(1);
+    validator.setLimits(limits);
+
+    Path path = Files.createTempFile("elements", ".json");
+    try {
+      Files.write(path, "[5, {\"a\": 1}, ]".getBytes(StandardCharsets.UTF_8));
+      List<ValidationResult> results;
+      try (Stream<ValidationResult> stream = validator.validateArrayElements(schema, path)) {
+        results = stream.collect(Collectors.toList());
+      }
+      assertEquals(3, results.size());
+      assertTrue(results.get(0).isValid());
+      assertEquals(4, results.get(1).getByteOffset());
+      // The limits apply to each element.
+      assertFalse(results.get(1).isComplete());
+      assertTrue(results.get(1).getErrors().get(0) instanceof LimitExceededError);
+      // The element missing after the trailing comma.
+      assertTrue(results.get(2).getSyntaxError().startsWith("Element at offset 14 "));
+    } finally {
+      Files.delete(path);
+    }
+  }
+}
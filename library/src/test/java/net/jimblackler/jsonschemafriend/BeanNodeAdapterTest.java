@@ -0,0 +1,182 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class BeanNodeAdapterTest {
+  private static final String SCHEMA = "{"
+      + "  \"$schema\": \"https://json-schema.org/draft/2019-09/schema\","
+      + "  \"$defs\": {"
+      + "    \"item\": {"
+      + "      \"required\": [\"name\", \"size\"],"
+      + "      \"properties\": {"
+      + "        \"name\": {\"type\": \"string\", \"minLength\": 2},"
+      + "        \"size\": {\"enum\": [\"SMALL\", \"LARGE\"]},"
+      + "        \"weights\": {\"items\": {\"type\": \"integer\", \"maximum\": 10}},"
+      + "        \"active\": {\"const\": true}"
+      + "      },"
+      + "      \"additionalProperties\": false"
+      + "    }"
+      + "  },"
+      + "  \"properties\": {"
+      + "    \"items\": {\"items\": {\"$ref\": \"#/$defs/item\"}, \"minItems\": 2},"
+      + "    \"tags\": {\"uniqueItems\": true, \"items\": {\"type\": \"string\"}},"
+      + "    \"values\": {\"items\": {\"type\": \"number\"}}"
+      + "  }"
+      + "}";
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  public enum Size { SMALL, MEDIUM, LARGE }
+
+  public static class Item {
+    private final String name;
+    private final Size size;
+    private final int[] weights;
+    private final boolean active;
+
+    Item(String name, Size size, int[] weights, boolean active) {
+      this.name = name;
+      this.size = size;
+      this.weights = weights;
+      this.active = active;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public Size getSize() {
+      return size;
+    }
+
+    public int[] getWeights() {
+      return weights;
+    }
+
+    public boolean isActive() {
+      return active;
+    }
+  }
+
+  private static class Order {
+    public List<Item> items;
+    public Set<String> tags;
+    public double[] values;
+
+    public String describe() {
+      return "Not a property";
+    }
+  }
+
+  public static class Link {
+    public String name;
+    public Link next;
+  }
+
+  @Test
+  public void sameErrors() throws IOException, SchemaException {
+    Schema schema = new SchemaStore().loadSchema(OBJECT_MAPPER.readValue(SCHEMA, Object.class));
+    Order order = new Order();
+    order.items = Arrays.asList(new Item("ab", Size.SMALL, new int[] {1, 2}, true),
+        new Item("c", Size.MEDIUM, new int[] {3, 11}, false));
+    order.tags = new LinkedHashSet<>(Arrays.asList("x", "y"));
+    order.values = new double[] {1.5, 2};
+    String json = "{\"items\": ["
+        + "{\"active\": true, \"name\": \"ab\", \"size\": \"SMALL\", \"weights\": [1, 2]},"
+        + "{\"active\": false, \"name\": \"c\", \"size\": \"MEDIUM\", \"weights\": [3, 11]}],"
+        + "\"tags\": [\"x\", \"y\"], \"values\": [1.5, 2.0]}";
+
+    Validator validator = new Validator();
+    List<String> expected = errors(validator, schema, OBJECT_MAPPER.readValue(json, Object.class));
+    assertEquals(4, expected.size());
+    assertEquals(expected, errors(validator, schema, order));
+  }
+
+  @Test
+  public void nativeContainers() throws IOException, SchemaException {
+    Schema schema = new SchemaStore().loadSchema(OBJECT_MAPPER.readValue(SCHEMA, Object.class));
+    Item item0 = new Item("ab", Size.SMALL, new int[] {1}, true);
+    Item item1 = new Item("c", Size.MEDIUM, new int[] {11}, true);
+    String items = "["
+        + "{\"active\": true, \"name\": \"ab\", \"size\": \"SMALL\", \"weights\": [1]},"
+        + "{\"active\": true, \"name\": \"c\", \"size\": \"MEDIUM\", \"weights\": [11]}]";
+    Map<String, Object> order = new LinkedHashMap<>();
+    order.put("items", Arrays.asList(item0, item1));
+
+    Validator validator = new Validator();
+    List<String> expected = errors(validator, schema,
+        OBJECT_MAPPER.readValue("{\"items\": " + items + "}", Object.class));
+    assertEquals(3, expected.size());
+    assertEquals(expected, errors(validator, schema, order));
+
+    Schema itemsSchema = new SchemaStore().loadSchema(OBJECT_MAPPER.readValue(
+        "{\"items\": " + SCHEMA.replace("#/$defs/item", "#/items/$defs/item") + "}",
+        Object.class));
+    expected = errors(validator, itemsSchema, OBJECT_MAPPER.readValue(
+        "[{\"items\": " + items + "}]", Object.class));
+    assertEquals(3, expected.size());
+    assertEquals(expected, errors(validator, itemsSchema, Arrays.asList(order)));
+  }
+
+  @Test
+  public void mapKeys() throws IOException, SchemaException {
+    String schemaJson =
+        "{\"required\": [\"SMALL\", \"LARGE\"], \"additionalProperties\": {\"maximum\": 2}}";
+    Schema schema =
+        new SchemaStore().loadSchema(OBJECT_MAPPER.readValue(schemaJson, Object.class));
+    Map<Size, Integer> sizes = new EnumMap<>(Size.class);
+    sizes.put(Size.SMALL, 1);
+    sizes.put(Size.MEDIUM, 3);
+    Map<String, Object> document = new LinkedHashMap<>();
+    document.put("SMALL", 1);
+    document.put("MEDIUM", 3);
+
+    Validator validator = new Validator();
+    List<String> expected = errors(validator, schema, document);
+    assertEquals(2, expected.size());
+    assertEquals(expected, errors(validator, schema, sizes));
+  }
+
+  @Test
+  public void unexpectedTypes() throws IOException, SchemaException {
+    Schema schema = new SchemaStore().loadSchema(OBJECT_MAPPER.readValue(
+        "{\"properties\": {\"next\": {\"$ref\": \"#\"}}}", Object.class));
+    Validator validator = new Validator();
+    validator.setSubtreeCache(new SubtreeCache(100, 0));
+    List<ValidationError> errors = new ArrayList<>();
+    validator.validate(schema, new Date(), errors::add);
+    assertEquals(1, errors.size());
+    assertTrue(errors.get(0) instanceof UnexpectedTypeError);
+
+    // A cycle is reported where the graph returns to an object it came from.
+    Link link0 = new Link();
+    Link link1 = new Link();
+    link0.next = link1;
+    link1.next = link0;
+    errors.clear();
+    validator.validate(schema, link0, errors::add);
+    assertEquals(1, errors.size());
+    assertTrue(errors.get(0) instanceof UnexpectedTypeError);
+    assertEquals("#/next/next", errors.get(0).getUri().toString());
+  }
+
+  private static List<String> errors(Validator validator, Schema schema, Object document) {
+    List<String> errors = new ArrayList<>();
+    validator.validate(schema, document, error -> errors.add(error.toString()));
+    return errors;
+  }
+}
@@ -0,0 +1,67 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class BranchErrorsTest {
+  private static final String SCHEMA = "{"
+      + "  \"$schema\": \"http://json-schema.org/draft-07/schema#\","
+      + "  \"properties\": {"
+      + "    \"value\": {"
+      + "      \"anyOf\": ["
+      + "        {\"type\": \"string\"},"
+      + "        {\"type\": \"integer\", \"minimum\": 10, \"multipleOf\": 3},"
+      + "        {\"type\": \"number\", \"minimum\": 10},"
+      + "        {\"oneOf\": [{\"type\": \"boolean\"}, {\"type\": \"null\"}]}"
+      + "      ]"
+      + "    }"
+      + "  }"
+      + "}";
+  private static final String DOCUMENT = "{\"other\": [1, 2, 3], \"value\": 4.5}";
+
+  @Test
+  public void detachDocuments() throws SchemaException {
+    Validator validator = new Validator();
+    validator.setDetachDocuments(true);
+    AnyOfError error = validate(validator);
+    Map<?, ?> document = (Map<?, ?>) error.getDocument();
+    assertEquals(1, document.size());
+    assertFalse(document.containsKey("other"));
+    assertEquals(4.5, error.getObject());
+    ValidationError branchError = error.getAllErrors().get(2).get(0);
+    assertEquals(1, ((Map<?, ?>) branchError.getDocument()).size());
+    assertEquals(4.5, branchError.getObject());
+    // The errors of nested branches are detached too.
+    OneOfError nested = (OneOfError) error.getAllErrors().get(3).get(0);
+    assertEquals(1, ((Map<?, ?>) nested.getDocument()).size());
+    ValidationError nestedError = nested.getAllErrors().get(1).get(0);
+    assertEquals(1, ((Map<?, ?>) nestedError.getDocument()).size());
+    assertEquals(4.5, nestedError.getObject());
+  }
+
+  @Test
+  public void extractPath() throws MissingPathException {
+    Object document = DocumentUtils.parseJson("{\"a\": [0, {\"b/c\": 1, \"d\": 2}], \"e\": 3}");
+    Object extracted = PathUtils.extractPath(document, "/a/1/b~1c");
+    assertEquals(1, PathUtils.fetchFromPath(extracted, "/a/1/b~1c"));
+    List<?> list = (List<?>) ((Map<?, ?>) extracted).get("a");
+    assertEquals(2, list.size());
+    assertNull(list.get(0));
+    assertEquals(1, ((Map<?, ?>) list.get(1)).size());
+  }
+
+  private static AnyOfError validate(Validator validator) throws SchemaException {
+    Schema schema = new SchemaStore().loadSchema((Object) DocumentUtils.parseJson(SCHEMA));
+    List<ValidationError> errors = new ArrayList<>();
+    validator.validate(schema, DocumentUtils.parseJson(DOCUMENT), URI.create(""), errors::add);
+    assertEquals(1, errors.size());
+    return (AnyOfError) errors.get(0);
+  }
+}
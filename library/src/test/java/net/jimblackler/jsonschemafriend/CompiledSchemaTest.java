@@ -0,0 +1,144 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class CompiledSchemaTest {
+  private static final String SCHEMA = "{"
+      + "  \"$schema\": \"https://json-schema.org/draft/2019-09/schema\","
+      + "  \"$defs\": {"
+      + "    \"node\": {"
+      + "      \"type\": \"object\","
+      + "      \"required\": [\"value\"],"
+      + "      \"properties\": {"
+      + "        \"value\": {\"type\": \"integer\", \"minimum\": 0, \"exclusiveMaximum\": 100},"
+      + "        \"children\": {\"type\": \"array\", \"items\": {\"$ref\": \"#/$defs/node\"}}"
+      + "      },"
+      + "      \"additionalProperties\": false"
+      + "    }"
+      + "  },"
+      + "  \"properties\": {"
+      + "    \"tree\": {\"$ref\": \"#/$defs/node\"},"
+      + "    \"name\": {\"type\": \"string\", \"pattern\": \"^[a-z]+$\", \"maxLength\": 5},"
+      + "    \"email\": {\"format\": \"email\"},"
+      + "    \"tags\": {"
+      + "      \"uniqueItems\": true, \"contains\": {\"const\": \"x\"}, \"maxContains\": 1"
+      + "    },"
+      + "    \"pair\": {\"prefixItems\": [{\"type\": \"string\"}, {\"type\": \"number\"}]},"
+      + "    \"step\": {\"multipleOf\": 0.5},"
+      + "    \"choice\": {\"oneOf\": [{\"type\": \"string\"}, {\"enum\": [1, \"a\"]}]},"
+      + "    \"either\": {\"anyOf\": [{\"type\": \"null\"}, {\"minimum\": 10}]},"
+      + "    \"kind\": {\"not\": {\"const\": \"bad\"}},"
+      + "    \"open\": {\"unevaluatedProperties\": false, \"properties\": {\"a\": true}}"
+      + "  },"
+      + "  \"patternProperties\": {\"^x-\": {\"type\": \"string\"}},"
+      + "  \"propertyNames\": {\"maxLength\": 8},"
+      + "  \"dependentRequired\": {\"name\": [\"tree\"]},"
+      + "  \"dependentSchemas\": {\"step\": {\"required\": [\"kind\"]}},"
+      + "  \"if\": {\"required\": [\"either\"]},"
+      + "  \"then\": {\"properties\": {\"either\": {\"type\": \"number\"}}}"
+      + "}";
+
+  private static final String[] DOCUMENTS = {
+      "{}",
+      "{\"tree\": {\"value\": 1, \"children\": [{\"value\": 2}, {\"value\": 3, \"children\": []}]},"
+          + " \"name\": \"abc\", \"email\": \"a@b.com\", \"tags\": [\"x\", \"y\"],"
+          + " \"pair\": [\"a\", 1, true], \"step\": 1.5, \"kind\": \"ok\", \"choice\": 1,"
+          + " \"either\": 11, \"open\": {\"a\": 1}, \"x-a\": \"b\"}",
+      "{\"tree\": {\"value\": 1, \"children\": [{\"value\": 100}]}}",
+      "{\"tree\": {\"value\": 1.5}}",
+      "{\"tree\": {\"value\": 1, \"extra\": 1}}",
+      "{\"name\": \"abc\"}",
+      "{\"tree\": {\"value\": 1}, \"name\": \"abcdef\"}",
+      "{\"tree\": {\"value\": 1}, \"name\": \"ABC\"}",
+      "{\"email\": \"nope\"}",
+      "{\"tags\": [\"x\", \"x\"]}",
+      "{\"tags\": [\"y\"]}",
+      "{\"pair\": [1, \"a\"]}",
+      "{\"step\": 1.25, \"kind\": \"ok\"}",
+      "{\"step\": 1}",
+      "{\"choice\": \"a\"}",
+      "{\"choice\": 2}",
+      "{\"either\": null}",
+      "{\"either\": 5}",
+      "{\"kind\": \"bad\"}",
+      "{\"open\": {\"a\": 1, \"b\": 2}}",
+      "{\"x-a\": 1}",
+      "{\"verylongname\": 1}"
+  };
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  @Test
+  public void sameOutcomes() throws IOException, SchemaException {
+    Schema schema = new SchemaStore().loadSchema(OBJECT_MAPPER.readValue(SCHEMA, Object.class));
+    Validator validator = new Validator();
+    CompiledSchema compiledSchema = validator.compile(schema);
+    int invalid = 0;
+    for (String json : DOCUMENTS) {
+      Object document = OBJECT_MAPPER.readValue(json, Object.class);
+      List<String> expected = new ArrayList<>();
+      validator.validate(schema, document, error -> expected.add(error.toString()));
+      assertEquals(expected.isEmpty(), compiledSchema.isValid(document));
+      List<String> errors = new ArrayList<>();
+      compiledSchema.validate(document, error -> errors.add(error.toString()));
+      assertEquals(expected, errors);
+      if (!expected.isEmpty()) {
+        invalid++;
+      }
+    }
+    assertEquals(18, invalid);
+  }
+
+  @Test
+  public void limits() throws IOException, SchemaException {
+    Schema schema = new SchemaStore().loadSchema(OBJECT_MAPPER.readValue(SCHEMA, Object.class));
+    Validator validator = new Validator();
+    ValidationLimits limits = new ValidationLimits();
+    limits.setMaxNodes(5);
+    validator.setLimits(limits);
+    CompiledSchema compiledSchema = validator.compile(schema);
+    // Valid, but the validator gives up before it can tell.
+    Object document = OBJECT_MAPPER.readValue(DOCUMENTS[1], Object.class);
+    assertFalse(compiledSchema.isValid(document));
+    List<ValidationError> errors = new ArrayList<>();
+    compiledSchema.validate(document, errors::add);
+    assertTrue(errors.get(0) instanceof LimitExceededError);
+  }
+
+  @Test
+  public void deepDocument() throws IOException, SchemaException, InterruptedException {
+    Schema schema = new SchemaStore().loadSchema(OBJECT_MAPPER.readValue(SCHEMA, Object.class));
+    CompiledSchema compiledSchema = new Validator().compile(schema);
+    Map<String, Object> tree = Collections.singletonMap("value", 1);
+    for (int idx = 0; idx != 1000; idx++) {
+      Map<String, Object> node = new HashMap<>();
+      node.put("value", 1);
+      node.put("children", Collections.singletonList(tree));
+      tree = node;
+    }
+    Object document = Collections.singletonMap("tree", tree);
+    Object[] valid = new Object[1];
+    // A thread with a small stack, which the plan overflows, leaving the document to the validator.
+    Thread thread = new Thread(null, () -> {
+      try {
+        valid[0] = compiledSchema.isValid(document);
+      } catch (Throwable e) {
+        valid[0] = e;
+      }
+    }, "validate", 1 << 17);
+    thread.start();
+    thread.join();
+    assertEquals(true, valid[0]);
+  }
+}
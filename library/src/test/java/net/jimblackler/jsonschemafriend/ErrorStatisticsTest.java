@@ -0,0 +1,104 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class ErrorStatisticsTest {
+  private static final String SCHEMA = "{"
+      + "  \"properties\": {"
+      + "    \"items\": {"
+      + "      \"items\": {"
+      + "        \"properties\": {\"price\": {\"minimum\": 0}, \"1\": {\"type\": \"string\"}}"
+      + "      }"
+      + "    }"
+      + "  }"
+      + "}";
+  private static final String DOCUMENT = "{\"items\": [{\"price\": -1}, {\"price\": 2},"
+      + " {\"price\": -3, \"1\": 4}, {\"price\": -5}]}";
+
+  @Test
+  public void counts() throws SchemaException {
+    ErrorStatistics statistics = new ErrorStatistics();
+    Validator validator = new Validator();
+    Schema schema = schema();
+    for (int idx = 0; idx != 10; idx++) {
+      validator.validate(schema, document(), statistics);
+    }
+    List<ErrorCount> counts = statistics.getCounts();
+    assertEquals(2, counts.size());
+    ErrorCount minimum = counts.get(0);
+    assertEquals("#/items/*/price minimum: 30", minimum.toString());
+    assertEquals("#/properties/items/items/properties/price/minimum",
+        minimum.getKeywordLocation());
+    assertEquals(3, minimum.getExemplars().size());
+    // Property names that are numbers are not taken as indices.
+    ErrorCount type = counts.get(1);
+    assertEquals("#/items/*/1", type.getInstanceLocation());
+    assertEquals(10, type.getCount());
+
+    statistics.reset();
+    assertTrue(statistics.getCounts().isEmpty());
+  }
+
+  @Test
+  public void maxCounts() throws SchemaException {
+    ErrorStatistics statistics = new ErrorStatistics(1, 1);
+    new Validator().validate(schema(), document(), statistics);
+    assertEquals(1, statistics.getCounts().size());
+    assertEquals(3, statistics.getCounts().get(0).getCount());
+    assertEquals(1, statistics.getOverflowCount());
+  }
+
+  @Test
+  public void concurrent() throws SchemaException, InterruptedException {
+    ErrorStatistics statistics = new ErrorStatistics();
+    Validator validator = new Validator();
+    Schema schema = schema();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    for (int idx = 0; idx != 1000; idx++) {
+      executor.execute(() -> validator.validate(schema, document(), statistics));
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+    List<ErrorCount> counts = statistics.getCounts();
+    assertEquals(3000, counts.get(0).getCount());
+    assertEquals(1000, counts.get(1).getCount());
+    assertEquals(3, counts.get(0).getExemplars().size());
+  }
+
+  @Test
+  public void encodedPathsAndBranches() throws SchemaException {
+    Schema schema = SchemaTestUtils.loadSchema("{"
+        + "  \"additionalProperties\": {"
+        + "    \"items\": {\"anyOf\": [{\"type\": \"string\"}, {\"type\": \"boolean\"}]}"
+        + "  }"
+        + "}");
+    Object document = DocumentUtils.parseJson("{\"a b\": [1, 2], \"a+b\": [3], \"\": [4]}");
+    ErrorStatistics statistics = new ErrorStatistics();
+    new Validator().validate(schema, document, statistics);
+    List<ErrorCount> counts = statistics.getCounts();
+    assertEquals(3, counts.size());
+    for (ErrorCount count : counts) {
+      // The properties are found in the document, so the indices of their arrays are replaced.
+      assertTrue(count.getInstanceLocation().endsWith("/*"), count.getInstanceLocation());
+      // Exemplars leave out the errors of the branches.
+      for (String exemplar : count.getExemplars()) {
+        assertTrue(exemplar.endsWith("with \"All anyOf failed\""), exemplar);
+      }
+    }
+  }
+
+  private static Schema schema() throws SchemaException {
+    return SchemaTestUtils.loadSchema(SCHEMA);
+  }
+
+  private static Object document() {
+    return DocumentUtils.parseJson(DOCUMENT);
+  }
+}
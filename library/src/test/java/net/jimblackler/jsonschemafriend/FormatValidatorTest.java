@@ -0,0 +1,38 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class FormatValidatorTest {
+  @Test
+  public void customFormat() throws SchemaException {
+    SchemaStore schemaStore = new SchemaStore();
+    schemaStore.addFormatValidator(
+        "sku", string -> string.matches("[A-Z]{3}-\\d{4}") ? null : "Not a SKU");
+    Schema schema = SchemaTestUtils.loadSchema(schemaStore, "{\"format\": \"sku\"}");
+    Validator validator = new Validator();
+
+    List<ValidationError> errors = new ArrayList<>();
+    validator.validate(schema, "ABC-1234", errors::add);
+    assertTrue(errors.isEmpty());
+
+    validator.validate(schema, "abc", errors::add);
+    assertEquals(1, errors.size());
+    assertTrue(errors.get(0) instanceof FormatError);
+  }
+
+  @Test
+  public void overrideBuiltInFormat() throws SchemaException {
+    SchemaStore schemaStore = new SchemaStore();
+    schemaStore.addFormatValidator("date", string -> null);
+    Schema schema = SchemaTestUtils.loadSchema(schemaStore, "{\"format\": \"date\"}");
+
+    List<ValidationError> errors = new ArrayList<>();
+    new Validator().validate(schema, "not a date", errors::add);
+    assertTrue(errors.isEmpty());
+  }
+}
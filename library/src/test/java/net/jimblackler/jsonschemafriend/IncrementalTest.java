@@ -0,0 +1,91 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class IncrementalTest {
+  private static final String SCHEMA = "{"
+      + "  \"$schema\": \"https://json-schema.org/draft/2019-09/schema\","
+      + "  \"required\": [\"name\"],"
+      + "  \"properties\": {"
+      + "    \"name\": {\"type\": \"string\"},"
+      + "    \"tags\": {\"type\": \"array\", \"uniqueItems\": true},"
+      + "    \"users\": {"
+      + "      \"items\": {"
+      + "        \"required\": [\"id\"],"
+      + "        \"properties\": {"
+      + "          \"id\": {\"type\": \"integer\"},"
+      + "          \"a/b\": {\"type\": \"string\"}"
+      + "        }"
+      + "      }"
+      + "    }"
+      + "  }"
+      + "}";
+
+  private static final String DOCUMENT = "{"
+      + "  \"name\": \"n\","
+      + "  \"tags\": [\"x\", \"y\"],"
+      + "  \"users\": [{\"id\": 1}, {\"id\": \"two\"}, {\"id\": 3, \"a/b\": \"c\"}]"
+      + "}";
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  @Test
+  public void sameErrors() throws IOException, SchemaException {
+    Schema schema = new SchemaStore().loadSchema(OBJECT_MAPPER.readValue(SCHEMA, Object.class));
+    Map<String, Object> document = OBJECT_MAPPER.readValue(DOCUMENT, Map.class);
+    Validator validator = new Validator();
+    List<ValidationError> first = new ArrayList<>();
+    ValidationState state = validator.validateWithState(schema, document, first::add);
+    assertEquals(1, first.size());
+
+    Map<String, Object> user = (Map<String, Object>) ((List<Object>) document.get("users")).get(2);
+    user.put("a/b", 4);
+    ((List<Object>) document.get("tags")).set(1, "x");
+    List<ValidationError> errors = new ArrayList<>();
+    validator.revalidate(state, document, Arrays.asList("/users/2/a~1b", "/tags/1"), errors::add);
+    assertEquals(expected(schema, document), toStrings(errors));
+    assertEquals(3, errors.size());
+    // The error in the unchanged user is replayed rather than found again.
+    assertSame(first.get(0), errors.get(1));
+
+    document.remove("name");
+    errors.clear();
+    validator.revalidate(state, document, Collections.singletonList("/name"), errors::add);
+    assertEquals(expected(schema, document), toStrings(errors));
+
+    // The pointer of the removed item is enough, as the items after it move.
+    ((List<Object>) document.get("users")).remove(1);
+    errors.clear();
+    validator.revalidate(state, document, Collections.singletonList("/users/1"), errors::add);
+    assertEquals(expected(schema, document), toStrings(errors));
+
+    ((List<Object>) document.get("users")).add(0, Collections.singletonMap("id", "zero"));
+    errors.clear();
+    validator.revalidate(state, document, Collections.singletonList("/users/0"), errors::add);
+    assertEquals(expected(schema, document), toStrings(errors));
+  }
+
+  private static List<String> expected(Schema schema, Object document) {
+    List<ValidationError> errors = new ArrayList<>();
+    new Validator().validateWithState(schema, document, errors::add);
+    return toStrings(errors);
+  }
+
+  private static List<String> toStrings(List<ValidationError> errors) {
+    List<String> strings = new ArrayList<>();
+    for (ValidationError error : errors) {
+      strings.add(error.toString());
+    }
+    return strings;
+  }
+}
@@ -0,0 +1,65 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class JsonLinesErrorWriterTest {
+  private static final String SCHEMA = "{"
+      + "  \"$schema\": \"http://json-schema.org/draft-07/schema#\","
+      + "  \"properties\": {"
+      + "    \"a\": {\"maximum\": 5},"
+      + "    \"b\": {\"anyOf\": [{\"type\": \"string\"}, {\"minimum\": 10}]}"
+      + "  },"
+      + "  \"required\": [\"c\"]"
+      + "}";
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  @Test
+  public void writesLines() throws IOException, SchemaException {
+    Schema schema = new SchemaStore().loadSchema(OBJECT_MAPPER.readValue(SCHEMA, Object.class));
+    Object document = OBJECT_MAPPER.readValue("{\"a\": 6, \"b\": 3}", Object.class);
+    StringWriter stringWriter = new StringWriter();
+    try (JsonLinesErrorWriter errorWriter = new JsonLinesErrorWriter(stringWriter)) {
+      new Validator().validate(schema, document, errorWriter);
+    }
+    String output = stringWriter.toString();
+    assertTrue(output.endsWith("\n"));
+    List<Map<String, Object>> lines = new ArrayList<>();
+    for (String line : output.split("\n")) {
+      lines.add(OBJECT_MAPPER.readValue(line, Map.class));
+    }
+    assertEquals(3, lines.size());
+
+    Map<String, Object> maximum = find(lines, "maximum");
+    assertEquals("#/properties/a/maximum", maximum.get("keywordLocation"));
+    assertEquals("#/a", maximum.get("instanceLocation"));
+
+    Map<String, Object> anyOf = find(lines, "anyOf");
+    assertEquals("#/b", anyOf.get("instanceLocation"));
+    List<List<Map<String, Object>>> branches =
+        (List<List<Map<String, Object>>>) anyOf.get("errors");
+    assertEquals(2, branches.size());
+    assertEquals("type", branches.get(0).get(0).get("keyword"));
+    assertEquals("minimum", branches.get(1).get(0).get("keyword"));
+
+    assertEquals("#", find(lines, "required").get("instanceLocation"));
+  }
+
+  private static Map<String, Object> find(List<Map<String, Object>> lines, String keyword) {
+    for (Map<String, Object> line : lines) {
+      if (keyword.equals(line.get("keyword"))) {
+        return line;
+      }
+    }
+    throw new AssertionError("No " + keyword + " error in " + lines);
+  }
+}
@@ -0,0 +1,76 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Test;
+
+public class JsonLinesTest {
+  private static final String LINES = "{\"id\": 1}\n"
+      + "{\"id\": -1}\r\n"
+      + "\n"
+      + "{\"id\": \n"
+      + "{\"id\": 2} 3\n"
+      + "{\"id\": 3}";
+
+  private static Schema loadSchema() throws SchemaException {
+    return SchemaTestUtils.loadSchema("{\"properties\": {\"id\": {\"minimum\": 0}}}");
+  }
+
+  private static void check(List<ValidationResult> results) {
+    assertEquals(5, results.size());
+    // The blank third line has no result, but is counted.
+    long[] indices = {0, 1, 3, 4, 5};
+    long[] byteOffsets = {0, 10, 23, 31, 43};
+    for (int idx = 0; idx != results.size(); idx++) {
+      assertEquals(indices[idx], results.get(idx).getIndex());
+      assertEquals(byteOffsets[idx], results.get(idx).getByteOffset());
+    }
+    assertTrue(results.get(0).isValid());
+    assertEquals(1, results.get(1).getErrors().size());
+    assertNotNull(results.get(2).getSyntaxError());
+    assertNotNull(results.get(3).getSyntaxError());
+    assertNull(results.get(4).getSyntaxError());
+    assertTrue(results.get(4).isValid());
+  }
+
+  @Test
+  public void plain() throws IOException, SchemaException {
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      Validator validator = new Validator();
+      validator.setBatchExecutor(executor);
+      validator.setJsonLinesReadAhead(2);
+      try (Stream<ValidationResult> results = validator.validateJsonLines(
+               loadSchema(), new ByteArrayInputStream(LINES.getBytes(StandardCharsets.UTF_8)))) {
+        check(results.collect(Collectors.toList()));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void gzip() throws IOException, SchemaException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream outputStream = new GZIPOutputStream(bytes)) {
+      outputStream.write(LINES.getBytes(StandardCharsets.UTF_8));
+    }
+    try (Stream<ValidationResult> results = new Validator().validateJsonLines(
+             loadSchema(), new ByteArrayInputStream(bytes.toByteArray()))) {
+      check(results.collect(Collectors.toList()));
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class MaxDepthTest {
+  private static Schema nestingSchema() throws SchemaException {
+    return SchemaTestUtils.loadSchema(
+        "{\"type\": \"object\", \"properties\": {\"child\": {\"$ref\": \"#\"}}}");
+  }
+
+  /** A schema that recurses through anyOf at every level of the document. */
+  private static Schema anyOfSchema() throws SchemaException {
+    return SchemaTestUtils.loadSchema("{"
+        + "  \"anyOf\": ["
+        + "    {\"type\": \"string\"},"
+        + "    {\"properties\": {\"child\": {\"$ref\": \"#\"}}, \"required\": [\"child\"]}"
+        + "  ]"
+        + "}");
+  }
+
+  private static Map<String, Object> nestedDocument(int depth) {
+    Map<String, Object> document = new HashMap<>();
+    Map<String, Object> object = document;
+    for (int idx = 0; idx != depth; idx++) {
+      Map<String, Object> child = new HashMap<>();
+      object.put("child", child);
+      object = child;
+    }
+    object.put("child", "not an object");
+    return document;
+  }
+
+  @Test
+  public void deepDocument() throws SchemaException {
+    List<ValidationError> errors = new ArrayList<>();
+    new Validator().validate(nestingSchema(), nestedDocument(5000), errors::add);
+    assertEquals(1, errors.size());
+    assertTrue(errors.get(0) instanceof TypeError);
+  }
+
+  @Test
+  public void deepRecursiveAnyOf() throws SchemaException, InterruptedException {
+    Schema schema = anyOfSchema();
+    List<ValidationError> errors = new ArrayList<>();
+    new Validator().validate(schema, nestedDocument(200), errors::add);
+    assertTrue(errors.isEmpty());
+
+    Map<String, Object> document = nestedDocument(5000);
+    Throwable[] thrown = new Throwable[1];
+    // A thread with a small stack, which would overflow without the limit on the Java stack.
+    Thread thread = new Thread(null, () -> {
+      try {
+        Validator validator = new Validator();
+        validator.setMaxStackDepth(256);
+        validator.validate(schema, document, errors::add);
+      } catch (Throwable e) {
+        thrown[0] = e;
+      }
+    }, "validate", 1 << 20);
+    thread.start();
+    thread.join();
+    assertEquals(null, thrown[0]);
+    assertEquals(1, errors.size());
+    assertEquals(
+        LimitExceededError.Limit.STACK_DEPTH, ((LimitExceededError) errors.get(0)).getLimit());
+  }
+}
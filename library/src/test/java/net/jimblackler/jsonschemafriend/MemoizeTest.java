@@ -0,0 +1,125 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class MemoizeTest {
+  private static final String SCHEMA = "{"
+      + "  \"$schema\": \"https://json-schema.org/draft/2019-09/schema\","
+      + "  \"$ref\": \"#/$defs/node\","
+      + "  \"$defs\": {"
+      + "    \"node\": {"
+      + "      \"anyOf\": [{\"$ref\": \"#/$defs/named\"}, {\"$ref\": \"#/$defs/base\"}],"
+      + "      \"unevaluatedProperties\": false"
+      + "    },"
+      + "    \"named\": {"
+      + "      \"allOf\": [{\"$ref\": \"#/$defs/base\"}],"
+      + "      \"properties\": {\"name\": {\"type\": \"string\"}},"
+      + "      \"required\": [\"name\"]"
+      + "    },"
+      + "    \"base\": {"
+      + "      \"type\": \"object\","
+      + "      \"properties\": {"
+      + "        \"child\": {\"$ref\": \"#/$defs/node\"},"
+      + "        \"size\": {\"minimum\": 0}"
+      + "      }"
+      + "    }"
+      + "  }"
+      + "}";
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private static List<String> validate(boolean memoize, String document)
+      throws IOException, SchemaException {
+    Schema schema = new SchemaStore().loadSchema(OBJECT_MAPPER.readValue(SCHEMA, Object.class));
+    Validator validator = new Validator();
+    validator.setMemoize(memoize);
+    List<String> errors = new ArrayList<>();
+    validator.validate(schema, OBJECT_MAPPER.readValue(document, Object.class),
+        error -> errors.add(error.getUri() + " " + error.getSchema().getUri() + " "
+            + error.getClass().getSimpleName()));
+    // Memoization can change the order in which errors are reported.
+    Collections.sort(errors);
+    return errors;
+  }
+
+  @Test
+  public void sameErrors() throws IOException, SchemaException {
+    String[] documents = {
+        "{\"child\": {\"name\": \"a\", \"child\": {\"size\": 1}}}",
+        "{\"child\": {\"name\": 1, \"child\": {\"size\": -1}}}",
+        "{\"child\": {\"name\": \"a\", \"other\": 1}}",
+        "{\"child\": {\"child\": {\"child\": {\"size\": -1, \"other\": 1}}}}"
+    };
+    for (String document : documents) {
+      assertEquals(validate(false, document), validate(true, document));
+    }
+  }
+
+  /**
+   * Counts the evaluations of a schema that both branches of an anyOf reference at every level of
+   * a document. Both branches fail at the bottom of the document, so without memoization the
+   * evaluations double with every level.
+   */
+  private static int evaluations(boolean memoize, int depth) throws SchemaException {
+    String schemaJson = "{"
+        + "  \"$schema\": \"https://json-schema.org/draft/2019-09/schema\","
+        + "  \"$ref\": \"#/$defs/node\","
+        + "  \"$defs\": {"
+        + "    \"node\": {"
+        + "      \"anyOf\": ["
+        + "        {\"$ref\": \"#/$defs/base\"},"
+        + "        {\"allOf\": [{\"$ref\": \"#/$defs/base\"}]}"
+        + "      ]"
+        + "    },"
+        + "    \"base\": {"
+        + "      \"type\": \"object\","
+        + "      \"properties\": {"
+        + "        \"name\": {\"format\": \"counted\"},"
+        + "        \"child\": {\"$ref\": \"#/$defs/node\"}"
+        + "      }"
+        + "    }"
+        + "  }"
+        + "}";
+    AtomicInteger count = new AtomicInteger();
+    SchemaStore schemaStore = new SchemaStore();
+    schemaStore.addFormatValidator("counted", string -> {
+      count.incrementAndGet();
+      return null;
+    });
+    Schema schema = schemaStore.loadSchema((Object) DocumentUtils.parseJson(schemaJson));
+    Map<String, Object> document = new HashMap<>();
+    Map<String, Object> object = document;
+    for (int idx = 0; idx != depth; idx++) {
+      object.put("name", "level " + idx);
+      Map<String, Object> child = new HashMap<>();
+      object.put("child", child);
+      object = child;
+    }
+    object.put("child", "not an object");
+
+    Validator validator = new Validator();
+    validator.setMemoize(memoize);
+    List<ValidationError> errors = new ArrayList<>();
+    validator.validate(schema, document, errors::add);
+    assertEquals(1, errors.size());
+    return count.get();
+  }
+
+  @Test
+  public void evaluatedOnce() throws SchemaException {
+    assertEquals((1 << 11) - 2, evaluations(false, 10));
+    // Each level is evaluated once.
+    assertEquals(10, evaluations(true, 10));
+    assertEquals(100, evaluations(true, 100));
+  }
+}
@@ -0,0 +1,86 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+public class NodeAdapterTest {
+  private static final String SCHEMA = "{"
+      + "  \"$schema\": \"https://json-schema.org/draft/2019-09/schema\","
+      + "  \"required\": [\"id\", \"name\"],"
+      + "  \"properties\": {"
+      + "    \"id\": {\"type\": \"integer\", \"minimum\": 1},"
+      + "    \"name\": {\"type\": \"string\", \"maxLength\": 4},"
+      + "    \"score\": {\"type\": \"number\"},"
+      + "    \"note\": {\"type\": [\"string\", \"null\"]},"
+      + "    \"tags\": {\"uniqueItems\": true, \"items\": {\"enum\": [\"a\", \"b\", {\"c\": 1}]}}"
+      + "  },"
+      + "  \"additionalProperties\": false"
+      + "}";
+
+  private static final String[] DOCUMENTS = {
+      "{\"id\": 1, \"name\": \"abc\", \"score\": 1.5, \"note\": null,"
+          + " \"tags\": [\"a\", {\"c\": 1}]}",
+      "{\"id\": 1.5, \"name\": \"abcdef\", \"score\": \"x\", \"note\": 3,"
+          + " \"tags\": [\"a\", \"a\"]}",
+      "{\"id\": 0, \"tags\": [{\"c\": 2}, null], \"extra\": true}",
+      "{\"id\": 12345678901234567890, \"name\": \"a\"}"
+  };
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  @Test
+  public void sameErrors() throws IOException, SchemaException {
+    Schema schema = new SchemaStore().loadSchema(OBJECT_MAPPER.readValue(SCHEMA, Object.class));
+    Validator validator = new Validator();
+    for (String document : DOCUMENTS) {
+      List<String> expected =
+          errors(validator, schema, OBJECT_MAPPER.readValue(document, Object.class));
+      assertEquals(expected, errors(validator, schema, OBJECT_MAPPER.readTree(document)));
+      assertEquals(expected, errors(validator, schema, JsonParser.parseString(document)));
+      assertEquals(expected, errors(validator, schema, new JSONObject(document)));
+    }
+    assertFalse(errors(validator, schema, OBJECT_MAPPER.readTree(DOCUMENTS[1])).isEmpty());
+  }
+
+  @Test
+  public void parallel() throws IOException, SchemaException {
+    // Both branches of allOf read the same views, from different tasks.
+    Schema schema = new SchemaStore().loadSchema(OBJECT_MAPPER.readValue(
+        "{\"items\": {\"allOf\": [" + SCHEMA + ", " + SCHEMA + "]}}", Object.class));
+    StringBuilder document = new StringBuilder("[");
+    for (int idx = 0; idx != 1000; idx++) {
+      document.append(idx == 0 ? "" : ", ").append(DOCUMENTS[idx % DOCUMENTS.length]);
+    }
+    document.append("]");
+    List<String> expected = errors(
+        new Validator(), schema, OBJECT_MAPPER.readValue(document.toString(), Object.class));
+    assertTrue(expected.size() > 1000);
+
+    ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+    try {
+      Validator validator = new Validator();
+      validator.setForkJoinPool(forkJoinPool);
+      validator.setParallelThreshold(2);
+      assertEquals(
+          expected, errors(validator, schema, OBJECT_MAPPER.readTree(document.toString())));
+    } finally {
+      forkJoinPool.shutdown();
+    }
+  }
+
+  private static List<String> errors(Validator validator, Schema schema, Object document) {
+    List<String> errors = new ArrayList<>();
+    validator.validate(schema, document, error -> errors.add(error.toString()));
+    return errors;
+  }
+}
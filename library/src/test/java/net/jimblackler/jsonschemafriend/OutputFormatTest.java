@@ -0,0 +1,58 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class OutputFormatTest {
+  private static final String SCHEMA = "{"
+      + "  \"$schema\": \"https://json-schema.org/draft/2019-09/schema\","
+      + "  \"properties\": {"
+      + "    \"a\": {\"type\": \"integer\", \"minimum\": 5},"
+      + "    \"b\": {\"anyOf\": [{\"type\": \"string\"}, {\"minimum\": 10}]}"
+      + "  },"
+      + "  \"required\": [\"c\"]"
+      + "}";
+  private static final URI SCHEMA_URI = URI.create("https://example.com/order");
+  private static final String DOCUMENT = "{\"a\": 1.5, \"b\": 3}";
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  // The structure of each format is tested in the suite outputFormats.json.
+
+  @Test
+  public void absoluteKeywordLocation() throws IOException, SchemaException {
+    Map<String, Object> output = validate(DOCUMENT, OutputFormat.BASIC);
+    List<Map<String, Object>> errors = (List<Map<String, Object>>) output.get("errors");
+    assertEquals("#/properties/a/minimum", errors.get(1).get("keywordLocation"));
+    assertEquals(
+        SCHEMA_URI + "#/properties/a/minimum", errors.get(1).get("absoluteKeywordLocation"));
+  }
+
+  @Test
+  public void matchesOutputSchema() throws IOException, SchemaException {
+    SchemaStore schemaStore = new SchemaStore(true);
+    Schema outputUnit = schemaStore.loadSchema(
+        URI.create("https://json-schema.org/draft/2019-09/output/schema#/$defs/outputUnit"));
+    Validator validator = new Validator();
+    for (OutputFormat format : new OutputFormat[] {
+             OutputFormat.BASIC, OutputFormat.DETAILED, OutputFormat.VERBOSE}) {
+      validator.validate(outputUnit, validate(DOCUMENT, format));
+      validator.validate(outputUnit, validate("{\"c\": 1}", format));
+    }
+  }
+
+  private static Map<String, Object> validate(String json, OutputFormat format)
+      throws IOException, SchemaException {
+    SchemaStore schemaStore = new SchemaStore();
+    schemaStore.store(SCHEMA_URI, OBJECT_MAPPER.readValue(SCHEMA, Object.class));
+    Schema schema = schemaStore.loadSchema(SCHEMA_URI);
+    Object document = OBJECT_MAPPER.readValue(json, Object.class);
+    return new Validator().validateWithOutput(schemaStore, schema, document, format);
+  }
+}
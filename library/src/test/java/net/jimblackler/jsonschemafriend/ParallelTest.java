@@ -0,0 +1,118 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import org.junit.jupiter.api.Test;
+
+public class ParallelTest {
+  @Test
+  public void sameErrorsInOrder() throws SchemaException {
+    Schema schema = SchemaTestUtils.loadSchema("{"
+        + "  \"items\": {"
+        + "    \"required\": [\"id\"],"
+        + "    \"properties\": {\"id\": {\"minimum\": 0}},"
+        + "    \"additionalProperties\": {\"type\": \"string\"}"
+        + "  }"
+        + "}");
+
+    List<Object> document = new ArrayList<>();
+    for (int idx = 0; idx != 500; idx++) {
+      Map<String, Object> item = new HashMap<>();
+      if (idx % 7 != 0) {
+        item.put("id", idx % 5 == 0 ? -idx : idx);
+      }
+      for (int idx2 = 0; idx2 != 20; idx2++) {
+        item.put("p" + idx2, idx2 % 9 == idx % 9 ? idx2 : "value");
+      }
+      document.add(item);
+    }
+
+    List<String> expected = new ArrayList<>();
+    new Validator().validate(schema, document, error -> expected.add(error.toString()));
+
+    ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+    try {
+      Validator validator = new Validator();
+      validator.setForkJoinPool(forkJoinPool);
+      validator.setParallelThreshold(10);
+      List<String> errors = new ArrayList<>();
+      validator.validate(schema, document, error -> errors.add(error.toString()));
+      assertEquals(expected, errors);
+    } finally {
+      forkJoinPool.shutdown();
+    }
+  }
+
+  @Test
+  public void validatedOnPool() throws SchemaException {
+    // Records the threads on which the items are checked.
+    Map<Thread, Boolean> threads = new ConcurrentHashMap<>();
+    int[] checks = new int[1];
+    SchemaStore schemaStore = new SchemaStore();
+    schemaStore.addFormatValidator("tracked", string -> {
+      threads.put(Thread.currentThread(), true);
+      synchronized (checks) {
+        checks[0]++;
+      }
+      return string.startsWith("bad") ? "Bad" : null;
+    });
+    Schema schema = SchemaTestUtils.loadSchema(schemaStore, "{"
+        + "  \"items\": {"
+        + "    \"properties\": {"
+        + "      \"name\": {\"format\": \"tracked\"},"
+        + "      \"tags\": {\"items\": {\"minimum\": 0}}"
+        + "    }"
+        + "  }"
+        + "}");
+
+    // Large enough that the default threshold applies to the items, and to the tags of each item.
+    List<Object> document = new ArrayList<>();
+    for (int idx = 0; idx != 5000; idx++) {
+      Map<String, Object> item = new HashMap<>();
+      item.put("name", idx % 3 == 0 ? "bad " + idx : "good " + idx);
+      List<Object> tags = new ArrayList<>();
+      for (int idx2 = 0; idx2 != (idx % 100 == 0 ? 2000 : 5); idx2++) {
+        tags.add(idx2 % 500 == 7 ? -1 : idx2);
+      }
+      item.put("tags", tags);
+      document.add(item);
+    }
+
+    List<String> expected = new ArrayList<>();
+    new Validator().validate(schema, document, error -> expected.add(error.toString()));
+    assertEquals(1667 + 50 * 4, expected.size());
+    threads.clear();
+    checks[0] = 0;
+
+    ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+    try {
+      Validator validator = new Validator();
+      validator.setForkJoinPool(forkJoinPool);
+      List<String> errors = new ArrayList<>();
+      Thread caller = Thread.currentThread();
+      validator.validate(schema, document, error -> {
+        // Errors are passed to the consumer on the calling thread.
+        assertSame(caller, Thread.currentThread());
+        errors.add(error.toString());
+      });
+      assertEquals(expected, errors);
+      assertEquals(5000, checks[0]);
+      // Every item was checked on a worker of the pool.
+      for (Thread thread : threads.keySet()) {
+        assertTrue(thread instanceof ForkJoinWorkerThread);
+        assertSame(forkJoinPool, ((ForkJoinWorkerThread) thread).getPool());
+      }
+    } finally {
+      forkJoinPool.shutdown();
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class SchemaTestUtils {
+  /** Loads a schema written as JSON, as draft-07 unless it has a $schema of its own. */
+  static Schema loadSchema(String json) throws SchemaException {
+    return loadSchema(new SchemaStore(), json);
+  }
+
+  static Schema loadSchema(SchemaStore schemaStore, String json) throws SchemaException {
+    Object schema = DocumentUtils.parseJson(json);
+    if (schema instanceof Map && !((Map<?, ?>) schema).containsKey("$schema")) {
+      Map<String, Object> withMetaSchema = new LinkedHashMap<>();
+      withMetaSchema.put("$schema", "http://json-schema.org/draft-07/schema#");
+      withMetaSchema.putAll((Map<String, Object>) schema);
+      schema = withMetaSchema;
+    }
+    return schemaStore.loadSchema(schema);
+  }
+}
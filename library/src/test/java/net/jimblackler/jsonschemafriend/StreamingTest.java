@@ -0,0 +1,106 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class StreamingTest {
+  private static final String SCHEMA = "{"
+      + "  \"$schema\": \"http://json-schema.org/draft-07/schema#\","
+      + "  \"type\": \"object\","
+      + "  \"required\": [\"items\"],"
+      + "  \"properties\": {"
+      + "    \"items\": {\"type\": \"array\", \"items\": {\"$ref\": \"#/definitions/item\"}},"
+      + "    \"tags\": {\"uniqueItems\": true, \"maxItems\": 3}"
+      + "  },"
+      + "  \"additionalProperties\": false,"
+      + "  \"definitions\": {"
+      + "    \"item\": {"
+      + "      \"required\": [\"id\"],"
+      + "      \"dependencies\": {\"min\": [\"max\"]},"
+      + "      \"properties\": {"
+      + "        \"id\": {\"type\": \"integer\", \"minimum\": 0},"
+      + "        \"kind\": {\"enum\": [\"a\", \"b\"]},"
+      + "        \"value\": {\"anyOf\": [{\"type\": \"string\"}, {\"type\": \"array\"}]}"
+      + "      },"
+      + "      \"patternProperties\": {\"^x-\": {\"type\": \"string\"}},"
+      + "      \"propertyNames\": {\"maxLength\": 5}"
+      + "    }"
+      + "  }"
+      + "}";
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private static List<String> validate(Validator validator, String document, boolean streaming)
+      throws IOException, SchemaException {
+    Schema schema = new SchemaStore().loadSchema(OBJECT_MAPPER.readValue(SCHEMA, Object.class));
+    List<String> errors = new ArrayList<>();
+    if (streaming) {
+      validator.validate(schema, new JsonFactory().createParser(document),
+          error -> errors.add(error.getUri() + " " + error.getClass().getSimpleName()));
+    } else {
+      validator.validate(schema, OBJECT_MAPPER.readValue(document, Object.class),
+          error -> errors.add(error.getUri() + " " + error.getClass().getSimpleName()));
+    }
+    // Streaming validation reports errors in a different order.
+    Collections.sort(errors);
+    return errors;
+  }
+
+  @Test
+  public void sameErrors() throws IOException, SchemaException {
+    String[] documents = {
+        "{\"items\": [{\"id\": 1}, {\"id\": 2, \"kind\": \"a\", \"value\": [1]}]}",
+        "{\"items\": [{\"id\": -1, \"kind\": \"c\"}, {\"value\": 1, \"x-a\": 2}], \"other\": 1}",
+        "{\"items\": [{\"id\": 1.5, \"min\": 1, \"longName\": 1}], \"tags\": [1, 2, 1, 3]}",
+        "{\"items\": {}, \"tags\": [[1], [1]]}",
+        "[]"
+    };
+    for (String document : documents) {
+      assertEquals(validate(new Validator(), document, false),
+          validate(new Validator(), document, true));
+    }
+  }
+
+  @Test
+  public void profile() throws IOException, SchemaException {
+    String document = "{\"items\": [{\"id\": 1.5, \"min\": 1}, {\"id\": -1}], \"tags\": [1, 1]}";
+    ValidationProfile profile = new ValidationProfile();
+    profile.disableKeyword("required");
+    profile.disableKeyword(URI.create("#/properties/items"), "type");
+    profile.disableInstancePath("/items/1");
+    Validator validator = new Validator();
+    validator.setProfile(profile);
+    assertEquals(Arrays.asList("#/items/0 DependencyError", "#/items/0/id TypeError",
+                     "#/tags UniqueItemsError"),
+        validate(validator, document, true));
+    assertEquals(validate(validator, document, false), validate(validator, document, true));
+    assertEquals(Collections.emptyList(), validate(validator, "{\"items\": {}}", true));
+
+    // A disabled schema of an array is not applied to its items either.
+    profile = new ValidationProfile();
+    profile.disableSchema(URI.create("#/properties/items"));
+    validator.setProfile(profile);
+    assertEquals(Collections.singletonList("#/tags UniqueItemsError"),
+        validate(validator, document, true));
+    assertEquals(validate(validator, document, false), validate(validator, document, true));
+  }
+
+  @Test
+  public void bufferLimit() throws IOException, SchemaException {
+    Validator validator = new Validator();
+    validator.setStreamingBufferLimit(3);
+    assertEquals(Collections.singletonList("#/tags BufferLimitError"),
+        validate(validator, "{\"items\": [], \"tags\": [1, [2, 3], 4]}", true));
+    assertEquals(Collections.singletonList("#/tags UniqueItemsError"),
+        validate(validator, "{\"items\": [], \"tags\": [1, 1]}", true));
+  }
+}
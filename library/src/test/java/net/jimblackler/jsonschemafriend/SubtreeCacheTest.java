@@ -0,0 +1,147 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class SubtreeCacheTest {
+  private static final String SCHEMA = "{"
+      + "  \"$schema\": \"https://json-schema.org/draft/2019-09/schema\","
+      + "  \"properties\": {"
+      + "    \"device\": {"
+      + "      \"allOf\": [{\"$ref\": \"#/$defs/device\"}],"
+      + "      \"unevaluatedProperties\": false"
+      + "    }"
+      + "  },"
+      + "  \"$defs\": {"
+      + "    \"device\": {"
+      + "      \"required\": [\"os\"],"
+      + "      \"properties\": {"
+      + "        \"os\": {\"enum\": [\"ios\", \"android\"]},"
+      + "        \"caps\": {\"items\": {\"type\": \"string\"}}"
+      + "      }"
+      + "    }"
+      + "  }"
+      + "}";
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  @Test
+  public void sameErrors() throws IOException, SchemaException {
+    Schema schema = new SchemaStore().loadSchema(OBJECT_MAPPER.readValue(SCHEMA, Object.class));
+    String[] documents = {
+        "{\"id\": 1, \"device\": {\"os\": \"ios\", \"caps\": [\"a\", \"b\"]}}",
+        "{\"id\": 2, \"device\": {\"os\": \"ios\", \"caps\": [\"a\", \"b\"]}}",
+        "{\"id\": 3, \"device\": {\"os\": \"other\", \"caps\": [\"a\", 1], \"x\": 1}}",
+        "{\"id\": 4, \"device\": {\"os\": \"other\", \"caps\": [\"a\", 1], \"x\": 1}}",
+        "{\"id\": 5, \"device\": {\"caps\": [\"a\", \"b\"], \"os\": \"ios\"}}",
+        "{\"id\": 6, \"device\": {\"os\": \"ios\", \"caps\": [\"b\", \"a\"]}}"
+    };
+    SubtreeCache subtreeCache = new SubtreeCache(100, 3);
+    Validator validator = new Validator();
+    validator.setSubtreeCache(subtreeCache);
+    for (String document : documents) {
+      Object object = OBJECT_MAPPER.readValue(document, Object.class);
+      List<String> expected = new ArrayList<>();
+      new Validator().validate(schema, object, error -> expected.add(error.toString()));
+      List<String> errors = new ArrayList<>();
+      validator.validate(schema, object, error -> errors.add(error.toString()));
+      assertEquals(expected, errors);
+    }
+    // The devices of the second and fifth documents are found, as is the invalid device of the
+    // fourth document and its caps (which are validated again for their errors). The devices and
+    // caps of the first, third and sixth documents are not, nor are the six whole documents.
+    assertEquals(4, subtreeCache.getHits());
+    assertEquals(12, subtreeCache.getMisses());
+  }
+
+  @Test
+  public void hitSkipsValidation() throws IOException, SchemaException {
+    AtomicInteger checks = new AtomicInteger();
+    SchemaStore schemaStore = new SchemaStore();
+    schemaStore.addFormatValidator("counted", string -> {
+      checks.incrementAndGet();
+      return null;
+    });
+    Schema schema = schemaStore.loadSchema(OBJECT_MAPPER.readValue("{"
+            + "  \"$schema\": \"http://json-schema.org/draft-07/schema#\","
+            + "  \"additionalProperties\": {"
+            + "    \"properties\": {\"name\": {\"format\": \"counted\"}}"
+            + "  }"
+            + "}",
+        Object.class));
+    SubtreeCache subtreeCache = new SubtreeCache(100, 3);
+    Validator validator = new Validator();
+    validator.setSubtreeCache(subtreeCache);
+    List<ValidationError> errors = new ArrayList<>();
+    validator.validate(schema,
+        OBJECT_MAPPER.readValue("{\"a\": {\"name\": \"x\", \"n\": 1},"
+                + " \"b\": {\"n\": 1, \"name\": \"x\"}, \"c\": {\"name\": \"x\", \"n\": 1.0}}",
+            Object.class),
+        errors::add);
+    assertTrue(errors.isEmpty());
+    // The record of "b" is found in the cache; "c" differs, as 1.0 is not taken to be 1.
+    assertEquals(1, subtreeCache.getHits());
+    assertEquals(2, checks.get());
+  }
+
+  @Test
+  public void locationDependent() throws IOException, SchemaException {
+    Schema schema = new SchemaStore().loadSchema(OBJECT_MAPPER.readValue("{"
+            + "  \"$schema\": \"http://json-schema.org/draft-07/schema#\","
+            + "  \"additionalProperties\": {"
+            + "    \"required\": [\"os\"],"
+            + "    \"properties\": {\"caps\": {\"items\": {\"type\": \"string\"}}}"
+            + "  }"
+            + "}",
+        Object.class));
+    Object document = OBJECT_MAPPER.readValue(
+        "{\"a\": {\"caps\": [1, 2]}, \"b\": {\"caps\": [1, 2]}}", Object.class);
+    // The device at /a is skipped by a profile, or its errors are filtered out, but it is not then
+    // taken to be valid at /b.
+    ValidationProfile profile = new ValidationProfile();
+    profile.disableInstancePath("/a");
+    Validator withProfile = new Validator();
+    withProfile.setProfile(profile);
+    Validator withFilter = new Validator(error -> !error.getUri().getFragment().startsWith("/a"));
+    for (Validator validator : Arrays.asList(withProfile, withFilter)) {
+      SubtreeCache subtreeCache = new SubtreeCache(100, 1);
+      validator.setSubtreeCache(subtreeCache);
+      List<ValidationError> errors = new ArrayList<>();
+      validator.validate(schema, document, errors::add);
+      assertEquals(3, errors.size());
+      assertEquals(0, subtreeCache.size());
+    }
+  }
+
+  @Test
+  public void digests() throws IOException {
+    SubtreeCache subtreeCache = new SubtreeCache(100, 1);
+    assertTrue(sameDigest(subtreeCache, subtreeCache, "{\"a\": [1, \"b\"], \"c\": null}",
+        "{\"c\": null, \"a\": [1, \"b\"]}"));
+    assertFalse(sameDigest(subtreeCache, subtreeCache, "[1, 2]", "[2, 1]"));
+    assertFalse(sameDigest(subtreeCache, subtreeCache, "[1]", "[\"1\"]"));
+    assertFalse(sameDigest(subtreeCache, subtreeCache, "[\"ab\", \"c\"]", "[\"a\", \"bc\"]"));
+    assertFalse(sameDigest(subtreeCache, subtreeCache, "{\"a\": []}", "{\"a\": {}}"));
+    // Each cache has its own secret key.
+    assertFalse(sameDigest(subtreeCache, new SubtreeCache(100, 1), "[1]", "[1]"));
+  }
+
+  private static boolean sameDigest(SubtreeCache cache1, SubtreeCache cache2, String json1,
+      String json2) throws IOException {
+    SubtreeCache.Hash hash1 = cache1.hash(
+        OBJECT_MAPPER.readValue(json1, Object.class), new IdentityHashMap<>());
+    SubtreeCache.Hash hash2 = cache2.hash(
+        OBJECT_MAPPER.readValue(json2, Object.class), new IdentityHashMap<>());
+    return Arrays.equals(hash1.digest, hash2.digest);
+  }
+}
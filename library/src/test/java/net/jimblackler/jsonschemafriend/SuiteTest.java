@@ -20,6 +20,7 @@ import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -64,6 +65,11 @@ public class SuiteTest {
               }
 
               Collection<DynamicTest> tests = new ArrayList<>();
+              Validator setValidator = testSet.containsKey("validator")
+                  ? configure((Map<String, Object>) testSet.get("validator"), supplier)
+                  : validator;
+              OutputFormat outputFormat = OutputFormat.valueOf(
+                  getOrDefault(testSet, "outputFormat", "basic").toUpperCase());
               Object schemaObject = testSet.get("schema");
               if (schemaObject instanceof Map) {
                 Map<String, Object> schema1 = (Map<String, Object>) schemaObject;
@@ -93,7 +99,7 @@ public class SuiteTest {
                   System.out.println();
 
                   List<ValidationError> errors = new ArrayList<>();
-                  validator.validate(schema1, data1, URI.create(""), errors::add);
+                  setValidator.validate(schema1, data1, URI.create(""), errors::add);
 
                   System.out.print("Expected to " + (valid ? "pass" : "fail") + " ... ");
                   if (errors.isEmpty()) {
@@ -107,6 +113,10 @@ public class SuiteTest {
                   }
 
                   assertEquals(errors.isEmpty(), valid);
+                  if (test.containsKey("output")) {
+                    assertEquals(test.get("output"),
+                        setValidator.validateWithOutput(null, schema1, data1, outputFormat));
+                  }
                 }));
               }
               nodes.add(dynamicContainer(
@@ -125,6 +135,83 @@ public class SuiteTest {
     return allFileTests;
   }
 
+  /**
+   * Creates a validator with the options of a test set, for the features of the validator that go
+   * beyond the standard. The options are described in the README of the suites.
+   */
+  private static Validator configure(Map<String, Object> options, RegExPatternSupplier supplier) {
+    Validator validator =
+        new Validator(new CachedRegExPatternSupplier(supplier), validationError -> true);
+    for (Map.Entry<String, Object> entry : options.entrySet()) {
+      Object value = entry.getValue();
+      switch (entry.getKey()) {
+        case "maxDepth":
+          validator.setMaxDepth(((Number) value).intValue());
+          break;
+        case "maxStackDepth":
+          validator.setMaxStackDepth(((Number) value).intValue());
+          break;
+        case "maxBranchErrors":
+          validator.setMaxBranchErrors(((Number) value).intValue());
+          break;
+        case "maxBranchDepth":
+          validator.setMaxBranchDepth(((Number) value).intValue());
+          break;
+        case "summarizeBranches":
+          validator.setSummarizeBranches((Boolean) value);
+          break;
+        case "limits":
+          validator.setLimits(limits((Map<String, Object>) value));
+          break;
+        case "profile":
+          validator.setProfile(profile((Map<String, Object>) value));
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown validator option: " + entry.getKey());
+      }
+    }
+    return validator;
+  }
+
+  private static ValidationLimits limits(Map<String, Object> options) {
+    ValidationLimits limits = new ValidationLimits();
+    for (Map.Entry<String, Object> entry : options.entrySet()) {
+      long value = ((Number) entry.getValue()).longValue();
+      switch (entry.getKey()) {
+        case "maxNodes":
+          limits.setMaxNodes(value);
+          break;
+        case "maxErrors":
+          limits.setMaxErrors((int) value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown limit: " + entry.getKey());
+      }
+    }
+    return limits;
+  }
+
+  private static ValidationProfile profile(Map<String, Object> options) {
+    ValidationProfile profile = new ValidationProfile();
+    for (String keyword : getOrDefault(options, "keywords", new ArrayList<String>())) {
+      profile.disableKeyword(keyword);
+    }
+    Map<String, List<String>> schemaKeywords =
+        getOrDefault(options, "schemaKeywords", new HashMap<>());
+    for (Map.Entry<String, List<String>> entry : schemaKeywords.entrySet()) {
+      for (String keyword : entry.getValue()) {
+        profile.disableKeyword(URI.create(entry.getKey()), keyword);
+      }
+    }
+    for (String schema : getOrDefault(options, "schemas", new ArrayList<String>())) {
+      profile.disableSchema(URI.create(schema));
+    }
+    for (String pointer : getOrDefault(options, "instancePaths", new ArrayList<String>())) {
+      profile.disableInstancePath(pointer);
+    }
+    return profile;
+  }
+
   private static Collection<DynamicNode> test(String set, String metaSchema) {
     Path suite = FILE_SYSTEM.getPath("/suites").resolve("JSON-Schema-Test-Suite");
     Path tests = suite.resolve("tests").resolve(set);
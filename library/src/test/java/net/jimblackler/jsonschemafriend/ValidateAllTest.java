@@ -0,0 +1,120 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+public class ValidateAllTest {
+  private static Schema loadSchema() throws SchemaException {
+    return SchemaTestUtils.loadSchema("{\"items\": {\"minimum\": 0}}");
+  }
+
+  private static List<Object> makeDocuments() {
+    List<Object> documents = new ArrayList<>();
+    for (int idx = 0; idx != 200; idx++) {
+      List<Object> document = new ArrayList<>();
+      for (int idx2 = 0; idx2 != 10; idx2++) {
+        document.add(idx % 3 == 0 && idx2 % 4 == 0 ? -1 : idx2);
+      }
+      documents.add(document);
+    }
+    return documents;
+  }
+
+  @Test
+  public void resultsInOrder() throws SchemaException {
+    Schema schema = loadSchema();
+    List<Object> documents = makeDocuments();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Validator validator = new Validator();
+      validator.setBatchExecutor(executor);
+      List<ValidationResult> results = validator.validateAll(schema, documents);
+      assertEquals(documents.size(), results.size());
+      for (int idx = 0; idx != results.size(); idx++) {
+        ValidationResult result = results.get(idx);
+        assertEquals(idx, result.getIndex());
+        assertTrue(result.isComplete());
+        List<String> expected = new ArrayList<>();
+        new Validator().validate(
+            schema, documents.get(idx), error -> expected.add(error.toString()));
+        assertEquals(expected,
+            result.getErrors().stream().map(Object::toString).collect(Collectors.toList()));
+        assertEquals(expected.isEmpty(), result.isValid());
+      }
+
+      List<ValidationResult> streamed =
+          validator.validateAll(schema, documents.stream()).collect(Collectors.toList());
+      for (int idx = 0; idx != streamed.size(); idx++) {
+        assertEquals(idx, streamed.get(idx).getIndex());
+        assertEquals(results.get(idx).isValid(), streamed.get(idx).isValid());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void batchMaxErrors() throws SchemaException {
+    Validator validator = new Validator();
+    validator.setBatchMaxErrors(5);
+    List<ValidationResult> results = validator.validateAll(loadSchema(), makeDocuments());
+    int errors = 0;
+    boolean incomplete = false;
+    for (ValidationResult result : results) {
+      errors += result.getErrors().size();
+      if (!result.isComplete()) {
+        incomplete = true;
+        assertFalse(result.isValid());
+      }
+    }
+    assertEquals(5, errors);
+    assertTrue(incomplete);
+  }
+
+  @Test
+  public void exactlyBatchMaxErrors() throws SchemaException {
+    Validator validator = new Validator();
+    // Validated in order on the calling thread.
+    validator.setBatchExecutor(Runnable::run);
+    validator.setBatchMaxErrors(3);
+    List<Object> documents = makeDocuments();
+    // The first document has three errors and the second has none.
+    List<ValidationResult> results = validator.validateAll(loadSchema(), documents);
+    assertEquals(3, results.get(0).getErrors().size());
+    assertTrue(results.get(0).isComplete());
+    assertTrue(results.get(1).isValid());
+    assertTrue(results.get(1).isComplete());
+    // The fourth document has the fourth error, so it and later documents are incomplete.
+    assertEquals(0, results.get(3).getErrors().size());
+    assertFalse(results.get(3).isComplete());
+    assertFalse(results.get(4).isComplete());
+  }
+
+  @Test
+  public void streamReadAhead() throws SchemaException {
+    Validator validator = new Validator();
+    validator.setBatchReadAhead(8);
+    AtomicInteger taken = new AtomicInteger();
+    // An unbounded stream, which is only read as far as the results are consumed.
+    Stream<Object> documents = Stream.iterate(0, idx -> idx + 1)
+        .peek(idx -> taken.incrementAndGet())
+        .map(idx -> idx % 7 == 0 ? Collections.singletonList(-1) : Collections.emptyList());
+    List<ValidationResult> results =
+        validator.validateAll(loadSchema(), documents).limit(20).collect(Collectors.toList());
+    assertEquals(20, results.size());
+    assertFalse(results.get(14).isValid());
+    assertTrue(results.get(15).isValid());
+    assertTrue(taken.get() <= 20 + 8);
+  }
+}
@@ -0,0 +1,100 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+public class ValidationLimitsTest {
+  private static Schema schema() throws SchemaException {
+    return SchemaTestUtils.loadSchema("{"
+        + "  \"type\": \"object\","
+        + "  \"properties\": {\"child\": {\"$ref\": \"#\"}},"
+        + "  \"additionalProperties\": {\"type\": \"string\"}"
+        + "}");
+  }
+
+  /** A document nested to a depth, with a number of invalid properties at each level. */
+  private static Map<String, Object> document(int depth, int invalid) {
+    Map<String, Object> document = new HashMap<>();
+    Map<String, Object> object = document;
+    for (int idx = 0; idx != depth; idx++) {
+      for (int property = 0; property != invalid; property++) {
+        object.put("p" + property, property);
+      }
+      Map<String, Object> child = new HashMap<>();
+      object.put("child", child);
+      object = child;
+    }
+    return document;
+  }
+
+  private static List<ValidationError> validate(Validator validator, Object document)
+      throws SchemaException {
+    List<ValidationError> errors = new ArrayList<>();
+    validator.validate(schema(), document, errors::add);
+    return errors;
+  }
+
+  private static LimitExceededError.Limit limit(List<ValidationError> errors) {
+    ValidationError last = errors.get(errors.size() - 1);
+    return last instanceof LimitExceededError ? ((LimitExceededError) last).getLimit() : null;
+  }
+
+  @Test
+  public void maxNodesInParallel() throws SchemaException {
+    ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+    try {
+      Validator validator = new Validator();
+      validator.setForkJoinPool(forkJoinPool);
+      validator.setParallelThreshold(10);
+      ValidationLimits limits = new ValidationLimits();
+      limits.setMaxNodes(1000);
+      validator.setLimits(limits);
+      Schema schema = SchemaTestUtils.loadSchema(
+          "{\"items\": {\"properties\": {\"a\": {\"type\": \"integer\"}}}}");
+      List<Object> items = new ArrayList<>();
+      for (int idx = 0; idx != 10000; idx++) {
+        items.add(Collections.singletonMap("a", idx));
+      }
+      List<ValidationError> errors = new ArrayList<>();
+      validator.validate(schema, items, errors::add);
+      assertEquals(1, errors.size());
+      assertEquals(LimitExceededError.Limit.NODES, limit(errors));
+    } finally {
+      forkJoinPool.shutdown();
+    }
+  }
+
+  @Test
+  public void cancelled() throws SchemaException {
+    CancellationToken cancellationToken = new CancellationToken();
+    List<ValidationError> errors = new ArrayList<>();
+    new Validator().validate(schema(), document(1000, 1), error -> {
+      errors.add(error);
+      cancellationToken.cancel();
+    }, cancellationToken);
+    assertTrue(errors.size() < 1000);
+    assertEquals(LimitExceededError.Limit.CANCELLED, limit(errors));
+  }
+
+  @Test
+  public void batch() throws SchemaException {
+    Validator validator = new Validator();
+    ValidationLimits limits = new ValidationLimits();
+    limits.setMaxNodes(50);
+    validator.setLimits(limits);
+    List<ValidationResult> results =
+        validator.validateAll(schema(), Arrays.asList(document(10, 0), document(100, 0)));
+    assertTrue(results.get(0).isValid());
+    assertFalse(results.get(1).isComplete());
+  }
+}
@@ -0,0 +1,13 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class ValidationProfileTest {
+  @Test
+  public void unknownKeyword() {
+    assertThrows(
+        IllegalArgumentException.class, () -> new ValidationProfile().disableKeyword("anyOf"));
+  }
+}